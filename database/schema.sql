@@ -10,12 +10,19 @@ CREATE TABLE IF NOT EXISTS users (
     password VARCHAR(255) NOT NULL,
     full_name VARCHAR(100) NOT NULL,
     role ENUM('USER', 'ADMIN') DEFAULT 'USER',
+    session_version INT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     INDEX idx_username (username),
     INDEX idx_email (email)
 );
 
+-- Deleted Users (their signed session tokens stay revoked after the row is gone)
+CREATE TABLE IF NOT EXISTS deleted_users (
+    user_id INT PRIMARY KEY,
+    deleted_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Books Table
 CREATE TABLE IF NOT EXISTS books (
     id INT PRIMARY KEY AUTO_INCREMENT,
@@ -74,3 +81,58 @@ CREATE TABLE IF NOT EXISTS reviews (
     INDEX idx_book_id (book_id),
     INDEX idx_rating (rating)
 );
+
+-- Catalog Change Log (id is the catalog version used for delta sync)
+CREATE TABLE IF NOT EXISTS catalog_changes (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    book_id INT NOT NULL,
+    change_type ENUM('UPSERT', 'DELETE') NOT NULL,
+    changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_book_id (book_id),
+    INDEX idx_changed_at (changed_at)
+);
+
+-- Highest catalog version removed by compaction; clients behind it resync
+CREATE TABLE IF NOT EXISTS catalog_change_horizon (
+    id TINYINT PRIMARY KEY,
+    min_version BIGINT NOT NULL
+);
+
+INSERT IGNORE INTO catalog_change_horizon (id, min_version) VALUES (1, 0);
+
+-- Cache Versions (per entity type, polled by every replica to invalidate caches)
+CREATE TABLE IF NOT EXISTS cache_versions (
+    entity_type VARCHAR(32) PRIMARY KEY,
+    version BIGINT NOT NULL DEFAULT 0,
+    last_key VARCHAR(100),
+    changed_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+);
+
+INSERT IGNORE INTO cache_versions (entity_type) VALUES ('book'), ('stock'), ('user');
+
+-- Hold Queue (FIFO per book; a READY hold has a returned copy set aside)
+CREATE TABLE IF NOT EXISTS holds (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    user_id INT NOT NULL,
+    book_id INT NOT NULL,
+    status ENUM('WAITING', 'READY', 'FULFILLED', 'EXPIRED', 'CANCELLED') NOT NULL DEFAULT 'WAITING',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    ready_at TIMESTAMP NULL,
+    expires_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (book_id) REFERENCES books(id) ON DELETE CASCADE,
+    INDEX idx_book_queue (book_id, status, id),
+    INDEX idx_user_status (user_id, status),
+    INDEX idx_status_expires (status, expires_at)
+);
+
+-- Idempotency Keys (outcome of a borrow or return form, so resubmissions are answered without redoing it;
+-- a NULL outcome is a submission still running)
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    request_key VARCHAR(120) NOT NULL UNIQUE,
+    user_id INT NOT NULL,
+    outcome VARCHAR(500) NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_created_at (created_at)
+);
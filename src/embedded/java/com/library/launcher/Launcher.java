@@ -0,0 +1,269 @@
+package com.library.launcher;
+
+import jakarta.servlet.MultipartConfigElement;
+import jakarta.servlet.ServletException;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.session.StandardManager;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.valves.ValveBase;
+import org.apache.jasper.servlet.JasperInitializer;
+import org.apache.tomcat.util.descriptor.web.ErrorPage;
+import org.apache.tomcat.util.descriptor.web.FilterDef;
+import org.apache.tomcat.util.descriptor.web.FilterMap;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Runs the exploded WAR on an embedded Tomcat.
+ * <p>
+ * Servlets, filters, listeners and the rest of WEB-INF/web.xml are
+ * registered programmatically instead of going through Tomcat's deployment
+ * and annotation scanning, and the JSPs compiled by the {@code embedded}
+ * build profile are mapped from WEB-INF/precompiled-jsp.xml, so no page is
+ * compiled on first use. On a JVM with virtual threads the connector runs
+ * requests on them.
+ * <p>
+ * Environment: {@code WEBAPP_DIR} (default target/online-library),
+ * {@code PORT} (8080), {@code CONTEXT_PATH} (empty) and
+ * {@code MAX_THREADS} (200, platform threads only). Startup and
+ * time-to-first-request are logged from JVM start.
+ */
+public final class Launcher {
+
+    // JUL, as everything else the container logs goes there
+    private static final Logger logger = Logger.getLogger(Launcher.class.getName());
+
+    // com.library.health.GracefulShutdown.DRAIN_ATTRIBUTE; the launcher does not see application classes
+    private static final String DRAIN_ATTRIBUTE = "com.library.health.drain";
+
+    private Launcher() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path webapp = Paths.get(env("WEBAPP_DIR", "target/online-library")).toAbsolutePath();
+        int port = Integer.parseInt(env("PORT", "8080"));
+        String contextPath = env("CONTEXT_PATH", "");
+
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("tomcat").toString());
+        tomcat.setConnector(connector(port));
+
+        Context context = tomcat.addContext(contextPath, webapp.toString());
+        Tomcat.initWebappDefaults(context);
+        // Sessions are not written to disk on shutdown
+        StandardManager manager = new StandardManager();
+        manager.setPathname(null);
+        context.setManager(manager);
+        // Still needed for any JSP that was not precompiled
+        context.addServletContainerInitializer(new JasperInitializer(), null);
+        context.getPipeline().addValve(new FirstRequestValve());
+
+        register(context, parse(webapp.resolve("WEB-INF/web.xml")));
+        Path precompiled = webapp.resolve("WEB-INF/precompiled-jsp.xml");
+        if (Files.exists(precompiled)) {
+            // Fragment of servlet and servlet-mapping elements without a root
+            String fragment = Files.readString(precompiled, StandardCharsets.UTF_8);
+            register(context, parse("<web-app>" + fragment + "</web-app>"));
+        } else {
+            logger.warning("No precompiled JSPs in " + webapp + ", pages compile on first use");
+        }
+
+        start(tomcat, context);
+        logger.info(String.format("Started on port %d in %d ms", port, sinceJvmStart()));
+        tomcat.getServer().await();
+    }
+
+    private static Connector connector(int port) {
+        Connector connector = new Connector("HTTP/1.1");
+        connector.setPort(port);
+        if (Runtime.version().feature() >= 21 && connector.setProperty("useVirtualThreads", "true")) {
+            logger.info("Connector runs requests on virtual threads");
+        } else {
+            connector.setProperty("maxThreads", env("MAX_THREADS", "200"));
+            logger.info("Connector runs requests on platform threads (no virtual threads in this JVM)");
+        }
+        return connector;
+    }
+
+    private static void start(Tomcat tomcat, Context context) throws LifecycleException {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            // Let the application drain while the connector still answers
+            Object drain = context.getServletContext().getAttribute(DRAIN_ATTRIBUTE);
+            if (drain instanceof Runnable runnable) {
+                runnable.run();
+            }
+            try {
+                tomcat.stop();
+                tomcat.destroy();
+            } catch (LifecycleException e) {
+                logger.warning("Failed to stop cleanly: " + e);
+            }
+        }, "launcher-shutdown"));
+        tomcat.start();
+    }
+
+    static void register(Context context, Document descriptor) {
+        Element root = descriptor.getDocumentElement();
+
+        for (Element param : children(root, "context-param")) {
+            context.addParameter(text(param, "param-name"), text(param, "param-value"));
+        }
+        for (Element listener : children(root, "listener")) {
+            context.addApplicationListener(text(listener, "listener-class"));
+        }
+
+        for (Element servlet : children(root, "servlet")) {
+            Wrapper wrapper = Tomcat.addServlet(context, text(servlet, "servlet-name"), text(servlet, "servlet-class"));
+            for (Element param : children(servlet, "init-param")) {
+                wrapper.addInitParameter(text(param, "param-name"), text(param, "param-value"));
+            }
+            String loadOnStartup = text(servlet, "load-on-startup");
+            if (loadOnStartup != null) {
+                wrapper.setLoadOnStartup(Integer.parseInt(loadOnStartup));
+            }
+            wrapper.setAsyncSupported("true".equals(text(servlet, "async-supported")));
+            for (Element multipart : children(servlet, "multipart-config")) {
+                wrapper.setMultipartConfigElement(new MultipartConfigElement("",
+                        longText(multipart, "max-file-size", -1),
+                        longText(multipart, "max-request-size", -1),
+                        (int) longText(multipart, "file-size-threshold", 0)));
+            }
+        }
+        for (Element mapping : children(root, "servlet-mapping")) {
+            String name = text(mapping, "servlet-name");
+            for (Element pattern : children(mapping, "url-pattern")) {
+                context.addServletMappingDecoded(pattern.getTextContent().trim(), name);
+            }
+        }
+
+        for (Element filter : children(root, "filter")) {
+            FilterDef def = new FilterDef();
+            def.setFilterName(text(filter, "filter-name"));
+            def.setFilterClass(text(filter, "filter-class"));
+            def.setAsyncSupported(String.valueOf("true".equals(text(filter, "async-supported"))));
+            for (Element param : children(filter, "init-param")) {
+                def.addInitParameter(text(param, "param-name"), text(param, "param-value"));
+            }
+            context.addFilterDef(def);
+        }
+        // In descriptor order, which is the order the filters run in
+        for (Element mapping : children(root, "filter-mapping")) {
+            FilterMap map = new FilterMap();
+            map.setFilterName(text(mapping, "filter-name"));
+            for (Element pattern : children(mapping, "url-pattern")) {
+                map.addURLPatternDecoded(pattern.getTextContent().trim());
+            }
+            for (Element dispatcher : children(mapping, "dispatcher")) {
+                map.setDispatcher(dispatcher.getTextContent().trim());
+            }
+            context.addFilterMap(map);
+        }
+
+        for (Element page : children(root, "error-page")) {
+            ErrorPage errorPage = new ErrorPage();
+            String code = text(page, "error-code");
+            if (code != null) {
+                errorPage.setErrorCode(code);
+            } else {
+                errorPage.setExceptionType(text(page, "exception-type"));
+            }
+            errorPage.setLocation(text(page, "location"));
+            context.addErrorPage(errorPage);
+        }
+        for (Element list : children(root, "welcome-file-list")) {
+            for (Element file : children(list, "welcome-file")) {
+                context.addWelcomeFile(file.getTextContent().trim());
+            }
+        }
+        for (Element config : children(root, "session-config")) {
+            String timeout = text(config, "session-timeout");
+            if (timeout != null) {
+                context.setSessionTimeout(Integer.parseInt(timeout));
+            }
+        }
+    }
+
+    static Document parse(Path descriptor) throws IOException, SAXException, ParserConfigurationException {
+        return parse(Files.readString(descriptor, StandardCharsets.UTF_8));
+    }
+
+    static Document parse(String xml) throws IOException, SAXException, ParserConfigurationException {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+    }
+
+    private static List<Element> children(Element parent, String name) {
+        List<Element> result = new ArrayList<>();
+        NodeList nodes = parent.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (node instanceof Element element && name.equals(element.getTagName())) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    private static String text(Element parent, String name) {
+        List<Element> matches = children(parent, name);
+        return matches.isEmpty() ? null : matches.get(0).getTextContent().trim();
+    }
+
+    private static long longText(Element parent, String name, long defaultValue) {
+        String value = text(parent, name);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+
+    private static long sinceJvmStart() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    /**
+     * Logs how long after JVM start the first request was answered.
+     */
+    private static final class FirstRequestValve extends ValveBase {
+        private final AtomicBoolean seen = new AtomicBoolean();
+
+        FirstRequestValve() {
+            super(true);
+        }
+
+        @Override
+        public void invoke(Request request, Response response) throws IOException, ServletException {
+            getNext().invoke(request, response);
+            if (!seen.get() && seen.compareAndSet(false, true)) {
+                logger.info(String.format("First request (%s) answered %d ms after JVM start",
+                        request.getRequestURI(), sinceJvmStart()));
+            }
+        }
+    }
+}
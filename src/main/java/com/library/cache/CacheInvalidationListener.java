@@ -0,0 +1,56 @@
+package com.library.cache;
+
+import com.library.dao.CacheVersionDAO;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Consumer;
+
+/**
+ * Starts the {@link InvalidationPoller} with the web application and hooks
+ * the in-process caches up to the {@link InvalidationBus}.
+ * <p>
+ * Catalog pages are built from every book, so any remote book change moves
+ * the {@link CatalogVersion}, which in turn refreshes pre-rendered pages and
+ * page validators. Remote stock changes, published separately by
+ * circulation, only move it with {@link CatalogVersion#bumpStock()}, which
+ * keeps the pre-rendered pages and the catalog snapshot. Context param {@code cacheInvalidation.pollMillis}
+ * (default 300) sets the poll interval; 0 turns polling off for single-pod
+ * deployments.
+ */
+public class CacheInvalidationListener implements ServletContextListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationListener.class);
+
+    private static final long DEFAULT_POLL_MILLIS = 300;
+
+    private final Consumer<String> catalogSubscriber = key -> CatalogVersion.bump();
+    private final Consumer<String> stockSubscriber = key -> CatalogVersion.bumpStock();
+    private InvalidationPoller poller;
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        String configured = sce.getServletContext().getInitParameter("cacheInvalidation.pollMillis");
+        long pollMillis = configured == null ? DEFAULT_POLL_MILLIS : Long.parseLong(configured.trim());
+        if (pollMillis <= 0) {
+            logger.info("Cross-replica cache invalidation disabled");
+            return;
+        }
+
+        InvalidationBus.subscribe(InvalidationBus.BOOK, catalogSubscriber);
+        InvalidationBus.subscribe(InvalidationBus.STOCK, stockSubscriber);
+        poller = new InvalidationPoller(new CacheVersionDAO(), pollMillis);
+        poller.start();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        if (poller != null) {
+            poller.shutdown();
+            InvalidationBus.unsubscribe(InvalidationBus.BOOK, catalogSubscriber);
+            InvalidationBus.unsubscribe(InvalidationBus.STOCK, stockSubscriber);
+        }
+    }
+}
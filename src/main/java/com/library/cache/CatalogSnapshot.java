@@ -0,0 +1,301 @@
+package com.library.cache;
+
+import com.library.dao.BookDAO;
+import com.library.model.Book;
+import com.library.util.DatabaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Copy of the catalog, without quantities, for browsing while the database
+ * is down.
+ * <p>
+ * It is refreshed from {@link BookDAO#visitCatalog} when the
+ * {@link CatalogVersion} moves and written to a small gzip file, which is
+ * read back on startup so a restart during an outage still has a catalog.
+ * A failed refresh keeps the previous copy.
+ */
+public class CatalogSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+    private static final int MAGIC = 0x4C43_5331; // "LCS1"
+
+    private static volatile CatalogSnapshot shared;
+
+    private static final class Contents {
+        final List<Book> books;
+        final Map<Integer, Book> byId;
+        final List<String> categories;
+        final long takenAt;
+
+        Contents(List<Book> books, long takenAt) {
+            this.books = Collections.unmodifiableList(books);
+            this.byId = new HashMap<>(books.size() * 2);
+            TreeSet<String> names = new TreeSet<>();
+            for (Book book : books) {
+                byId.put(book.getId(), book);
+                if (book.getCategory() != null) {
+                    names.add(book.getCategory());
+                }
+            }
+            this.categories = List.copyOf(names);
+            this.takenAt = takenAt;
+        }
+    }
+
+    private final BookDAO bookDAO;
+    private final Path file;
+
+    private volatile Contents contents;
+    private volatile long version = -1;
+
+    /**
+     * @param file where to keep the snapshot between restarts, or null to
+     *             keep it in memory only
+     */
+    public CatalogSnapshot(BookDAO bookDAO, Path file) {
+        this.bookDAO = bookDAO;
+        this.file = file;
+    }
+
+    /** The instance registered by {@link CatalogSnapshotListener}, or null. */
+    public static CatalogSnapshot shared() {
+        return shared;
+    }
+
+    public static void setShared(CatalogSnapshot snapshot) {
+        shared = snapshot;
+    }
+
+    /**
+     * Returns the shared snapshot when pages should be served from it: the
+     * database circuit is open and a snapshot has been taken. Null otherwise.
+     */
+    public static CatalogSnapshot ifDegraded() {
+        CatalogSnapshot snapshot = shared;
+        return snapshot != null && snapshot.contents != null && DatabaseConnection.isCircuitOpen() ? snapshot : null;
+    }
+
+    /**
+     * Reads the snapshot left on disk by a previous run, if any.
+     */
+    public void load() {
+        if (file == null) {
+            return;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            contents = read(in);
+            logger.info("Loaded catalog snapshot of {} books from {}", contents.books.size(), file);
+        } catch (NoSuchFileException e) {
+            logger.info("No catalog snapshot at {} yet", file);
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable catalog snapshot {}", file, e);
+        }
+    }
+
+    /**
+     * Takes a fresh snapshot unless the catalog has not changed since the last one.
+     *
+     * @param force query the database even if the catalog version is unchanged
+     * @return false if the database could not be read
+     */
+    public boolean refresh(boolean force) {
+        // The snapshot has no quantities, so circulation does not make it stale
+        long current = CatalogVersion.content();
+        if (!force && current == version && contents != null) {
+            return true;
+        }
+
+        List<Book> books = new ArrayList<>();
+        boolean loaded;
+        try {
+            loaded = bookDAO.visitCatalog(rs -> {
+                Book book = new Book();
+                book.setId(rs.getInt("id"));
+                book.setTitle(rs.getString("title"));
+                book.setAuthor(rs.getString("author"));
+                book.setIsbn(rs.getString("isbn"));
+                book.setCategory(rs.getString("category"));
+                book.setDescription(rs.getString("description"));
+                book.setPublisher(rs.getString("publisher"));
+                book.setPublishedYear(rs.getInt("published_year"));
+                book.setPages(rs.getInt("pages"));
+                book.setLanguage(rs.getString("language"));
+                book.setCoverImage(rs.getString("cover_image"));
+                books.add(book);
+            });
+        } catch (IOException e) {
+            // The visitor only collects rows
+            loaded = false;
+        }
+        if (!loaded) {
+            return false;
+        }
+
+        contents = new Contents(books, System.currentTimeMillis());
+        version = current;
+        writeToDisk();
+        return true;
+    }
+
+    public List<Book> all() {
+        return contents().books;
+    }
+
+    public List<Book> byCategory(String category) {
+        List<Book> books = new ArrayList<>();
+        for (Book book : contents().books) {
+            if (category.equals(book.getCategory())) {
+                books.add(book);
+            }
+        }
+        return books;
+    }
+
+    /**
+     * Same fields as {@link BookDAO#search}: title, author, category and
+     * ISBN, case-insensitively.
+     */
+    public List<Book> search(String keyword) {
+        String needle = keyword.toLowerCase(Locale.ROOT);
+        List<Book> books = new ArrayList<>();
+        for (Book book : contents().books) {
+            if (contains(book.getTitle(), needle) || contains(book.getAuthor(), needle)
+                    || contains(book.getCategory(), needle) || contains(book.getIsbn(), needle)) {
+                books.add(book);
+            }
+        }
+        return books;
+    }
+
+    public Book findById(int id) {
+        return contents().byId.get(id);
+    }
+
+    public List<String> categories() {
+        return contents().categories;
+    }
+
+    /** When the snapshot was taken, or 0 if there is none. */
+    public long getTakenAt() {
+        Contents current = contents;
+        return current == null ? 0 : current.takenAt;
+    }
+
+    private Contents contents() {
+        Contents current = contents;
+        return current == null ? new Contents(List.of(), 0) : current;
+    }
+
+    private static boolean contains(String value, String needle) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(needle);
+    }
+
+    private void writeToDisk() {
+        if (file == null) {
+            return;
+        }
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path temp = Files.createTempFile(dir, "catalog-", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                write(contents, out);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Failed to write catalog snapshot to {}", file, e);
+        }
+    }
+
+    private static void write(Contents contents, OutputStream target) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(target)));
+        out.writeInt(MAGIC);
+        out.writeLong(contents.takenAt);
+        out.writeInt(contents.books.size());
+        for (Book book : contents.books) {
+            out.writeInt(book.getId());
+            writeString(out, book.getTitle());
+            writeString(out, book.getAuthor());
+            writeString(out, book.getIsbn());
+            writeString(out, book.getCategory());
+            writeString(out, book.getDescription());
+            writeString(out, book.getPublisher());
+            out.writeInt(book.getPublishedYear());
+            out.writeInt(book.getPages());
+            writeString(out, book.getLanguage());
+            writeString(out, book.getCoverImage());
+        }
+        out.close();
+    }
+
+    private static Contents read(InputStream source) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(source)));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a catalog snapshot");
+        }
+        long takenAt = in.readLong();
+        int count = in.readInt();
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Book book = new Book();
+            book.setId(in.readInt());
+            book.setTitle(readString(in));
+            book.setAuthor(readString(in));
+            book.setIsbn(readString(in));
+            book.setCategory(readString(in));
+            book.setDescription(readString(in));
+            book.setPublisher(readString(in));
+            book.setPublishedYear(in.readInt());
+            book.setPages(in.readInt());
+            book.setLanguage(readString(in));
+            book.setCoverImage(readString(in));
+            books.add(book);
+        }
+        return new Contents(books, takenAt);
+    }
+
+    // writeUTF is capped at 64 KB, which a description may exceed; -1 stands for null
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
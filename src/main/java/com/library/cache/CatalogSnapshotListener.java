@@ -0,0 +1,89 @@
+package com.library.cache;
+
+import com.library.dao.BookDAO;
+import com.library.util.DatabaseConnection;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the shared {@link CatalogSnapshot} up to date for the degraded,
+ * read-only mode.
+ * <p>
+ * Every {@code catalogSnapshot.refreshMillis} (default 60000) the snapshot
+ * is retaken if the catalog changed. While the database circuit is open it
+ * is retaken every {@code catalogSnapshot.probeMillis} (default 2000)
+ * instead: pages are then served from the snapshot and no longer reach the
+ * database, so this is what lets the circuit breaker probe and close again.
+ * Context param {@code catalogSnapshot.file} (default
+ * {@code library-catalog.snapshot} in the temp directory) is where it is
+ * kept between restarts; empty keeps it in memory only.
+ */
+public class CatalogSnapshotListener implements ServletContextListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshotListener.class);
+
+    private static final long DEFAULT_REFRESH_MILLIS = 60_000;
+    private static final long DEFAULT_PROBE_MILLIS = 2000;
+
+    private ScheduledExecutorService executor;
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        ServletContext context = sce.getServletContext();
+        long refreshMillis = param(context, "catalogSnapshot.refreshMillis", DEFAULT_REFRESH_MILLIS);
+        long probeMillis = param(context, "catalogSnapshot.probeMillis", DEFAULT_PROBE_MILLIS);
+        String configured = context.getInitParameter("catalogSnapshot.file");
+        Path file = configured == null
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "library-catalog.snapshot")
+                : configured.isBlank() ? null : Paths.get(configured.trim());
+
+        CatalogSnapshot snapshot = new CatalogSnapshot(new BookDAO(), file);
+        snapshot.load();
+        CatalogSnapshot.setShared(snapshot);
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "catalog-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.schedule(() -> refresh(snapshot, refreshMillis, probeMillis), 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        CatalogSnapshot.setShared(null);
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void refresh(CatalogSnapshot snapshot, long refreshMillis, long probeMillis) {
+        boolean degraded = DatabaseConnection.isCircuitOpen();
+        try {
+            // While degraded every probe fails, and BookDAO already logs each one
+            if (!snapshot.refresh(degraded) && !degraded) {
+                logger.warn("Catalog snapshot not refreshed, keeping the one taken at {}", snapshot.getTakenAt());
+            }
+        } catch (RuntimeException e) {
+            logger.error("Catalog snapshot refresh failed", e);
+        }
+        if (!executor.isShutdown()) {
+            long delay = DatabaseConnection.isCircuitOpen() ? probeMillis : refreshMillis;
+            executor.schedule(() -> refresh(snapshot, refreshMillis, probeMillis), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static long param(ServletContext context, String name, long defaultValue) {
+        String configured = context.getInitParameter(name);
+        return configured == null || configured.isBlank() ? defaultValue : Long.parseLong(configured.trim());
+    }
+}
@@ -0,0 +1,89 @@
+package com.library.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counter for everything shown on catalog pages.
+ * <p>
+ * {@link com.library.dao.BookDAO} bumps it after every successful write, and
+ * pages derive their validators from it, so an unchanged version means an
+ * unchanged page. The counter starts at the boot time so versions handed out
+ * by a previous process are never reused.
+ * <p>
+ * Borrowing and returning only move available quantities, which open pages
+ * keep current from the availability stream. Those changes move the version
+ * but not the {@link #content() content version}, so what is cached by
+ * content, like the pre-rendered pages, survives circulation.
+ */
+public final class CatalogVersion {
+
+    private static final AtomicLong VERSION = new AtomicLong(System.currentTimeMillis());
+    private static final AtomicLong CONTENT = new AtomicLong(VERSION.get());
+    private static final AtomicLong CONTENT_CHANGED_AT = new AtomicLong();
+    private static final AtomicLong LAST_MODIFIED = new AtomicLong(truncateToSeconds(System.currentTimeMillis()));
+    private static final List<Runnable> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private CatalogVersion() {
+    }
+
+    public static long current() {
+        return VERSION.get();
+    }
+
+    /** The version of the last change to anything but available quantities. */
+    public static long content() {
+        return CONTENT.get();
+    }
+
+    /** When {@link #content()} last moved, in milliseconds; 0 if not since boot. */
+    public static long contentChangedAt() {
+        return CONTENT_CHANGED_AT.get();
+    }
+
+    /**
+     * Time of the last change, in whole seconds as HTTP dates are. It moves
+     * forward by at least one second per change, so two changes within the
+     * same second still produce different Last-Modified values.
+     */
+    public static long lastModified() {
+        return LAST_MODIFIED.get();
+    }
+
+    public static void bump() {
+        long version = advance();
+        CONTENT.accumulateAndGet(version, Math::max);
+        CONTENT_CHANGED_AT.set(System.currentTimeMillis());
+        for (Runnable listener : LISTENERS) {
+            listener.run();
+        }
+    }
+
+    /** Records a change of available quantities and nothing else. */
+    public static void bumpStock() {
+        advance();
+    }
+
+    private static long advance() {
+        long now = truncateToSeconds(System.currentTimeMillis());
+        LAST_MODIFIED.updateAndGet(previous -> Math.max(now, previous + 1000));
+        return VERSION.incrementAndGet();
+    }
+
+    /**
+     * Registers a callback run on the writing thread after each content
+     * change, so it must only schedule work, never do it.
+     */
+    public static void addListener(Runnable listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(Runnable listener) {
+        LISTENERS.remove(listener);
+    }
+
+    private static long truncateToSeconds(long millis) {
+        return millis - millis % 1000;
+    }
+}
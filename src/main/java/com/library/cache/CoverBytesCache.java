@@ -0,0 +1,56 @@
+package com.library.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small LRU cache for the bytes of frequently served cover thumbnails.
+ * <p>
+ * Bounded by total size rather than entry count. Entries never need
+ * invalidation because cover file names are derived from their content.
+ */
+public class CoverBytesCache {
+
+    private final long maxBytes;
+    private final int maxEntryBytes;
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long currentBytes;
+
+    public CoverBytesCache(long maxBytes, int maxEntryBytes) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    public synchronized byte[] get(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * @return true when the file is small enough to be worth caching
+     */
+    public boolean accepts(long size) {
+        return size <= maxEntryBytes;
+    }
+
+    public synchronized void put(String name, byte[] bytes) {
+        if (!accepts(bytes.length)) {
+            return;
+        }
+        byte[] previous = entries.put(name, bytes);
+        if (previous != null) {
+            currentBytes -= previous.length;
+        }
+        currentBytes += bytes.length;
+
+        Iterator<Map.Entry<String, byte[]>> eldest = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            currentBytes -= eldest.next().getValue().length;
+            eldest.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
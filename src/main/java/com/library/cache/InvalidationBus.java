@@ -0,0 +1,104 @@
+package com.library.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Fans out cache invalidations that originate on other replicas.
+ * <p>
+ * Writers bump the entity type's row in {@code cache_versions} as part of
+ * their transaction, or in a short one right after it for circulation's
+ * stock changes, and mark the version they got as local before committing;
+ * their own caches are already handled locally. The
+ * {@link InvalidationPoller} notices version changes made by other
+ * replicas and publishes the affected key here, or {@link #ALL_KEYS} when it
+ * cannot tell which keys changed.
+ */
+public final class InvalidationBus {
+
+    public static final String BOOK = "book";
+    /** A book's available quantity, keyed by book id; its other fields are unchanged. */
+    public static final String STOCK = "stock";
+    public static final String USER = "user";
+
+    /** Published instead of a key when every cached entry of the type is stale. */
+    public static final String ALL_KEYS = "*";
+
+    private static final Map<String, List<Consumer<String>>> SUBSCRIBERS = new ConcurrentHashMap<>();
+    // Versions written by this replica that the poller has not passed yet
+    private static final Map<String, ConcurrentSkipListSet<Long>> LOCAL_VERSIONS = new ConcurrentHashMap<>();
+
+    private InvalidationBus() {
+    }
+
+    /**
+     * Registers a callback for remote changes of an entity type. It runs on
+     * the poller thread and receives the changed key or {@link #ALL_KEYS}.
+     */
+    public static void subscribe(String entityType, Consumer<String> subscriber) {
+        SUBSCRIBERS.computeIfAbsent(entityType, type -> new CopyOnWriteArrayList<>()).add(subscriber);
+    }
+
+    public static void unsubscribe(String entityType, Consumer<String> subscriber) {
+        List<Consumer<String>> subscribers = SUBSCRIBERS.get(entityType);
+        if (subscribers != null) {
+            subscribers.remove(subscriber);
+        }
+    }
+
+    /**
+     * Marks a version as written by this replica. Call it while the
+     * transaction that bumped the version still holds the row lock, i.e.
+     * before commit, so the poller can never see the version unmarked.
+     */
+    public static void markLocal(String entityType, long version) {
+        LOCAL_VERSIONS.computeIfAbsent(entityType, type -> new ConcurrentSkipListSet<>()).add(version);
+    }
+
+    /**
+     * Withdraws a mark before the transaction rolls back, while the version
+     * number cannot yet be taken by another replica.
+     */
+    public static void unmarkLocal(String entityType, long version) {
+        ConcurrentSkipListSet<Long> versions = LOCAL_VERSIONS.get(entityType);
+        if (versions != null) {
+            versions.remove(version);
+        }
+    }
+
+    /**
+     * Forgets the local versions up to {@code version} and returns how many
+     * of them were newer than {@code previous}.
+     */
+    static long claimLocal(String entityType, long previous, long version) {
+        ConcurrentSkipListSet<Long> versions = LOCAL_VERSIONS.get(entityType);
+        if (versions == null) {
+            return 0;
+        }
+        long claimed = 0;
+        Long next;
+        while ((next = versions.pollFirst()) != null) {
+            if (next > version) {
+                versions.add(next);
+                break;
+            }
+            if (next > previous) {
+                claimed++;
+            }
+        }
+        return claimed;
+    }
+
+    static void publish(String entityType, String key) {
+        List<Consumer<String>> subscribers = SUBSCRIBERS.get(entityType);
+        if (subscribers != null) {
+            for (Consumer<String> subscriber : subscribers) {
+                subscriber.accept(key);
+            }
+        }
+    }
+}
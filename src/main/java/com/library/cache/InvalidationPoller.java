@@ -0,0 +1,108 @@
+package com.library.cache;
+
+import com.library.dao.CacheVersionDAO;
+import com.library.metrics.Metrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls {@code cache_versions} every few hundred milliseconds and publishes
+ * changes made by other replicas on the {@link InvalidationBus}.
+ * <p>
+ * The first poll only records the current versions. Afterwards a version
+ * that moved by exactly one remote change publishes that change's key, a
+ * larger jump publishes {@link InvalidationBus#ALL_KEYS}, and changes this
+ * replica made itself are skipped.
+ */
+public class InvalidationPoller {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvalidationPoller.class);
+
+    private final CacheVersionDAO cacheVersionDAO;
+    private final long intervalMillis;
+    private final Map<String, Long> seen = new HashMap<>();
+    private final ScheduledExecutorService executor;
+
+    private final MeterRegistry registry;
+    private final Timer pollTimer;
+    private final Counter pollFailures;
+    private final DistributionSummary lag;
+
+    public InvalidationPoller(CacheVersionDAO cacheVersionDAO, long intervalMillis) {
+        this.cacheVersionDAO = cacheVersionDAO;
+        this.intervalMillis = intervalMillis;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cache-invalidation-poller");
+            t.setDaemon(true);
+            return t;
+        });
+
+        registry = Metrics.registry();
+        pollTimer = Timer.builder("cache_invalidation_poll")
+                .description("Time spent reading cache_versions")
+                .register(registry);
+        pollFailures = Counter.builder("cache_invalidation_poll_failures")
+                .description("Polls of cache_versions that failed")
+                .register(registry);
+        lag = DistributionSummary.builder("cache_invalidation_lag_ms")
+                .description("Time from a remote change being committed to this replica noticing it")
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    public void start() {
+        executor.scheduleWithFixedDelay(this::pollQuietly, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Polling cache_versions every {} ms", intervalMillis);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        cacheVersionDAO.close();
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (RuntimeException | IOException e) {
+            // Never let an exception cancel the schedule
+            pollFailures.increment();
+            logger.warn("Cache invalidation poll failed", e);
+        }
+    }
+
+    void poll() throws IOException {
+        long start = System.nanoTime();
+        boolean ok = cacheVersionDAO.visitVersions(rs -> {
+            String type = rs.getString("entity_type");
+            long version = rs.getLong("version");
+            Long previous = seen.put(type, version);
+            if (previous == null || version <= previous) {
+                return;
+            }
+            long changes = version - previous;
+            long remote = changes - InvalidationBus.claimLocal(type, previous, version);
+            if (remote == 0) {
+                return;
+            }
+            String key = changes == 1 ? rs.getString("last_key") : null;
+            lag.record(Math.max(0, rs.getLong("age_ms")));
+            registry.counter("cache_invalidations", "type", type, "scope", key == null ? "all" : "key").increment();
+            InvalidationBus.publish(type, key == null ? InvalidationBus.ALL_KEYS : key);
+        });
+        pollTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!ok) {
+            pollFailures.increment();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.library.cache;
+
+import com.library.dao.BookDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip-compressed snapshots of the anonymous catalog pages: the default
+ * {@code /books} page and one page per category.
+ * <p>
+ * Pages are kept from the responses of ordinary anonymous requests, so they
+ * are byte-for-byte what the servlet and JSP produce, rendered in-process
+ * whatever the scheme, port or proxy in front. Each page remembers the
+ * {@linkplain CatalogVersion#content() content version} it was rendered at
+ * and is only served while that version is current; borrowing and returning
+ * do not make it stale, since availability.js corrects the quantities.
+ * After a change, the next request for each page renders it again, once the
+ * catalog has been quiet for a moment, so a burst of admin edits costs one
+ * render per page rather than one per edit.
+ */
+public class PrerenderedCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrerenderedCatalog.class);
+
+    /** Key of the default, unfiltered catalog page. */
+    public static final String DEFAULT_KEY = "";
+
+    /**
+     * Request attribute set by the servlet when the page it rendered must not
+     * be kept, such as one missing books because a query failed.
+     */
+    public static final String DO_NOT_KEEP = PrerenderedCatalog.class.getName() + ".doNotKeep";
+
+    private static final long REGENERATE_DELAY_MS = 250;
+
+    public static final class Page {
+        private final long version;
+        private final byte[] gzip;
+
+        Page(long version, byte[] gzip) {
+            this.version = version;
+            this.gzip = gzip;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public byte[] getGzip() {
+            return gzip;
+        }
+    }
+
+    /** A claim to render one page, from {@link #startRender}. */
+    public static final class Render {
+        private final String key;
+        private final long version;
+
+        Render(String key, long version) {
+            this.key = key;
+            this.version = version;
+        }
+    }
+
+    private final BookDAO bookDAO;
+    private final Path diskDirectory;
+    private final Map<String, Page> pages = new ConcurrentHashMap<>();
+    private final Map<String, Render> rendering = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    private final Runnable catalogListener = this::scheduleRefresh;
+
+    private volatile Set<String> categories = Set.of();
+
+    /**
+     * @param diskDirectory where to also write the pages as {@code .html.gz}
+     *                      files, or null to keep them in memory only
+     */
+    public PrerenderedCatalog(BookDAO bookDAO, Path diskDirectory) {
+        this.bookDAO = bookDAO;
+        this.diskDirectory = diskDirectory;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "catalog-prerender");
+            t.setDaemon(true);
+            return t;
+        });
+        CatalogVersion.addListener(catalogListener);
+        scheduleRefresh();
+    }
+
+    /**
+     * Returns the page for the key if it was rendered at the current content version.
+     */
+    public Page get(String key) {
+        Page page = pages.get(key);
+        return page != null && page.version == CatalogVersion.content() ? page : null;
+    }
+
+    public boolean isKnownCategory(String category) {
+        return categories.contains(category);
+    }
+
+    /**
+     * Claims the rendering of a page that is missing or stale. Returns null
+     * if another request is already rendering it or the catalog changed too
+     * recently; the caller then just serves its own request.
+     */
+    public Render startRender(String key) {
+        if (System.currentTimeMillis() - CatalogVersion.contentChangedAt() < REGENERATE_DELAY_MS) {
+            return null;
+        }
+        Render render = new Render(key, CatalogVersion.content());
+        return rendering.putIfAbsent(key, render) == null ? render : null;
+    }
+
+    /**
+     * Keeps the rendered page and releases the claim. The page is dropped if
+     * the catalog changed while it was rendered.
+     *
+     * @param html the page, or null if the response was not a page to keep
+     */
+    public void finishRender(Render render, byte[] html) {
+        rendering.remove(render.key, render);
+        if (html == null || render.version != CatalogVersion.content()) {
+            return;
+        }
+        try {
+            executor.execute(() -> keep(render, html));
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    private void keep(Render render, byte[] html) {
+        try {
+            byte[] gzip = gzip(html);
+            pages.put(render.key, new Page(render.version, gzip));
+            writeToDisk(render.key, gzip);
+            logger.debug("Pre-rendered catalog page '{}' at version {}", render.key, render.version);
+        } catch (IOException e) {
+            logger.warn("Failed to pre-render catalog page '{}'", render.key, e);
+        }
+    }
+
+    private void scheduleRefresh() {
+        if (refreshScheduled.compareAndSet(false, true)) {
+            // A short delay folds a burst of admin edits into one query
+            executor.schedule(this::refreshCategories, REGENERATE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void refreshCategories() {
+        refreshScheduled.set(false);
+        List<String> current = bookDAO.getAllCategories();
+        categories = Set.copyOf(current);
+        pages.keySet().retainAll(keysFor(current));
+    }
+
+    private Set<String> keysFor(List<String> categoryNames) {
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(DEFAULT_KEY);
+        keys.addAll(categoryNames);
+        return keys;
+    }
+
+    private static byte[] gzip(byte[] html) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(html.length / 4);
+        try (OutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(html);
+        }
+        return out.toByteArray();
+    }
+
+    private void writeToDisk(String key, byte[] gzip) {
+        if (diskDirectory == null) {
+            return;
+        }
+        String name = DEFAULT_KEY.equals(key)
+                ? "books.html.gz"
+                : "books-category-" + URLEncoder.encode(key, StandardCharsets.UTF_8) + ".html.gz";
+        try {
+            Files.createDirectories(diskDirectory);
+            Path temp = Files.createTempFile(diskDirectory, "page-", ".tmp");
+            Files.write(temp, gzip);
+            Files.move(temp, diskDirectory.resolve(name), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Failed to write pre-rendered page {} to disk", name, e);
+        }
+    }
+
+    public void shutdown() {
+        CatalogVersion.removeListener(catalogListener);
+        executor.shutdownNow();
+    }
+}
@@ -1,10 +1,15 @@
 package com.library.dao;
 
+import com.library.cache.CatalogVersion;
+import com.library.cache.InvalidationBus;
 import com.library.model.Book;
 import com.library.util.DatabaseConnection;
 
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,7 +30,7 @@ public class BookDAO {
         List<Book> books = new ArrayList<>();
         String sql = SELECT + BOOK_COLUMNS + " FROM books ORDER BY title";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -39,9 +44,23 @@ public class BookDAO {
         return books;
     }
 
+    /**
+     * Same rows as {@link #findAll()}, streamed from the database one at a
+     * time for pages that render while reading. The caller must close the cursor.
+     */
+    public RowCursor<Book> cursorAll() {
+        String sql = SELECT + BOOK_COLUMNS + " FROM books ORDER BY title";
+        try {
+            return RowCursor.open(DatabaseConnection.getReadConnection(), sql, this::extractBookFromResultSet);
+        } catch (SQLException e) {
+            logger.error("Failed to open cursor over all books", e);
+            return RowCursor.empty();
+        }
+    }
+
     public Book findById(int id) {
         String sql = SELECT + BOOK_COLUMNS + " FROM books WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, id);
@@ -60,7 +79,7 @@ public class BookDAO {
         List<Book> books = new ArrayList<>();
         String sql = SELECT + BOOK_COLUMNS + " FROM books WHERE title LIKE ? OR author LIKE ? OR category LIKE ? OR isbn LIKE ? ORDER BY title";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             String searchPattern = "%" + keyword + "%";
@@ -85,7 +104,7 @@ public class BookDAO {
         List<Book> books = new ArrayList<>();
         String sql = SELECT + BOOK_COLUMNS + " FROM books WHERE category = ? ORDER BY title";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, category);
@@ -104,7 +123,7 @@ public class BookDAO {
         List<String> categories = new ArrayList<>();
         String sql = "SELECT DISTINCT category FROM books ORDER BY category";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
@@ -121,72 +140,98 @@ public class BookDAO {
     public boolean create(Book book) {
         String sql = "INSERT INTO books (title, author, isbn, category, description, publisher, published_year, pages, language, quantity, available_quantity, cover_image) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            stmt.setString(1, book.getTitle());
-            stmt.setString(2, book.getAuthor());
-            stmt.setString(3, book.getIsbn());
-            stmt.setString(4, book.getCategory());
-            stmt.setString(5, book.getDescription());
-            stmt.setString(6, book.getPublisher());
-            stmt.setInt(7, book.getPublishedYear());
-            stmt.setInt(8, book.getPages());
-            stmt.setString(9, book.getLanguage());
-            stmt.setInt(10, book.getQuantity());
-            stmt.setInt(11, book.getAvailableQuantity());
-            stmt.setString(12, book.getCoverImage());
-            
-            int affectedRows = stmt.executeUpdate();
-            
-            if (affectedRows > 0) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            long cacheVersion = -1;
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setString(1, book.getTitle());
+                stmt.setString(2, book.getAuthor());
+                stmt.setString(3, book.getIsbn());
+                stmt.setString(4, book.getCategory());
+                stmt.setString(5, book.getDescription());
+                stmt.setString(6, book.getPublisher());
+                stmt.setInt(7, book.getPublishedYear());
+                stmt.setInt(8, book.getPages());
+                stmt.setString(9, book.getLanguage());
+                stmt.setInt(10, book.getQuantity());
+                stmt.setInt(11, book.getAvailableQuantity());
+                stmt.setString(12, book.getCoverImage());
+
+                if (stmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    return false;
+                }
                 ResultSet generatedKeys = stmt.getGeneratedKeys();
                 if (generatedKeys.next()) {
                     book.setId(generatedKeys.getInt(1));
                 }
-                return true;
+                cacheVersion = recordChange(conn, book.getId(), CatalogChangeDAO.UPSERT);
+                conn.commit();
+            } catch (SQLException e) {
+                rollback(conn, InvalidationBus.BOOK, cacheVersion);
+                throw e;
             }
+            CatalogVersion.bump();
+            return true;
         } catch (SQLException e) {
             logger.error("Failed to create book: {}", book.getTitle(), e);
             return false;
         }
-        return false;
     }
     
     public boolean update(Book book) {
         String sql = "UPDATE books SET title = ?, author = ?, isbn = ?, category = ?, description = ?, publisher = ?, published_year = ?, pages = ?, language = ?, quantity = ?, available_quantity = ?, cover_image = ? WHERE id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, book.getTitle());
-            stmt.setString(2, book.getAuthor());
-            stmt.setString(3, book.getIsbn());
-            stmt.setString(4, book.getCategory());
-            stmt.setString(5, book.getDescription());
-            stmt.setString(6, book.getPublisher());
-            stmt.setInt(7, book.getPublishedYear());
-            stmt.setInt(8, book.getPages());
-            stmt.setString(9, book.getLanguage());
-            stmt.setInt(10, book.getQuantity());
-            stmt.setInt(11, book.getAvailableQuantity());
-            stmt.setString(12, book.getCoverImage());
-            stmt.setInt(13, book.getId());
-            
-            return stmt.executeUpdate() > 0;
+        try {
+            return writeAndRecord(book.getId(), CatalogChangeDAO.UPSERT, false, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, book.getTitle());
+                    stmt.setString(2, book.getAuthor());
+                    stmt.setString(3, book.getIsbn());
+                    stmt.setString(4, book.getCategory());
+                    stmt.setString(5, book.getDescription());
+                    stmt.setString(6, book.getPublisher());
+                    stmt.setInt(7, book.getPublishedYear());
+                    stmt.setInt(8, book.getPages());
+                    stmt.setString(9, book.getLanguage());
+                    stmt.setInt(10, book.getQuantity());
+                    stmt.setInt(11, book.getAvailableQuantity());
+                    stmt.setString(12, book.getCoverImage());
+                    stmt.setInt(13, book.getId());
+                    return stmt.executeUpdate();
+                }
+            });
         } catch (SQLException e) {
             logger.error("Failed to update book ID: {}", book.getId(), e);
             return false;
         }
     }
     
+    /**
+     * Replaces the cover only while it is still {@code expectedCoverImage}, so
+     * a late background update does not undo a newer edit. Returns false when
+     * the cover has changed in the meantime.
+     */
+    public boolean updateCoverImage(int bookId, String expectedCoverImage, String coverImage) {
+        String sql = "UPDATE books SET cover_image = ? WHERE id = ? AND cover_image = ?";
+        try {
+            return writeAndRecord(bookId, CatalogChangeDAO.UPSERT, false, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, coverImage);
+                    stmt.setInt(2, bookId);
+                    stmt.setString(3, expectedCoverImage);
+                    return stmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            logger.error("Failed to update cover image of book ID: {}", bookId, e);
+            return false;
+        }
+    }
+    
     public boolean delete(int id) {
-        String sql = "DELETE FROM books WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, id);
-            return stmt.executeUpdate() > 0;
+        try {
+            return writeAndRecord(id, CatalogChangeDAO.DELETE, false, conn -> updateById(conn, "DELETE FROM books WHERE id = ?", id));
         } catch (SQLException e) {
             logger.error("Failed to delete book ID: {}", id, e);
             return false;
@@ -195,11 +240,8 @@ public class BookDAO {
     
     public boolean decreaseAvailableQuantity(int bookId) {
         String sql = "UPDATE books SET available_quantity = available_quantity - 1 WHERE id = ? AND available_quantity > 0";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, bookId);
-            return stmt.executeUpdate() > 0;
+        try {
+            return writeAndRecord(bookId, CatalogChangeDAO.UPSERT, true, conn -> updateById(conn, sql, bookId));
         } catch (SQLException e) {
             logger.error("Failed to decrease available quantity of book ID: {}", bookId, e);
             return false;
@@ -208,20 +250,141 @@ public class BookDAO {
     
     public boolean increaseAvailableQuantity(int bookId) {
         String sql = "UPDATE books SET available_quantity = available_quantity + 1 WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, bookId);
-            return stmt.executeUpdate() > 0;
+        try {
+            return writeAndRecord(bookId, CatalogChangeDAO.UPSERT, true, conn -> updateById(conn, sql, bookId));
         } catch (SQLException e) {
             logger.error("Failed to increase available quantity of book ID: {}", bookId, e);
             return false;
         }
     }
+
+    @FunctionalInterface
+    private interface BookWrite {
+        int execute(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Runs a write and its change records in one transaction, so the change
+     * log and the cache versions never disagree with the books table.
+     *
+     * @param stockOnly the write only moves the available quantity
+     */
+    private boolean writeAndRecord(int bookId, String changeType, boolean stockOnly, BookWrite write) throws SQLException {
+        int affectedRows;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            long cacheVersion = -1;
+            try {
+                affectedRows = write.execute(conn);
+                if (affectedRows > 0 && stockOnly) {
+                    CatalogChangeDAO.record(conn, bookId, changeType);
+                } else if (affectedRows > 0) {
+                    cacheVersion = recordChange(conn, bookId, changeType);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                rollback(conn, InvalidationBus.BOOK, cacheVersion);
+                throw e;
+            }
+        }
+        if (affectedRows > 0 && stockOnly) {
+            stockChanged(bookId);
+            return true;
+        }
+        return bumpIfChanged(affectedRows);
+    }
+
+    /**
+     * Appends the change to catalog_changes for delta sync and bumps the book
+     * cache version for other replicas. Returns the cache version, already
+     * marked as this replica's own.
+     */
+    private static long recordChange(Connection conn, int bookId, String changeType) throws SQLException {
+        CatalogChangeDAO.record(conn, bookId, changeType);
+        long cacheVersion = CacheVersionDAO.bump(conn, InvalidationBus.BOOK, String.valueOf(bookId));
+        if (cacheVersion > 0) {
+            InvalidationBus.markLocal(InvalidationBus.BOOK, cacheVersion);
+        }
+        return cacheVersion;
+    }
+
+    /**
+     * Puts a copy back on the shelf on the caller's connection, inside its
+     * transaction. Call {@link #stockChanged} once it has committed.
+     */
+    static boolean shelveCopy(Connection conn, int bookId) throws SQLException {
+        String sql = "UPDATE books SET available_quantity = available_quantity + 1 WHERE id = ?";
+        return recordStockChange(conn, bookId, updateById(conn, sql, bookId));
+    }
+
+    /**
+     * Takes a copy off the shelf on the caller's connection, inside its
+     * transaction. Call {@link #stockChanged} once it has committed.
+     *
+     * @return false if no copy was on the shelf
+     */
+    static boolean unshelveCopy(Connection conn, int bookId) throws SQLException {
+        String sql = "UPDATE books SET available_quantity = available_quantity - 1 WHERE id = ? AND available_quantity > 0";
+        return recordStockChange(conn, bookId, updateById(conn, sql, bookId));
+    }
+
+    private static boolean recordStockChange(Connection conn, int bookId, int affectedRows) throws SQLException {
+        if (affectedRows == 0) {
+            return false;
+        }
+        CatalogChangeDAO.record(conn, bookId, CatalogChangeDAO.UPSERT);
+        return true;
+    }
+
+    /**
+     * Publishes a committed change of a book's available quantity: bumps the
+     * stock cache version for other replicas in a transaction of its own and
+     * moves the local catalog version. Stock has a version of its own so that
+     * other replicas keep the pages that do not show it.
+     * <p>
+     * Borrowing and returning do not bump the version inside their own
+     * transaction, which would hold the single book row of
+     * {@code cache_versions} locked until they commit and serialize all
+     * circulation behind it. A failure here only delays other replicas'
+     * availability badges until the next change of the book.
+     */
+    static void stockChanged(int bookId) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            long cacheVersion = -1;
+            try {
+                cacheVersion = CacheVersionDAO.bump(conn, InvalidationBus.STOCK, String.valueOf(bookId));
+                if (cacheVersion > 0) {
+                    InvalidationBus.markLocal(InvalidationBus.STOCK, cacheVersion);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                rollback(conn, InvalidationBus.STOCK, cacheVersion);
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.warn("Failed to publish the stock change of book ID {} to other replicas", bookId, e);
+        }
+        CatalogVersion.bumpStock();
+    }
+
+    private static void rollback(Connection conn, String entityType, long cacheVersion) throws SQLException {
+        if (cacheVersion > 0) {
+            InvalidationBus.unmarkLocal(entityType, cacheVersion);
+        }
+        conn.rollback();
+    }
+
+    private static int updateById(Connection conn, String sql, int id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, id);
+            return stmt.executeUpdate();
+        }
+    }
     
     public int getTotalBooks() {
         String sql = "SELECT COUNT(*) FROM books";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
@@ -236,7 +399,7 @@ public class BookDAO {
     
     public int getAvailableBooks() {
         String sql = "SELECT COUNT(*) FROM books WHERE available_quantity > 0";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
@@ -249,6 +412,118 @@ public class BookDAO {
         return 0;
     }
     
+    /**
+     * Returns a lightweight copy of the book holding only what page validators
+     * need: id, quantities and last update time.
+     */
+    public Book findStampById(int id) {
+        String sql = "SELECT id, quantity, available_quantity, updated_at FROM books WHERE id = ?";
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    Book book = new Book();
+                    book.setId(rs.getInt("id"));
+                    book.setQuantity(rs.getInt("quantity"));
+                    book.setAvailableQuantity(rs.getInt("available_quantity"));
+                    book.setUpdatedAt(rs.getTimestamp("updated_at"));
+                    return book;
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to load stamp of book ID: {}", id, e);
+        }
+        return null;
+    }
+
+    /**
+     * Visits up to {@code limit} books with an id greater than {@code afterId},
+     * in id order, optionally restricted to a category. Rows carry the list
+     * columns only: id, title, author, isbn, category, cover_image, quantity
+     * and available_quantity.
+     *
+     * @return false if the query failed
+     */
+    public boolean visitPage(int afterId, String category, int limit, RowVisitor visitor) throws IOException {
+        String sql = "SELECT id, title, author, isbn, category, cover_image, quantity, available_quantity FROM books WHERE id > ?"
+                + (category == null ? "" : " AND category = ?") + " ORDER BY id LIMIT ?";
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            stmt.setInt(index++, afterId);
+            if (category != null) {
+                stmt.setString(index++, category);
+            }
+            stmt.setInt(index, limit);
+            return visitRows(stmt, visitor);
+        } catch (SQLException e) {
+            logger.error("Failed to load book page after ID: {}", afterId, e);
+            return false;
+        }
+    }
+
+    /**
+     * Visits every book in title order with its descriptive columns only:
+     * id, title, author, isbn, category, description, publisher,
+     * published_year, pages, language and cover_image.
+     *
+     * @return false if the query failed
+     */
+    public boolean visitCatalog(RowVisitor visitor) throws IOException {
+        String sql = "SELECT id, title, author, isbn, category, description, publisher, published_year, pages, language, cover_image FROM books ORDER BY title";
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            return visitRows(stmt, visitor);
+        } catch (SQLException e) {
+            logger.error("Failed to load the catalog", e);
+            return false;
+        }
+    }
+
+    /**
+     * Visits id, quantity and available_quantity of the given books. Unknown
+     * ids are skipped.
+     *
+     * @return false if the query failed
+     */
+    public boolean visitAvailability(Collection<Integer> ids, RowVisitor visitor) throws IOException {
+        if (ids.isEmpty()) {
+            return true;
+        }
+        String sql = "SELECT id, quantity, available_quantity FROM books WHERE id IN ("
+                + String.join(", ", Collections.nCopies(ids.size(), "?")) + ") ORDER BY id";
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (Integer id : ids) {
+                stmt.setInt(index++, id);
+            }
+            return visitRows(stmt, visitor);
+        } catch (SQLException e) {
+            logger.error("Failed to load availability of {} books", ids.size(), e);
+            return false;
+        }
+    }
+
+    private boolean visitRows(PreparedStatement stmt, RowVisitor visitor) throws SQLException, IOException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                visitor.visit(rs);
+            }
+        }
+        return true;
+    }
+
+    private boolean bumpIfChanged(int affectedRows) {
+        if (affectedRows > 0) {
+            CatalogVersion.bump();
+            return true;
+        }
+        return false;
+    }
+    
     private Book extractBookFromResultSet(ResultSet rs) throws SQLException {
         Book book = new Book();
         book.setId(rs.getInt("id"));
@@ -14,11 +14,79 @@ public class BorrowingDAO {
 
     private static final Logger logger = LoggerFactory.getLogger(BorrowingDAO.class);
 
+    /** {@link #returnOpenBorrowing} failed, but may succeed later. */
+    public static final int REPLAY_RETRY = -1;
+    /** {@link #returnOpenBorrowing} was rejected and will be every time. */
+    public static final int REPLAY_FAILED = -2;
+
     public boolean create(Borrowing borrowing) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return insert(conn, borrowing);
+        } catch (SQLException e) {
+            logger.error("Failed to create borrowing for user {} and book {}", borrowing.getUserId(), borrowing.getBookId(), e);
+        }
+        return false;
+    }
+
+    /**
+     * Creates the borrowing and takes a copy off the shelf, in one
+     * transaction, so a crash or a shutdown between the two never leaves a
+     * borrowing without its copy or a copy gone without a borrowing.
+     *
+     * @return false if no copy was on the shelf or the borrow failed
+     */
+    public boolean borrow(Borrowing borrowing) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                if (!BookDAO.unshelveCopy(conn, borrowing.getBookId()) || !insert(conn, borrowing)) {
+                    conn.rollback();
+                    return false;
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to borrow book {} for user {}", borrowing.getBookId(), borrowing.getUserId(), e);
+            return false;
+        }
+        // Once the connection is closed, so publishing does not hold two write permits
+        BookDAO.stockChanged(borrowing.getBookId());
+        return true;
+    }
+
+    /**
+     * Creates the borrowing of a copy set aside for the user's READY hold and
+     * closes the hold, in one transaction. The copy is already off the shelf,
+     * so the book's stock does not change.
+     */
+    public boolean createFromHold(Borrowing borrowing, int holdId) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                if (!HoldDAO.fulfil(conn, holdId, borrowing.getUserId(), borrowing.getBookId())
+                        || !insert(conn, borrowing)) {
+                    conn.rollback();
+                    return false;
+                }
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to borrow book {} from hold ID {}", borrowing.getBookId(), holdId, e);
+            return false;
+        }
+    }
+
+    private static boolean insert(Connection conn, Borrowing borrowing) throws SQLException {
         String sql = "INSERT INTO borrowings (user_id, book_id, borrow_date, due_date, status, notes) VALUES (?, ?, ?, ?, ?, ?)";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             stmt.setInt(1, borrowing.getUserId());
             stmt.setInt(2, borrowing.getBookId());
@@ -36,8 +104,6 @@ public class BorrowingDAO {
                 }
                 return true;
             }
-        } catch (SQLException e) {
-            logger.error("Failed to create borrowing for user {} and book {}", borrowing.getUserId(), borrowing.getBookId(), e);
         }
         return false;
     }
@@ -52,7 +118,7 @@ public class BorrowingDAO {
                 ORDER BY b.borrow_date DESC
                 """;
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, userId);
@@ -80,7 +146,7 @@ public class BorrowingDAO {
                 ORDER BY b.borrow_date DESC
                 """;
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -98,6 +164,30 @@ public class BorrowingDAO {
         return borrowings;
     }
 
+    /**
+     * Same rows as {@link #findAll()}, streamed from the database one at a
+     * time. The caller must close the cursor.
+     */
+    public RowCursor<Borrowing> cursorAll() {
+        String sql = """
+                SELECT b.*, u.full_name AS user_name, bk.title AS book_title, bk.author AS book_author
+                FROM borrowings b
+                JOIN users u ON b.user_id = u.id
+                JOIN books bk ON b.book_id = bk.id
+                ORDER BY b.borrow_date DESC
+                """;
+        try {
+            return RowCursor.open(DatabaseConnection.getReadConnection(), sql, rs -> {
+                Borrowing borrowing = extractBorrowingFromResultSet(rs);
+                borrowing.setUserName(rs.getString("user_name"));
+                return borrowing;
+            });
+        } catch (SQLException e) {
+            logger.error("Failed to open cursor over all borrowings", e);
+            return RowCursor.empty();
+        }
+    }
+
     public Borrowing findById(int id) {
         String sql = """
                 SELECT b.*, u.full_name AS user_name, bk.title AS book_title, bk.author AS book_author
@@ -107,7 +197,7 @@ public class BorrowingDAO {
                 WHERE b.id = ?
                 """;
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, id);
@@ -127,27 +217,98 @@ public class BorrowingDAO {
         return null;
     }
 
-    public boolean returnBook(int borrowingId, Date returnDate) {
-        String sql = "UPDATE borrowings SET return_date = ?, status = 'RETURNED' WHERE id = ?";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setDate(1, returnDate);
-            stmt.setInt(2, borrowingId);
-
-            return stmt.executeUpdate() > 0;
-
+    /**
+     * Closes the borrowing and hands the copy on, in one transaction: to the
+     * next hold in the book's queue if anyone is waiting, otherwise back to
+     * the shelf.
+     *
+     * @return false if the borrowing was not open or the return failed
+     */
+    public boolean returnBook(int borrowingId, int bookId, Date returnDate) {
+        String sql = "UPDATE borrowings SET return_date = ?, status = 'RETURNED' WHERE id = ? AND status IN ('BORROWED', 'OVERDUE')";
+
+        boolean shelved;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setDate(1, returnDate);
+                stmt.setInt(2, borrowingId);
+                if (stmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    return false;
+                }
+                shelved = HoldDAO.handOn(conn, bookId);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             logger.error("Failed to return book for borrowing ID {}", borrowingId, e);
             return false;
         }
+        if (shelved) {
+            BookDAO.stockChanged(bookId);
+        }
+        return true;
+    }
+
+    /**
+     * Returns a borrowing known only by id and borrower, as recorded by the
+     * return journal while the database was down. Same transaction as
+     * {@link #returnBook}, with the book read under a row lock. Repeating
+     * it is harmless: a borrowing that is already closed is left alone.
+     *
+     * @return the book id if the borrowing was returned, 0 if it was not open
+     *         or belongs to someone else, {@link #REPLAY_RETRY} if the
+     *         database failed in a way that may pass, {@link #REPLAY_FAILED}
+     *         if it rejected the return and would again
+     */
+    public int returnOpenBorrowing(int borrowingId, int userId, Date returnDate) {
+        String select = "SELECT book_id FROM borrowings WHERE id = ? AND user_id = ? AND status IN ('BORROWED', 'OVERDUE') FOR UPDATE";
+        String update = "UPDATE borrowings SET return_date = ?, status = 'RETURNED' WHERE id = ?";
+
+        boolean shelved;
+        int bookId;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(select)) {
+                    stmt.setInt(1, borrowingId);
+                    stmt.setInt(2, userId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) {
+                            conn.rollback();
+                            return 0;
+                        }
+                        bookId = rs.getInt("book_id");
+                    }
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(update)) {
+                    stmt.setDate(1, returnDate);
+                    stmt.setInt(2, borrowingId);
+                    stmt.executeUpdate();
+                }
+                shelved = HoldDAO.handOn(conn, bookId);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to replay return of borrowing ID {}", borrowingId, e);
+            return DatabaseConnection.isTransient(e) ? REPLAY_RETRY : REPLAY_FAILED;
+        }
+        if (shelved) {
+            BookDAO.stockChanged(bookId);
+        }
+        return bookId;
     }
 
     public boolean hasActiveBorrowing(int userId, int bookId) {
         String sql = "SELECT COUNT(*) FROM borrowings WHERE user_id = ? AND book_id = ? AND status = 'BORROWED'";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, userId);
@@ -169,7 +330,7 @@ public class BorrowingDAO {
     public int getActiveBorrowingsCount() {
         String sql = "SELECT COUNT(*) FROM borrowings WHERE status = 'BORROWED'";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -187,7 +348,7 @@ public class BorrowingDAO {
     public int getOverdueBorrowingsCount() {
         String sql = "SELECT COUNT(*) FROM borrowings WHERE status = 'BORROWED' AND due_date < CURDATE()";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
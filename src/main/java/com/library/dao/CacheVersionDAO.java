@@ -0,0 +1,94 @@
+package com.library.dao;
+
+import com.library.util.DatabaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.*;
+
+/**
+ * Per-entity-type change versions in the {@code cache_versions} table, the
+ * shared state behind cross-replica cache invalidation.
+ * <p>
+ * Each row holds a counter and the key of the most recent change. A reader
+ * that sees the counter move by exactly one knows which key changed; a
+ * bigger jump means it has to drop everything of that type.
+ */
+public class CacheVersionDAO {
+    private static final Logger logger = LoggerFactory.getLogger(CacheVersionDAO.class);
+
+    // Kept by visitVersions between polls; see there
+    private Connection pollConnection;
+
+    /**
+     * Bumps the version of an entity type on the caller's connection, inside
+     * its transaction, and returns the new version. The row stays locked
+     * until the transaction ends, so no other writer can get the same number.
+     *
+     * @return the new version, or -1 if the entity type has no row
+     */
+    static long bump(Connection conn, String entityType, String key) throws SQLException {
+        String update = "UPDATE cache_versions SET version = version + 1, last_key = ?, changed_at = CURRENT_TIMESTAMP(3) WHERE entity_type = ?";
+        String select = "SELECT version FROM cache_versions WHERE entity_type = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(update)) {
+            stmt.setString(1, key);
+            stmt.setString(2, entityType);
+            if (stmt.executeUpdate() == 0) {
+                return -1;
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(select)) {
+            stmt.setString(1, entityType);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : -1;
+            }
+        }
+    }
+
+    /**
+     * Visits every entity type with {@code entity_type}, {@code version},
+     * {@code last_key} and {@code age_ms}, the time since its last change as
+     * measured by the database clock.
+     * <p>
+     * Called several times a second by the poller, so the read connection is
+     * kept open from one call to the next rather than connecting each time;
+     * it holds one read bulkhead permit until {@link #close}, and is opened
+     * again after a failure.
+     *
+     * @return false if the query failed
+     */
+    public synchronized boolean visitVersions(RowVisitor visitor) throws IOException {
+        String sql = "SELECT entity_type, version, last_key, "
+                + "TIMESTAMPDIFF(MICROSECOND, changed_at, CURRENT_TIMESTAMP(3)) DIV 1000 AS age_ms FROM cache_versions";
+        try {
+            if (pollConnection == null) {
+                pollConnection = DatabaseConnection.getReadConnection();
+            }
+            try (Statement stmt = pollConnection.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    visitor.visit(rs);
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            logger.warn("Failed to poll cache versions", e);
+            close();
+            return false;
+        }
+    }
+
+    /** Closes the connection kept by {@link #visitVersions}. */
+    public synchronized void close() {
+        if (pollConnection == null) {
+            return;
+        }
+        try {
+            pollConnection.close();
+        } catch (SQLException e) {
+            logger.debug("Failed to close the cache version poll connection", e);
+        }
+        pollConnection = null;
+    }
+}
@@ -0,0 +1,180 @@
+package com.library.dao;
+
+import com.library.util.DatabaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.*;
+
+/**
+ * The catalog change log used for delta sync. Every book write appends a row
+ * in the same transaction (see {@link BookDAO}); the row id doubles as the
+ * catalog version clients sync from.
+ */
+public class CatalogChangeDAO {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogChangeDAO.class);
+
+    public static final String UPSERT = "UPSERT";
+    public static final String DELETE = "DELETE";
+
+    /**
+     * Appends a change on the caller's connection, inside its transaction.
+     */
+    static void record(Connection conn, int bookId, String changeType) throws SQLException {
+        String sql = "INSERT INTO catalog_changes (book_id, change_type) VALUES (?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, bookId);
+            stmt.setString(2, changeType);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Returns the latest catalog version a client can sync to: the highest
+     * change at least {@code settleSeconds} old, below which every change has
+     * committed (see {@link #visitChangesSince}).
+     *
+     * @return the version, or -1 if it could not be read
+     */
+    public long currentVersion(int settleSeconds) {
+        String sql = "SELECT COALESCE(MAX(id), 0) FROM catalog_changes WHERE changed_at <= NOW() - INTERVAL ? SECOND";
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, settleSeconds);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getLong(1);
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to read current catalog version", e);
+        }
+        return -1;
+    }
+
+    /**
+     * @return the highest version removed by compaction, or -1 if it could
+     *         not be read. Clients that last synced before it must resync.
+     */
+    public long horizon() {
+        return queryLong("SELECT min_version FROM catalog_change_horizon WHERE id = 1", "catalog change horizon");
+    }
+
+    /**
+     * Visits the books changed after {@code since}, one row per book carrying
+     * its latest version, ordered by that version. Rows have {@code version},
+     * {@code book_id} and the current list columns of the book (id, title,
+     * author, isbn, category, cover_image, quantity, available_quantity);
+     * those are NULL when the book has been deleted.
+     * <p>
+     * Ids are handed out when a change is written, not when it commits, so a
+     * transaction still running can own an id below ones already visible.
+     * Changes younger than {@code settleSeconds} are left for the next call:
+     * by the time a change is served, every change with a lower id has
+     * committed and a client advancing its cursor past it skips nothing.
+     *
+     * @param settleSeconds how long a write transaction may take to commit
+     *                      after recording its change
+     * @return false if the query failed
+     */
+    public boolean visitChangesSince(long since, int settleSeconds, int limit, RowVisitor visitor) throws IOException {
+        String sql = """
+                SELECT c.version, c.book_id, b.id, b.title, b.author, b.isbn, b.category,
+                       b.cover_image, b.quantity, b.available_quantity
+                FROM (SELECT book_id, MAX(id) AS version
+                      FROM catalog_changes
+                      WHERE id > ? AND changed_at <= NOW() - INTERVAL ? SECOND
+                      GROUP BY book_id
+                      ORDER BY version
+                      LIMIT ?) c
+                LEFT JOIN books b ON b.id = c.book_id
+                ORDER BY c.version
+                """;
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, since);
+            stmt.setInt(2, settleSeconds);
+            stmt.setInt(3, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    visitor.visit(rs);
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            logger.error("Failed to load catalog changes since version {}", since, e);
+            return false;
+        }
+    }
+
+    /**
+     * Drops entries superseded by a settled newer change of the same book,
+     * and deletion entries older than the retention period. The latter moves
+     * the horizon, so clients that have not synced since then do a full
+     * resync.
+     * <p>
+     * An entry is only dropped once its replacement is {@code settleSeconds}
+     * old, so the {@linkplain #currentVersion current version} never falls
+     * below one already handed to a client.
+     *
+     * @return number of entries removed, or -1 on failure
+     */
+    public int compact(int retentionDays, int settleSeconds) {
+        String superseded = """
+                DELETE c FROM catalog_changes c
+                JOIN catalog_changes newer ON newer.book_id = c.book_id AND newer.id > c.id
+                WHERE newer.changed_at <= NOW() - INTERVAL ? SECOND
+                """;
+        String lastExpired = "SELECT MAX(id) FROM catalog_changes WHERE change_type = 'DELETE' AND changed_at < NOW() - INTERVAL ? DAY";
+        String expired = "DELETE FROM catalog_changes WHERE change_type = 'DELETE' AND id <= ?";
+        String horizon = "UPDATE catalog_change_horizon SET min_version = GREATEST(min_version, ?) WHERE id = 1";
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(superseded);
+                 PreparedStatement findExpired = conn.prepareStatement(lastExpired)) {
+                stmt.setInt(1, settleSeconds);
+                int removed = stmt.executeUpdate();
+
+                findExpired.setInt(1, retentionDays);
+                long newHorizon = 0;
+                try (ResultSet rs = findExpired.executeQuery()) {
+                    if (rs.next()) {
+                        newHorizon = rs.getLong(1);
+                    }
+                }
+                if (newHorizon > 0) {
+                    try (PreparedStatement delete = conn.prepareStatement(expired);
+                         PreparedStatement update = conn.prepareStatement(horizon)) {
+                        delete.setLong(1, newHorizon);
+                        removed += delete.executeUpdate();
+                        update.setLong(1, newHorizon);
+                        update.executeUpdate();
+                    }
+                }
+                conn.commit();
+                return removed;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to compact catalog changes", e);
+            return -1;
+        }
+    }
+
+    private long queryLong(String sql, String what) {
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to read {}", what, e);
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,362 @@
+package com.library.dao;
+
+import com.library.model.Hold;
+import com.library.service.AvailabilityBroadcaster;
+import com.library.util.DatabaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Hold queues for books with no copy on the shelf.
+ * <p>
+ * Holds are served first come, first served. A copy that becomes free, on
+ * return or when a READY hold lapses, goes to the head of the queue in the
+ * same transaction and only reaches the shelf when nobody is waiting, so
+ * waiting readers never race each other for it. Every allocation first locks
+ * the book row, which serializes them across requests and replicas.
+ */
+public class HoldDAO {
+    private static final Logger logger = LoggerFactory.getLogger(HoldDAO.class);
+
+    public static final String WAITING = "WAITING";
+    public static final String READY = "READY";
+    public static final String FULFILLED = "FULFILLED";
+    public static final String EXPIRED = "EXPIRED";
+    public static final String CANCELLED = "CANCELLED";
+
+    // How long a hold stays in the queue, and how long a set-aside copy waits for its holder
+    static final int HOLD_DAYS = 30;
+    static final int PICKUP_DAYS = 3;
+
+    private static final int SWEEP_BATCH = 100;
+
+    private static final String ACTIVE_HOLDS = """
+            SELECT h.*, bk.title AS book_title, bk.author AS book_author,
+                   CASE WHEN h.status = 'WAITING'
+                        THEN (SELECT COUNT(*) FROM holds q
+                              WHERE q.book_id = h.book_id AND q.status = 'WAITING' AND q.id <= h.id)
+                        ELSE 0 END AS position
+            FROM holds h
+            JOIN books bk ON h.book_id = bk.id
+            """;
+
+    public boolean place(int userId, int bookId) {
+        String sql = "INSERT INTO holds (user_id, book_id, expires_at) VALUES (?, ?, NOW() + INTERVAL ? DAY)";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, userId);
+            stmt.setInt(2, bookId);
+            stmt.setInt(3, HOLD_DAYS);
+            return stmt.executeUpdate() > 0;
+
+        } catch (SQLException e) {
+            logger.error("Failed to place hold for user {} on book {}", userId, bookId, e);
+            return false;
+        }
+    }
+
+    /**
+     * @return the user's WAITING or READY hold on the book, or null if none
+     */
+    public Hold findActive(int userId, int bookId) {
+        String sql = ACTIVE_HOLDS + "WHERE h.user_id = ? AND h.book_id = ? AND h.status IN ('WAITING', 'READY')";
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, userId);
+            stmt.setInt(2, bookId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return extractHoldFromResultSet(rs);
+                }
+            }
+
+        } catch (SQLException e) {
+            logger.error("Failed to find hold of user {} on book {}", userId, bookId, e);
+        }
+        return null;
+    }
+
+    public List<Hold> findActiveByUserId(int userId) {
+        List<Hold> holds = new ArrayList<>();
+        String sql = ACTIVE_HOLDS + "WHERE h.user_id = ? AND h.status IN ('WAITING', 'READY') ORDER BY h.created_at";
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    holds.add(extractHoldFromResultSet(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            logger.error("Failed to load holds for user ID {}", userId, e);
+            return Collections.emptyList();
+        }
+        return holds;
+    }
+
+    /**
+     * Cancels one of the user's active holds. A copy set aside for it goes to
+     * the next hold in the queue, or back to the shelf.
+     */
+    public boolean cancel(int holdId, int userId) {
+        String lock = "SELECT book_id, status FROM holds WHERE id = ? AND user_id = ? AND status IN ('WAITING', 'READY') FOR UPDATE";
+
+        boolean shelved = false;
+        int bookId;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(lock)) {
+                stmt.setInt(1, holdId);
+                stmt.setInt(2, userId);
+                String status;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        conn.rollback();
+                        return false;
+                    }
+                    bookId = rs.getInt("book_id");
+                    status = rs.getString("status");
+                }
+                setStatus(conn, holdId, CANCELLED);
+                if (READY.equals(status)) {
+                    shelved = handOn(conn, bookId);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to cancel hold ID {}", holdId, e);
+            return false;
+        }
+        bumpIfShelved(shelved, bookId);
+        return true;
+    }
+
+    /**
+     * Expires lapsed holds and passes on the copies set aside for them, then
+     * gives copies found on the shelf, e.g. after an admin raised the stock,
+     * to books' waiting queues.
+     *
+     * @return number of holds changed, or -1 on failure
+     */
+    public int sweep() {
+        String expireWaiting = "UPDATE holds SET status = 'EXPIRED' WHERE status = 'WAITING' AND expires_at <= NOW()";
+        String lapsedReady = "SELECT id FROM holds WHERE status = 'READY' AND expires_at <= NOW() ORDER BY id LIMIT " + SWEEP_BATCH;
+        String shelvedWithQueue = """
+                SELECT DISTINCT h.book_id
+                FROM holds h
+                JOIN books bk ON h.book_id = bk.id
+                WHERE h.status = 'WAITING' AND h.expires_at > NOW() AND bk.available_quantity > 0
+                LIMIT %d
+                """.formatted(SWEEP_BATCH);
+
+        try {
+            int changed;
+            List<Integer> lapsed = new ArrayList<>();
+            List<Integer> books = new ArrayList<>();
+            try (Connection conn = DatabaseConnection.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                changed = stmt.executeUpdate(expireWaiting);
+                try (ResultSet rs = stmt.executeQuery(lapsedReady)) {
+                    while (rs.next()) {
+                        lapsed.add(rs.getInt(1));
+                    }
+                }
+                try (ResultSet rs = stmt.executeQuery(shelvedWithQueue)) {
+                    while (rs.next()) {
+                        books.add(rs.getInt(1));
+                    }
+                }
+            }
+
+            for (int holdId : lapsed) {
+                if (expireReady(holdId)) {
+                    changed++;
+                }
+            }
+            for (int bookId : books) {
+                while (allocateFromShelf(bookId)) {
+                    changed++;
+                }
+            }
+            return changed;
+
+        } catch (SQLException e) {
+            logger.error("Failed to sweep holds", e);
+            return -1;
+        }
+    }
+
+    private boolean expireReady(int holdId) throws SQLException {
+        String lock = "SELECT book_id FROM holds WHERE id = ? AND status = 'READY' AND expires_at <= NOW() FOR UPDATE";
+
+        boolean shelved;
+        int bookId;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(lock)) {
+                stmt.setInt(1, holdId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        // Borrowed or cancelled since the sweep listed it
+                        conn.rollback();
+                        return false;
+                    }
+                    bookId = rs.getInt("book_id");
+                }
+                setStatus(conn, holdId, EXPIRED);
+                shelved = handOn(conn, bookId);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        bumpIfShelved(shelved, bookId);
+        return true;
+    }
+
+    private boolean allocateFromShelf(int bookId) throws SQLException {
+        boolean unshelved;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                if (lockBook(conn, bookId) <= 0 || !allocateNext(conn, bookId)) {
+                    conn.rollback();
+                    return false;
+                }
+                unshelved = BookDAO.unshelveCopy(conn, bookId);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        bumpIfShelved(unshelved, bookId);
+        return true;
+    }
+
+    /**
+     * Gives a copy that just became free to the next hold in the book's
+     * queue, or puts it back on the shelf, on the caller's connection inside
+     * its transaction.
+     *
+     * @return true if the copy went back to the shelf, so the caller calls
+     *         {@link BookDAO#stockChanged} after committing
+     */
+    static boolean handOn(Connection conn, int bookId) throws SQLException {
+        return !allocateNext(conn, bookId) && BookDAO.shelveCopy(conn, bookId);
+    }
+
+    /**
+     * Marks the user's READY hold on the book as fulfilled, on the caller's
+     * connection inside its transaction.
+     *
+     * @return false if the user has no READY hold on the book
+     */
+    static boolean fulfil(Connection conn, int holdId, int userId, int bookId) throws SQLException {
+        String sql = "UPDATE holds SET status = 'FULFILLED' WHERE id = ? AND user_id = ? AND book_id = ? AND status = 'READY'";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, holdId);
+            stmt.setInt(2, userId);
+            stmt.setInt(3, bookId);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    private static boolean allocateNext(Connection conn, int bookId) throws SQLException {
+        String head = "SELECT id, user_id FROM holds WHERE book_id = ? AND status = 'WAITING' AND expires_at > NOW() ORDER BY id LIMIT 1";
+        String ready = "UPDATE holds SET status = 'READY', ready_at = NOW(), expires_at = NOW() + INTERVAL ? DAY WHERE id = ?";
+
+        if (lockBook(conn, bookId) < 0) {
+            return false;
+        }
+        int holdId;
+        int userId;
+        try (PreparedStatement stmt = conn.prepareStatement(head)) {
+            stmt.setInt(1, bookId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                holdId = rs.getInt("id");
+                userId = rs.getInt("user_id");
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(ready)) {
+            stmt.setInt(1, PICKUP_DAYS);
+            stmt.setInt(2, holdId);
+            stmt.executeUpdate();
+        }
+        logger.info("Copy of book {} set aside for hold {} of user {}", bookId, holdId, userId);
+        return true;
+    }
+
+    /**
+     * Locks the book row for the rest of the transaction.
+     *
+     * @return the copies on the shelf, or -1 if the book does not exist
+     */
+    private static int lockBook(Connection conn, int bookId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT available_quantity FROM books WHERE id = ? FOR UPDATE")) {
+            stmt.setInt(1, bookId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
+
+    private static void setStatus(Connection conn, int holdId, String status) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE holds SET status = ? WHERE id = ?")) {
+            stmt.setString(1, status);
+            stmt.setInt(2, holdId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Publishes a committed shelf change to other replicas and to this
+     * replica's availability streams, which the bus does not notify of local
+     * changes. Call it once the transaction's connection is closed, so the
+     * write it takes is not a second write permit.
+     */
+    private static void bumpIfShelved(boolean shelved, int bookId) {
+        if (shelved) {
+            BookDAO.stockChanged(bookId);
+            AvailabilityBroadcaster.shared().bookChanged(bookId);
+        }
+    }
+
+    private Hold extractHoldFromResultSet(ResultSet rs) throws SQLException {
+        Hold h = new Hold();
+
+        h.setId(rs.getInt("id"));
+        h.setUserId(rs.getInt("user_id"));
+        h.setBookId(rs.getInt("book_id"));
+        h.setStatus(rs.getString("status"));
+        h.setCreatedAt(rs.getTimestamp("created_at"));
+        h.setReadyAt(rs.getTimestamp("ready_at"));
+        h.setExpiresAt(rs.getTimestamp("expires_at"));
+        h.setPosition(rs.getInt("position"));
+
+        // Columns from joined tables
+        h.setBookTitle(rs.getString("book_title"));
+        h.setBookAuthor(rs.getString("book_author"));
+
+        return h;
+    }
+}
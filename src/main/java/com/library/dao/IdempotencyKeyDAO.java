@@ -0,0 +1,120 @@
+package com.library.dao;
+
+import com.library.util.DatabaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+
+/**
+ * Submissions by idempotency key, in the {@code idempotency_keys} table, so a
+ * resubmission that reaches another replica, or this one after a restart,
+ * gets the same answer.
+ * <p>
+ * A submission {@linkplain #claim claims} its key before it runs, relying on
+ * the unique {@code request_key}; the row holds no outcome until it is
+ * {@linkplain #record recorded}, and is {@linkplain #release released} if
+ * the submission changed nothing.
+ */
+public class IdempotencyKeyDAO {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyKeyDAO.class);
+
+    /** Claims left without an outcome for this long belong to a replica that died. */
+    private static final int ABANDONED_CLAIM_MINUTES = 10;
+
+    /**
+     * Claims a key for a submission about to run.
+     *
+     * @return 1 if the caller now owns the key, 0 if another submission
+     *         holds it, or -1 if the insert failed
+     */
+    public int claim(String requestKey, int userId) {
+        String sql = "INSERT IGNORE INTO idempotency_keys (request_key, user_id) VALUES (?, ?)";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, requestKey);
+            stmt.setInt(2, userId);
+            return stmt.executeUpdate() > 0 ? 1 : 0;
+        } catch (SQLException e) {
+            logger.error("Failed to claim idempotency key for user ID {}", userId, e);
+            return -1;
+        }
+    }
+
+    /**
+     * @return the recorded outcome, or null if there is none yet or the lookup failed
+     */
+    public String findOutcome(String requestKey) {
+        String sql = "SELECT outcome FROM idempotency_keys WHERE request_key = ?";
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, requestKey);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString("outcome") : null;
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to look up idempotency key", e);
+            return null;
+        }
+    }
+
+    /**
+     * Records the outcome of a key, claimed or not. The first outcome
+     * recorded for a key wins.
+     *
+     * @return false if the write failed
+     */
+    public boolean record(String requestKey, int userId, String outcome) {
+        String sql = "INSERT INTO idempotency_keys (request_key, user_id, outcome) VALUES (?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE outcome = COALESCE(outcome, VALUES(outcome))";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, requestKey);
+            stmt.setInt(2, userId);
+            stmt.setString(3, outcome);
+            stmt.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            logger.error("Failed to record idempotency key for user ID {}", userId, e);
+            return false;
+        }
+    }
+
+    /**
+     * Gives up a claim that has no outcome, so a retry runs again.
+     *
+     * @return false if the delete failed
+     */
+    public boolean release(String requestKey) {
+        String sql = "DELETE FROM idempotency_keys WHERE request_key = ? AND outcome IS NULL";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, requestKey);
+            stmt.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            logger.error("Failed to release idempotency key", e);
+            return false;
+        }
+    }
+
+    /**
+     * Removes outcomes older than the retention and claims abandoned by a
+     * replica that stopped mid-submission.
+     *
+     * @return number of keys removed, or -1 on failure
+     */
+    public int purge(int retentionHours) {
+        String sql = "DELETE FROM idempotency_keys WHERE created_at < NOW() - INTERVAL ? HOUR "
+                + "OR (outcome IS NULL AND created_at < NOW() - INTERVAL ? MINUTE)";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, retentionHours);
+            stmt.setInt(2, ABANDONED_CLAIM_MINUTES);
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Failed to purge idempotency keys", e);
+            return -1;
+        }
+    }
+}
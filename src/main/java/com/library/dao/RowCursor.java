@@ -0,0 +1,116 @@
+package com.library.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Forward-only iterator over a live result set, for pages that render rows
+ * as they are read instead of loading a whole table into a list.
+ * <p>
+ * The cursor owns its connection and must be closed, typically with
+ * try-with-resources around the forward to the JSP. A database error while
+ * iterating is logged and simply ends the iteration, like the list-returning
+ * DAO methods return an empty list.
+ */
+public class RowCursor<T> implements Iterator<T>, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RowCursor.class);
+
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private final Connection conn;
+    private final Statement stmt;
+    private final ResultSet rs;
+    private final RowMapper<T> mapper;
+    private T next;
+    private boolean done;
+
+    private RowCursor(Connection conn, Statement stmt, ResultSet rs, RowMapper<T> mapper) {
+        this.conn = conn;
+        this.stmt = stmt;
+        this.rs = rs;
+        this.mapper = mapper;
+        this.done = rs == null;
+    }
+
+    /**
+     * Runs the query in streaming mode: MySQL Connector/J then hands rows over
+     * one at a time instead of buffering the whole result in memory.
+     */
+    static <T> RowCursor<T> open(Connection conn, String sql, RowMapper<T> mapper) throws SQLException {
+        Statement stmt = null;
+        try {
+            stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            return new RowCursor<>(conn, stmt, stmt.executeQuery(sql), mapper);
+        } catch (SQLException e) {
+            if (stmt != null) {
+                stmt.close();
+            }
+            conn.close();
+            throw e;
+        }
+    }
+
+    static <T> RowCursor<T> empty() {
+        return new RowCursor<>(null, null, null, null);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (done) {
+            return false;
+        }
+        try {
+            if (rs.next()) {
+                next = mapper.map(rs);
+                return true;
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to read next row, ending iteration", e);
+        }
+        done = true;
+        return false;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T row = next;
+        next = null;
+        return row;
+    }
+
+    @Override
+    public void close() {
+        done = true;
+        try {
+            if (rs != null) {
+                rs.close();
+            }
+            if (stmt != null) {
+                stmt.close();
+            }
+            if (conn != null) {
+                conn.close();
+            }
+        } catch (SQLException e) {
+            logger.warn("Failed to close row cursor", e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.library.dao;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Receives each row of a query while the result set is positioned on it,
+ * for callers that write rows out directly instead of collecting objects.
+ */
+@FunctionalInterface
+public interface RowVisitor {
+    void visit(ResultSet rs) throws SQLException, IOException;
+}
@@ -1,13 +1,21 @@
 package com.library.dao;
 
+import com.library.cache.InvalidationBus;
 import com.library.model.User;
+import com.library.session.SessionVersions;
 import com.library.util.DatabaseConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class UserDAO {
 
@@ -16,7 +24,7 @@ public class UserDAO {
 
     public User findByUsername(String username) {
         String sql = "SELECT * FROM users WHERE username = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, username);
@@ -33,7 +41,7 @@ public class UserDAO {
 
     public User findByEmail(String email) {
         String sql = "SELECT * FROM users WHERE email = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, email);
@@ -50,7 +58,7 @@ public class UserDAO {
 
     public User findById(int id) {
         String sql = "SELECT * FROM users WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, id);
@@ -90,11 +98,141 @@ public class UserDAO {
         return false;
     }
 
+    /**
+     * Returns the subset of the given usernames and emails that already exist,
+     * in a single set-based query. Entries are lower-cased so callers can match
+     * them the same way MySQL's case-insensitive collation does. Returns null
+     * if the query failed, since an empty set would pass every row as new.
+     */
+    public Set<String> findExistingUsernamesAndEmails(Collection<String> usernames, Collection<String> emails) {
+        Set<String> existing = new HashSet<>();
+        if (usernames.isEmpty() && emails.isEmpty()) {
+            return existing;
+        }
+
+        String sql = "SELECT username, email FROM users WHERE username IN (" + placeholders(usernames.size())
+                + ") OR email IN (" + placeholders(emails.size()) + ")";
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            for (String username : usernames) {
+                stmt.setString(index++, username);
+            }
+            for (String email : emails) {
+                stmt.setString(index++, email);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getString("username").toLowerCase());
+                    existing.add(rs.getString("email").toLowerCase());
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to look up existing users for {} usernames", usernames.size(), e);
+            return null;
+        }
+        return existing;
+    }
+
+    /**
+     * Inserts users with JDBC batches, one transaction per chunk. When a chunk
+     * fails it is rolled back and replayed row by row so that a single bad row
+     * only fails itself. Generated ids are set on the users that were created.
+     *
+     * @return one flag per user, true when that user was inserted
+     */
+    public boolean[] createBatch(List<User> users, int chunkSize) {
+        boolean[] created = new boolean[users.size()];
+        String sql = "INSERT INTO users (username, email, password, full_name, role) VALUES (?, ?, ?, ?, ?)";
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (int from = 0; from < users.size(); from += chunkSize) {
+                    int to = Math.min(from + chunkSize, users.size());
+                    if (!insertChunk(conn, stmt, users, from, to, created)) {
+                        insertRowByRow(conn, stmt, users, from, to, created);
+                    }
+                }
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to batch insert {} users", users.size(), e);
+        }
+        return created;
+    }
+
+    private boolean insertChunk(Connection conn, PreparedStatement stmt, List<User> users,
+                                int from, int to, boolean[] created) throws SQLException {
+        try {
+            for (int i = from; i < to; i++) {
+                bindUser(stmt, users.get(i));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                for (int i = from; i < to && keys != null && keys.next(); i++) {
+                    users.get(i).setId(keys.getInt(1));
+                }
+            }
+            conn.commit();
+            for (int i = from; i < to; i++) {
+                created[i] = true;
+            }
+            return true;
+        } catch (SQLException e) {
+            logger.warn("Batch insert of users {}..{} failed, retrying row by row", from, to - 1, e);
+            stmt.clearBatch();
+            conn.rollback();
+            return false;
+        }
+    }
+
+    private void insertRowByRow(Connection conn, PreparedStatement stmt, List<User> users,
+                                int from, int to, boolean[] created) throws SQLException {
+        for (int i = from; i < to; i++) {
+            User user = users.get(i);
+            try {
+                bindUser(stmt, user);
+                stmt.executeUpdate();
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    if (keys != null && keys.next()) {
+                        user.setId(keys.getInt(1));
+                    }
+                }
+                conn.commit();
+                created[i] = true;
+            } catch (SQLException e) {
+                logger.error("Failed to create user: {}", user.getUsername(), e);
+                conn.rollback();
+            }
+        }
+    }
+
+    private void bindUser(PreparedStatement stmt, User user) throws SQLException {
+        stmt.setString(1, user.getUsername());
+        stmt.setString(2, user.getEmail());
+        stmt.setString(3, user.getPassword());
+        stmt.setString(4, user.getFullName());
+        stmt.setString(5, user.getRole());
+    }
+
+    private static String placeholders(int count) {
+        if (count == 0) {
+            return "NULL";
+        }
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
     public List<User> findAll() {
         List<User> users = new ArrayList<>();
         String sql = "SELECT * FROM users ORDER BY created_at DESC";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -107,40 +245,203 @@ public class UserDAO {
         return users;
     }
 
-    public boolean update(User user) {
-        String sql = "UPDATE users SET username = ?, email = ?, full_name = ?, role = ? WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, user.getUsername());
-            stmt.setString(2, user.getEmail());
-            stmt.setString(3, user.getFullName());
-            stmt.setString(4, user.getRole());
-            stmt.setInt(5, user.getId());
+    /**
+     * Same rows as {@link #findAll()}, streamed from the database one at a
+     * time. The caller must close the cursor.
+     */
+    public RowCursor<User> cursorAll() {
+        String sql = "SELECT * FROM users ORDER BY created_at DESC";
+        try {
+            return RowCursor.open(DatabaseConnection.getReadConnection(), sql, this::extractUserFromResultSet);
+        } catch (SQLException e) {
+            logger.error("Failed to open cursor over all users", e);
+            return RowCursor.empty();
+        }
+    }
 
-            return stmt.executeUpdate() > 0;
+    public boolean update(User user) {
+        // A role change revokes signed sessions, which carry the old role; MySQL
+        // assigns left to right, so the comparison still sees the old role
+        String sql = "UPDATE users SET session_version = session_version + (role <> ?), "
+                + "username = ?, email = ?, full_name = ?, role = ? WHERE id = ?";
+        try {
+            return writeAndBumpVersion(user.getId(), conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, user.getRole());
+                    stmt.setString(2, user.getUsername());
+                    stmt.setString(3, user.getEmail());
+                    stmt.setString(4, user.getFullName());
+                    stmt.setString(5, user.getRole());
+                    stmt.setInt(6, user.getId());
+                    return stmt.executeUpdate();
+                }
+            });
         } catch (SQLException e) {
             logger.error("Failed to update user ID: {}", user.getId(), e);
         }
         return false;
     }
 
-    public boolean delete(int id) {
-        String sql = "DELETE FROM users WHERE id = ?";
+    /**
+     * Replaces the user's password hash with a stronger one of the same
+     * password. Only applies while the stored hash is still
+     * {@code currentHash}, so a password changed in the meantime is kept.
+     */
+    public boolean upgradePasswordHash(int id, String currentHash, String newHash) {
+        String sql = "UPDATE users SET password = ? WHERE id = ? AND password = ?";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, newHash);
+            stmt.setInt(2, id);
+            stmt.setString(3, currentHash);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            logger.error("Failed to upgrade password hash of user ID: {}", id, e);
+        }
+        return false;
+    }
+
+    /**
+     * Revokes every signed session of the user by moving its session version
+     * past the one they carry.
+     *
+     * @return the new session version, or -1 if it could not be changed
+     */
+    public int revokeSessions(int id) {
+        String update = "UPDATE users SET session_version = session_version + 1 WHERE id = ?";
+        String select = "SELECT session_version FROM users WHERE id = ?";
+        int[] version = {-1};
+        try {
+            writeAndBumpVersion(id, conn -> {
+                int affectedRows;
+                try (PreparedStatement stmt = conn.prepareStatement(update)) {
+                    stmt.setInt(1, id);
+                    affectedRows = stmt.executeUpdate();
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(select)) {
+                    stmt.setInt(1, id);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            version[0] = rs.getInt(1);
+                        }
+                    }
+                }
+                return affectedRows;
+            });
+        } catch (SQLException e) {
+            logger.error("Failed to revoke sessions of user ID: {}", id, e);
+            return -1;
+        }
+        return version[0];
+    }
 
+    /**
+     * Returns the session version of the user, {@link Integer#MAX_VALUE} if
+     * there is no such user any more, or -1 if the lookup failed.
+     */
+    public int findSessionVersion(int id) {
+        String sql = "SELECT session_version FROM users WHERE id = ?";
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
-            return stmt.executeUpdate() > 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : Integer.MAX_VALUE;
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to find session version of user ID: {}", id, e);
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the session versions that are not 0, by user id; few users
+     * ever have one. Deleted users are included at {@link Integer#MAX_VALUE},
+     * as for {@link #findSessionVersion}. Returns null if the query failed.
+     */
+    public Map<Integer, Integer> findSessionVersions() {
+        String sql = "SELECT id, session_version FROM users WHERE session_version > 0 "
+                + "UNION ALL SELECT user_id, " + Integer.MAX_VALUE + " FROM deleted_users";
+        Map<Integer, Integer> versions = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                versions.put(rs.getInt("id"), rs.getInt("session_version"));
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to fetch session versions", e);
+            return null;
+        }
+        return versions;
+    }
+
+    /**
+     * Deletes the user and records the deletion in {@code deleted_users}, so
+     * their signed sessions stay revoked across restarts.
+     */
+    public boolean delete(int id) {
+        String sql = "DELETE FROM users WHERE id = ?";
+        String tombstone = "INSERT IGNORE INTO deleted_users (user_id) VALUES (?)";
+        try {
+            return writeAndBumpVersion(id, conn -> {
+                int affectedRows;
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setInt(1, id);
+                    affectedRows = stmt.executeUpdate();
+                }
+                if (affectedRows > 0) {
+                    try (PreparedStatement stmt = conn.prepareStatement(tombstone)) {
+                        stmt.setInt(1, id);
+                        stmt.executeUpdate();
+                    }
+                }
+                return affectedRows;
+            });
         } catch (SQLException e) {
             logger.error("Failed to delete user ID: {}", id, e);
         }
         return false;
     }
 
+    @FunctionalInterface
+    private interface UserWrite {
+        int execute(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Runs a write to an existing user and bumps the user cache version in
+     * the same transaction, so other replicas drop what they cached for them.
+     */
+    private boolean writeAndBumpVersion(int userId, UserWrite write) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            long cacheVersion = -1;
+            try {
+                int affectedRows = write.execute(conn);
+                if (affectedRows > 0) {
+                    cacheVersion = CacheVersionDAO.bump(conn, InvalidationBus.USER, String.valueOf(userId));
+                    if (cacheVersion > 0) {
+                        InvalidationBus.markLocal(InvalidationBus.USER, cacheVersion);
+                    }
+                }
+                conn.commit();
+                if (affectedRows > 0) {
+                    SessionVersions.userChanged(userId);
+                }
+                return affectedRows > 0;
+            } catch (SQLException e) {
+                if (cacheVersion > 0) {
+                    InvalidationBus.unmarkLocal(InvalidationBus.USER, cacheVersion);
+                }
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
     public int getTotalUsers() {
         String sql = "SELECT COUNT(*) FROM users WHERE role = 'USER'";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -0,0 +1,89 @@
+package com.library.filter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit that follows the latency of the requests it admits,
+ * additive-increase/multiplicative-decrease style.
+ * <p>
+ * While requests finish within the latency target and the limit is at least
+ * half used, it grows by about one per limit's worth of requests. A request
+ * that is slower than the target or fails cuts it by {@link #BACKOFF}, at
+ * most once per target interval so one slow burst does not collapse it.
+ * Callers admit against a share of the limit, which is how lower-priority
+ * routes are shed first.
+ */
+public class AdaptiveLimit {
+
+    static final double BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetNanos;
+    private final LongSupplier clock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private long lastDecrease;
+
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, long targetMillis) {
+        this(initialLimit, minLimit, maxLimit, targetMillis, System::nanoTime);
+    }
+
+    AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, long targetMillis, LongSupplier clock) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        this.clock = clock;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecrease = clock.getAsLong() - targetNanos;
+    }
+
+    /**
+     * Admits a request if fewer than {@code share} of the limit are in
+     * flight. An admitted request must be {@linkplain #release released}.
+     */
+    public boolean tryAcquire(double share) {
+        int allowed = Math.max(1, (int) (limit * share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param latencyNanos time the request took
+     * @param failed       whether it failed on the server side
+     */
+    public void release(long latencyNanos, boolean failed) {
+        int current = inFlight.getAndDecrement();
+        sample(latencyNanos, failed, current);
+    }
+
+    private synchronized void sample(long latencyNanos, boolean failed, int inFlightAtEnd) {
+        if (failed || latencyNanos > targetNanos) {
+            long now = clock.getAsLong();
+            if (now - lastDecrease >= targetNanos) {
+                lastDecrease = now;
+                limit = Math.max(minLimit, limit * BACKOFF);
+            }
+        } else if (inFlightAtEnd * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -1,10 +1,9 @@
 package com.library.filter;
 
-import com.library.model.User;
+import com.library.session.SessionUser;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,15 +26,8 @@ public class AdminFilter implements Filter {
         HttpServletResponse httpResponse = (HttpServletResponse) response;
 
         try {
-            HttpSession session = httpRequest.getSession(false);
-            boolean isAdmin = false;
-
-            if (session != null) {
-                User user = (User) session.getAttribute("user");
-                if (user != null && user.isAdmin()) {
-                    isAdmin = true;
-                }
-            }
+            SessionUser user = SessionUser.current(httpRequest);
+            boolean isAdmin = user != null && user.isAdmin();
 
             if (isAdmin) {
                 chain.doFilter(request, response);
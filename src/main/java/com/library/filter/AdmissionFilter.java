@@ -0,0 +1,172 @@
+package com.library.filter;
+
+import com.library.metrics.Metrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admission control for the database-bound routes. All of them share one
+ * {@link AdaptiveLimit}, which shrinks as latency rises, and each route
+ * class may only use a share of it: circulation (borrow, return, holds) all
+ * of it, catalog browsing 80% and admin pages 50%. When MySQL slows down,
+ * admin reports are turned away first and browsing next, so borrows and
+ * returns keep going, and whatever does not fit is rejected at once with
+ * 503 and Retry-After instead of waiting on a container thread.
+ * <p>
+ * Init params {@code circulation}, {@code browsing} and {@code reports}
+ * list the servlet paths of each class, comma separated; a path also
+ * covers what is below it. Other paths are not limited. {@code limit},
+ * {@code minLimit} and {@code maxLimit} (defaults 40, 4, 200) bound the
+ * concurrency and {@code latencyTargetMillis} (default 250) is the latency
+ * above which it shrinks. Mapped after the pre-rendered catalog, so pages
+ * served from memory are never shed.
+ */
+public class AdmissionFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionFilter.class);
+
+    static final double BROWSING_SHARE = 0.8;
+    static final double REPORTS_SHARE = 0.5;
+
+    enum Priority {
+        CIRCULATION(1.0),
+        BROWSING(BROWSING_SHARE),
+        REPORTS(REPORTS_SHARE);
+
+        private final double share;
+
+        Priority(double share) {
+            this.share = share;
+        }
+    }
+
+    private final Map<Priority, List<String>> paths = new EnumMap<>(Priority.class);
+    private final Map<Priority, Counter> rejected = new EnumMap<>(Priority.class);
+    private AdaptiveLimit limit;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        limit = new AdaptiveLimit(
+                (int) param(filterConfig, "limit", 40),
+                (int) param(filterConfig, "minLimit", 4),
+                (int) param(filterConfig, "maxLimit", 200),
+                param(filterConfig, "latencyTargetMillis", 250));
+
+        for (Priority priority : Priority.values()) {
+            List<String> prefixes = new ArrayList<>();
+            String configured = filterConfig.getInitParameter(priority.name().toLowerCase());
+            if (configured != null) {
+                for (String path : configured.split(",")) {
+                    if (!path.isBlank()) {
+                        prefixes.add(path.trim());
+                    }
+                }
+            }
+            paths.put(priority, prefixes);
+            rejected.put(priority, Counter.builder("admission_rejected")
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(Metrics.registry()));
+        }
+        Gauge.builder("admission_limit", limit, AdaptiveLimit::getLimit).register(Metrics.registry());
+        Gauge.builder("admission_in_flight", limit, AdaptiveLimit::getInFlight).register(Metrics.registry());
+        logger.info("[AdmissionFilter] Initialized successfully (limit={})", limit.getLimit());
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        Priority priority = classify(httpRequest.getServletPath());
+        if (priority == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!limit.tryAcquire(priority.share)) {
+            rejected.get(priority).increment();
+            httpResponse.setHeader("Retry-After", "1");
+            httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseListener(start, httpResponse));
+                async = true;
+            }
+        } catch (IOException | ServletException | RuntimeException e) {
+            limit.release(System.nanoTime() - start, true);
+            throw e;
+        }
+        if (!async) {
+            limit.release(System.nanoTime() - start, httpResponse.getStatus() >= 500);
+        }
+    }
+
+    Priority classify(String servletPath) {
+        for (Priority priority : Priority.values()) {
+            for (String prefix : paths.get(priority)) {
+                if (servletPath.equals(prefix) || servletPath.startsWith(prefix + "/")) {
+                    return priority;
+                }
+            }
+        }
+        return null;
+    }
+
+    AdaptiveLimit getLimit() {
+        return limit;
+    }
+
+    private static long param(FilterConfig config, String name, long defaultValue) {
+        String configured = config.getInitParameter(name);
+        return configured == null || configured.isBlank() ? defaultValue : Long.parseLong(configured.trim());
+    }
+
+    private class ReleaseListener implements AsyncListener {
+        private final long start;
+        private final HttpServletResponse response;
+        private volatile boolean failed;
+
+        ReleaseListener(long start, HttpServletResponse response) {
+            this.start = start;
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limit.release(System.nanoTime() - start, failed || response.getStatus() >= 500);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Not restarted
+        }
+    }
+}
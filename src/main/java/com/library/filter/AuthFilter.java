@@ -1,9 +1,9 @@
 package com.library.filter;
 
+import com.library.session.SessionUser;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,8 +26,7 @@ public class AuthFilter implements Filter {
         HttpServletResponse httpResponse = (HttpServletResponse) response;
 
         try {
-            HttpSession session = httpRequest.getSession(false);
-            boolean isLoggedIn = (session != null && session.getAttribute("user") != null);
+            boolean isLoggedIn = SessionUser.current(httpRequest) != null;
 
             if (isLoggedIn) {
                 chain.doFilter(request, response);
@@ -0,0 +1,287 @@
+package com.library.filter;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response wrapper that decides on the first {@code minSize} bytes whether to
+ * gzip the body, then streams it. Flushes are passed through as gzip sync
+ * flushes so early-flushed page heads still reach the browser immediately.
+ */
+class CompressingResponseWrapper extends HttpServletResponseWrapper {
+
+    private enum State { UNDECIDED, COMPRESSING, PASSTHROUGH }
+
+    private final HttpServletResponse response;
+    private final int minSize;
+    private final ByteArrayOutputStream pending;
+
+    private State state = State.UNDECIDED;
+    private GZIPOutputStream gzip;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+    private long declaredLength = -1;
+    private boolean finished;
+
+    CompressingResponseWrapper(HttpServletResponse response, int minSize) {
+        super(response);
+        this.response = response;
+        this.minSize = minSize;
+        this.pending = new ByteArrayOutputStream(minSize);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        if (outputStream == null) {
+            outputStream = new CompressingOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            outputStream = new CompressingOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, Charset.forName(getCharacterEncoding())));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        declaredLength = len;
+        if (state != State.COMPRESSING) {
+            super.setContentLengthLong(len);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name) && value != null) {
+            setContentLengthLong(Long.parseLong(value));
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        passThrough();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        passThrough();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        passThrough();
+        super.sendRedirect(location);
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.flush();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        resetBody();
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        resetBody();
+    }
+
+    private void resetBody() {
+        if (state == State.UNDECIDED) {
+            pending.reset();
+        }
+    }
+
+    /**
+     * Writes whatever is still buffered and ends the gzip stream.
+     */
+    void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        // Set first so draining the writer is not mistaken for an explicit flush
+        finished = true;
+        if (writer != null) {
+            writer.flush();
+        }
+        if (state == State.UNDECIDED) {
+            // The whole body stayed below the threshold, send it as is
+            if (pending.size() > 0) {
+                state = State.PASSTHROUGH;
+                response.getOutputStream().write(pending.toByteArray());
+            }
+        } else if (state == State.COMPRESSING) {
+            gzip.finish();
+        }
+    }
+
+    private void passThrough() throws IOException {
+        if (state == State.UNDECIDED) {
+            state = State.PASSTHROUGH;
+            if (pending.size() > 0) {
+                response.getOutputStream().write(pending.toByteArray());
+                pending.reset();
+            }
+        }
+    }
+
+    private void decide() throws IOException {
+        if (shouldCompress()) {
+            state = State.COMPRESSING;
+            response.setHeader("Content-Encoding", "gzip");
+            response.addHeader("Vary", "Accept-Encoding");
+            // The compressed length is unknown up front, fall back to chunked encoding
+            response.setContentLengthLong(-1);
+            gzip = new GZIPOutputStream(response.getOutputStream(), 8192, true);
+            pending.writeTo(gzip);
+            pending.reset();
+        } else {
+            passThrough();
+        }
+    }
+
+    private boolean shouldCompress() {
+        if (response.containsHeader("Content-Encoding")) {
+            return false;
+        }
+        if (declaredLength >= 0 && declaredLength < minSize) {
+            return false;
+        }
+        int status = response.getStatus();
+        if (status == HttpServletResponse.SC_NO_CONTENT || status == HttpServletResponse.SC_NOT_MODIFIED
+                || status == HttpServletResponse.SC_PARTIAL_CONTENT) {
+            return false;
+        }
+        return isCompressible(response.getContentType());
+    }
+
+    static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase();
+        if (type.startsWith("text/event-stream")) {
+            // Server-sent events must reach the client unbuffered
+            return false;
+        }
+        return type.startsWith("text/")
+                || type.startsWith("application/json")
+                || type.startsWith("application/javascript")
+                || type.startsWith("application/xml")
+                || type.startsWith("image/svg+xml");
+    }
+
+    private class CompressingOutputStream extends ServletOutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (state == State.UNDECIDED) {
+                if (pending.size() + len < minSize) {
+                    pending.write(b, off, len);
+                    return;
+                }
+                decide();
+            }
+            if (state == State.COMPRESSING) {
+                gzip.write(b, off, len);
+            } else {
+                response.getOutputStream().write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // An explicit flush means the caller wants bytes on the wire now
+            if (state == State.UNDECIDED && pending.size() > 0 && !finished) {
+                decide();
+            }
+            if (state == State.COMPRESSING) {
+                gzip.flush();
+            } else if (state == State.PASSTHROUGH) {
+                response.getOutputStream().flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            response.getOutputStream().close();
+        }
+
+        @Override
+        public boolean isReady() {
+            // Undecided bytes only go to the in-memory buffer
+            if (state == State.UNDECIDED) {
+                return true;
+            }
+            try {
+                return response.getOutputStream().isReady();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Non-blocking writers get the body uncompressed: a single write into
+         * the gzip stream may turn into several writes underneath, which the
+         * container only allows one at a time while it is ready.
+         */
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            if (state == State.COMPRESSING) {
+                throw new IllegalStateException("The response is already being compressed");
+            }
+            try {
+                passThrough();
+                response.getOutputStream().setWriteListener(writeListener);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
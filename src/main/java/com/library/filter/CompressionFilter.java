@@ -0,0 +1,245 @@
+package com.library.filter;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Compresses dynamic responses and serves precompressed static assets.
+ * <p>
+ * Dynamic output is gzip-compressed as it is written, never buffered beyond
+ * the first {@code minSize} bytes, which decide whether compressing is worth
+ * it. Responses that are small, already encoded or not text are passed
+ * through untouched. For static files the filter looks for a {@code .br} or
+ * {@code .gz} sibling produced at build time and sends that instead; the
+ * siblings are listed once at startup, so requests for other paths cost no
+ * lookup and leave nothing behind.
+ * <p>
+ * Brotli is only used for such precompressed files; the JDK has no Brotli
+ * encoder, so dynamic responses are gzip only.
+ */
+public class CompressionFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompressionFilter.class);
+
+    private static final int DEFAULT_MIN_SIZE = 1024;
+    private static final String[] STATIC_EXTENSIONS = {".css", ".js", ".svg", ".html"};
+
+    private ServletContext servletContext;
+    private int minSize = DEFAULT_MIN_SIZE;
+    // Paths of the precompressed variants in the application, e.g. /css/style.css.gz
+    private Set<String> precompressed = Set.of();
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        servletContext = filterConfig.getServletContext();
+        String configured = filterConfig.getInitParameter("minSize");
+        if (configured != null) {
+            minSize = Integer.parseInt(configured.trim());
+        }
+        Set<String> variants = new HashSet<>();
+        findVariants("/", variants);
+        precompressed = Set.copyOf(variants);
+        logger.info("[CompressionFilter] Initialized successfully (minSize={} bytes, {} precompressed files)",
+                minSize, precompressed.size());
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        String acceptEncoding = httpRequest.getHeader("Accept-Encoding");
+
+        if (servePrecompressed(httpRequest, httpResponse, acceptEncoding)) {
+            return;
+        }
+        if (!accepts(acceptEncoding, "gzip") || "HEAD".equals(httpRequest.getMethod()) || isEventStream(httpRequest)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        CompressingResponseWrapper wrapper = new CompressingResponseWrapper(httpResponse, minSize);
+        try {
+            chain.doFilter(request, wrapper);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new FinishOnComplete(wrapper));
+            } else {
+                wrapper.finish();
+            }
+        }
+    }
+
+    private boolean servePrecompressed(HttpServletRequest request, HttpServletResponse response,
+                                       String acceptEncoding) throws IOException {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            return false;
+        }
+        String path = request.getServletPath() + (request.getPathInfo() == null ? "" : request.getPathInfo());
+        if (!isStaticAsset(path)) {
+            return false;
+        }
+
+        String encoding = null;
+        if (accepts(acceptEncoding, "br") && hasVariant(path, ".br")) {
+            encoding = "br";
+        } else if (accepts(acceptEncoding, "gzip") && hasVariant(path, ".gz")) {
+            encoding = "gzip";
+        }
+        response.addHeader("Vary", "Accept-Encoding");
+        if (encoding == null) {
+            return false;
+        }
+
+        URL variant = servletContext.getResource(path + ("br".equals(encoding) ? ".br" : ".gz"));
+        URLConnection connection = variant.openConnection();
+        long lastModified = connection.getLastModified();
+        if (lastModified > 0) {
+            long ifModifiedSince = ifModifiedSince(request);
+            if (ifModifiedSince >= lastModified - lastModified % 1000) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return true;
+            }
+            response.setDateHeader("Last-Modified", lastModified);
+        }
+
+        String mimeType = servletContext.getMimeType(path);
+        response.setContentType(mimeType != null ? mimeType : "application/octet-stream");
+        response.setHeader("Content-Encoding", encoding);
+        response.setContentLengthLong(connection.getContentLengthLong());
+        if (!"HEAD".equals(request.getMethod())) {
+            try (InputStream in = connection.getInputStream()) {
+                in.transferTo(response.getOutputStream());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The If-Modified-Since date, or -1 when it is missing or cannot be
+     * parsed; a malformed header must not turn into a server error.
+     */
+    private static long ifModifiedSince(HttpServletRequest request) {
+        try {
+            return request.getDateHeader("If-Modified-Since");
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private boolean hasVariant(String path, String suffix) {
+        return precompressed.contains(path + suffix);
+    }
+
+    private void findVariants(String directory, Set<String> variants) {
+        Set<String> paths = servletContext.getResourcePaths(directory);
+        if (paths == null) {
+            return;
+        }
+        for (String path : paths) {
+            if (path.endsWith("/")) {
+                if (!"/WEB-INF/".equals(path) && !"/META-INF/".equals(path)) {
+                    findVariants(path, variants);
+                }
+            } else if ((path.endsWith(".br") || path.endsWith(".gz"))
+                    && isStaticAsset(path.substring(0, path.length() - 3))) {
+                variants.add(path);
+            }
+        }
+    }
+
+    /**
+     * Event streams must reach the client unbuffered, so they skip the
+     * compressing wrapper altogether.
+     */
+    private static boolean isEventStream(HttpServletRequest request) {
+        String accept = request.getHeader("Accept");
+        return accept != null && accept.contains("text/event-stream");
+    }
+
+    private static boolean isStaticAsset(String path) {
+        for (String extension : STATIC_EXTENSIONS) {
+            if (path.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows the coding, honouring
+     * {@code q=0} and the {@code *} wildcard.
+     */
+    static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String name = tokens[0].trim();
+            boolean allowed = true;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        allowed = Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        allowed = false;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase(coding)) {
+                return allowed;
+            }
+            if ("*".equals(name)) {
+                wildcard = allowed;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    @Override
+    public void destroy() {
+        logger.info("[CompressionFilter] Destroyed");
+    }
+
+    private static class FinishOnComplete implements AsyncListener {
+        private final CompressingResponseWrapper wrapper;
+
+        FinishOnComplete(CompressingResponseWrapper wrapper) {
+            this.wrapper = wrapper;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            wrapper.finish();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // finish happens in onComplete
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // finish happens in onComplete
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
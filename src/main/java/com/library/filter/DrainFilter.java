@@ -0,0 +1,114 @@
+package com.library.filter;
+
+import com.library.health.GracefulShutdown;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Counts the requests in flight for {@link GracefulShutdown} and, once the
+ * instance drains, turns away new writes with 503 so a client retries them
+ * on another replica instead of having them cut off mid-transaction. Reads
+ * are still served until the container stops.
+ * <p>
+ * Async requests count until they complete. Availability streams are left
+ * out: they stay open for as long as the page does and are closed when the
+ * broadcaster stops. Init param {@code drainMillis} (default 20000) is how
+ * long the drain waits.
+ */
+public class DrainFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DrainFilter.class);
+
+    private static final long DEFAULT_DRAIN_MILLIS = 20_000;
+
+    private long drainMillis = DEFAULT_DRAIN_MILLIS;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        String configured = filterConfig.getInitParameter("drainMillis");
+        if (configured != null && !configured.isBlank()) {
+            drainMillis = Long.parseLong(configured.trim());
+        }
+        long timeout = drainMillis;
+        filterConfig.getServletContext().setAttribute(GracefulShutdown.DRAIN_ATTRIBUTE,
+                (Runnable) () -> GracefulShutdown.drain(timeout));
+        logger.info("[DrainFilter] Initialized successfully (drainMillis={})", drainMillis);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        if (isStream(httpRequest)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (GracefulShutdown.isDraining() && isWrite(httpRequest)) {
+            httpResponse.setHeader("Connection", "close");
+            httpResponse.setHeader("Retry-After", "1");
+            httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        GracefulShutdown.requestStarted();
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new FinishListener());
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                GracefulShutdown.requestFinished();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // Plain Tomcat stops the context without asking; drain what is left
+        GracefulShutdown.drain(drainMillis);
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !"GET".equals(method) && !"HEAD".equals(method) && !"OPTIONS".equals(method);
+    }
+
+    private static boolean isStream(HttpServletRequest request) {
+        String accept = request.getHeader("Accept");
+        return accept != null && accept.contains("text/event-stream");
+    }
+
+    private static class FinishListener implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            GracefulShutdown.requestFinished();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // Followed by onComplete
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // Followed by onComplete
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Not restarted
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.library.filter;
+
+import com.library.dao.IdempotencyKeyDAO;
+import com.library.metrics.Metrics;
+import com.library.session.SessionUser;
+import io.micrometer.core.instrument.Counter;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+/**
+ * Answers repeated borrow and return submissions with the outcome of the
+ * first one, so a double-click or a retry on a flaky connection does not
+ * run the lookups and writes again.
+ * <p>
+ * The forms carry a hidden {@code idempotencyKey}, generated in the browser
+ * each time the page is shown (js/idempotency.js). Scoped to the user and
+ * the path, the key is claimed in an {@link IdempotencyStore} and then in
+ * the {@code idempotency_keys} table, before the submission runs; a
+ * duplicate that arrives while the first is still running waits for it, on
+ * this replica or any other. The redirect of a successful submission is kept
+ * in both, so other replicas and restarts give the same answer; anything
+ * else releases the key and a retry runs normally. Submissions without a
+ * key are not affected.
+ * <p>
+ * Init params: {@code maxKeys} (default 10000) and {@code ttlMinutes}
+ * (default 60) bound the memory, {@code retentionHours} (default 24) the
+ * table, purged hourly, and {@code waitMillis} (default 5000) is how long a
+ * duplicate waits for the first submission.
+ */
+public class IdempotencyFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyFilter.class);
+
+    static final String PARAM = "idempotencyKey";
+
+    private static final Pattern VALID_KEY = Pattern.compile("[A-Za-z0-9-]{16,64}");
+
+    private static final long POLL_MILLIS = 100;
+    private static final String STILL_PROCESSING = "my-borrowings?error=Your request is still being processed";
+
+    private final IdempotencyKeyDAO keyDAO;
+    private IdempotencyStore store;
+    private long waitMillis;
+    private int retentionHours;
+    private ScheduledExecutorService purger;
+    private Counter replayedFromMemory;
+    private Counter replayedFromDatabase;
+
+    public IdempotencyFilter() {
+        this(new IdempotencyKeyDAO());
+    }
+
+    IdempotencyFilter(IdempotencyKeyDAO keyDAO) {
+        this.keyDAO = keyDAO;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        store = new IdempotencyStore(
+                (int) param(filterConfig, "maxKeys", 10_000),
+                TimeUnit.MINUTES.toMillis(param(filterConfig, "ttlMinutes", 60)));
+        waitMillis = param(filterConfig, "waitMillis", 5000);
+        retentionHours = (int) param(filterConfig, "retentionHours", 24);
+        replayedFromMemory = Counter.builder("idempotency_replayed").tag("source", "memory").register(Metrics.registry());
+        replayedFromDatabase = Counter.builder("idempotency_replayed").tag("source", "database").register(Metrics.registry());
+
+        purger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "idempotency-purge");
+            t.setDaemon(true);
+            return t;
+        });
+        purger.scheduleWithFixedDelay(this::purge, 1, 60, TimeUnit.MINUTES);
+        logger.info("[IdempotencyFilter] Initialized successfully");
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        String key = requestKey(httpRequest);
+        if (key == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        CompletableFuture<String> first = store.claim(key);
+        if (first != null) {
+            String outcome = await(first);
+            if (outcome != null) {
+                replayedFromMemory.increment();
+                httpResponse.sendRedirect(outcome);
+                return;
+            }
+            if (!first.isDone() || store.claim(key) != null) {
+                // Still running after the wait, or another retry got in first
+                httpResponse.sendRedirect(STILL_PROCESSING);
+                return;
+            }
+        }
+
+        SessionUser user = SessionUser.current(httpRequest);
+        if (!claimInDatabase(key, user.getId(), httpResponse)) {
+            return;
+        }
+
+        RedirectCapture capture = new RedirectCapture(httpResponse);
+        boolean async = false;
+        try {
+            chain.doFilter(request, capture);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new FinishListener(key, user.getId(), capture));
+                async = true;
+            }
+        } catch (IOException | ServletException | RuntimeException e) {
+            release(key);
+            throw e;
+        }
+        if (!async) {
+            finish(key, user.getId(), capture.location);
+        }
+    }
+
+    /**
+     * Returns the user- and path-scoped key of the submission, or null if it
+     * does not take part.
+     */
+    String requestKey(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return null;
+        }
+        String token = request.getParameter(PARAM);
+        SessionUser user = SessionUser.current(request);
+        if (token == null || user == null || !VALID_KEY.matcher(token).matches()) {
+            return null;
+        }
+        return user.getId() + ":" + request.getServletPath() + ":" + token;
+    }
+
+    /**
+     * Claims the key in the table, where a submission of it on another
+     * replica would have claimed it too. If one has, waits for its outcome
+     * and answers with it.
+     *
+     * @return true if the caller owns the key and runs the submission
+     */
+    private boolean claimInDatabase(String key, int userId, HttpServletResponse response) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        while (true) {
+            // -1 leaves only the claim in memory, which still covers this replica
+            if (keyDAO.claim(key, userId) != 0) {
+                return true;
+            }
+            String recorded = keyDAO.findOutcome(key);
+            if (recorded != null) {
+                store.complete(key, recorded);
+                replayedFromDatabase.increment();
+                response.sendRedirect(recorded);
+                return false;
+            }
+            if (System.nanoTime() >= deadline) {
+                store.release(key);
+                response.sendRedirect(STILL_PROCESSING);
+                return false;
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                store.release(key);
+                throw new IOException("Interrupted waiting for an earlier submission", e);
+            }
+        }
+    }
+
+    private void finish(String key, int userId, String location) {
+        // Only a success changed anything; errors are recomputed on a retry
+        if (location != null && location.contains("success=")) {
+            store.complete(key, location);
+            keyDAO.record(key, userId, location);
+        } else {
+            release(key);
+        }
+    }
+
+    private void release(String key) {
+        store.release(key);
+        keyDAO.release(key);
+    }
+
+    private String await(CompletableFuture<String> outcome) throws IOException {
+        try {
+            return outcome.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for an earlier submission", e);
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private void purge() {
+        int removed = keyDAO.purge(retentionHours);
+        if (removed > 0) {
+            logger.info("Purged {} idempotency keys", removed);
+        }
+    }
+
+    private static long param(FilterConfig config, String name, long defaultValue) {
+        String configured = config.getInitParameter(name);
+        return configured == null || configured.isBlank() ? defaultValue : Long.parseLong(configured.trim());
+    }
+
+    @Override
+    public void destroy() {
+        if (purger != null) {
+            purger.shutdownNow();
+        }
+        logger.info("[IdempotencyFilter] Destroyed");
+    }
+
+    /** Remembers where the servlet redirected to. */
+    private static final class RedirectCapture extends HttpServletResponseWrapper {
+        private volatile String location;
+
+        RedirectCapture(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            this.location = location;
+            super.sendRedirect(location);
+        }
+    }
+
+    private class FinishListener implements AsyncListener {
+        private final String key;
+        private final int userId;
+        private final RedirectCapture capture;
+
+        FinishListener(String key, int userId, RedirectCapture capture) {
+            this.key = key;
+            this.userId = userId;
+            this.capture = capture;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            finish(key, userId, capture.location);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // Completed afterwards; the location tells whether it got through
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // Completed afterwards
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Not restarted
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.library.filter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Outcomes of recent submissions by idempotency key, bounded in size and age.
+ * <p>
+ * The first request with a key {@linkplain #claim claims} it and later
+ * {@linkplain #complete completes} it with its outcome, or
+ * {@linkplain #release releases} it when nothing happened that a retry
+ * should not redo. Requests that come in meanwhile get the claimant's
+ * future, which yields the outcome, or null once the key is released.
+ */
+public class IdempotencyStore {
+
+    private static final class Slot {
+        final CompletableFuture<String> outcome = new CompletableFuture<>();
+        final long createdAt;
+
+        Slot(long createdAt) {
+            this.createdAt = createdAt;
+        }
+    }
+
+    private final int maxKeys;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    // Insertion order, so the eldest entries are also the first to expire
+    private final LinkedHashMap<String, Slot> slots = new LinkedHashMap<>();
+
+    public IdempotencyStore(int maxKeys, long ttlMillis) {
+        this(maxKeys, ttlMillis, System::nanoTime);
+    }
+
+    IdempotencyStore(int maxKeys, long ttlMillis, LongSupplier clock) {
+        this.maxKeys = maxKeys;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.clock = clock;
+    }
+
+    /**
+     * @return null if the caller now owns the key, otherwise the outcome of
+     *         the request that does
+     */
+    public synchronized CompletableFuture<String> claim(String key) {
+        long now = clock.getAsLong();
+        expire(now);
+        Slot slot = slots.get(key);
+        if (slot != null) {
+            return slot.outcome;
+        }
+        slots.put(key, new Slot(now));
+        if (slots.size() > maxKeys) {
+            // Evicts the oldest, completed or not; its waiters keep their future
+            Iterator<Slot> eldest = slots.values().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+        return null;
+    }
+
+    public void complete(String key, String outcome) {
+        Slot slot;
+        synchronized (this) {
+            slot = slots.get(key);
+        }
+        if (slot != null) {
+            slot.outcome.complete(outcome);
+        }
+    }
+
+    public void release(String key) {
+        Slot slot;
+        synchronized (this) {
+            slot = slots.remove(key);
+        }
+        if (slot != null) {
+            slot.outcome.complete(null);
+        }
+    }
+
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    private void expire(long now) {
+        Iterator<Map.Entry<String, Slot>> it = slots.entrySet().iterator();
+        while (it.hasNext()) {
+            Slot slot = it.next().getValue();
+            if (now - slot.createdAt < ttlNanos) {
+                break;
+            }
+            it.remove();
+            slot.outcome.complete(null);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.library.filter;
+
+import com.library.util.DatabaseConnection;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Turns away changes while the database circuit is open. Browsing keeps
+ * working from the catalog snapshot and returns go to the return journal,
+ * but sign-in, borrowing, holds and admin edits cannot, so their POSTs get
+ * 503 with Retry-After and the maintenance page instead of a misleading
+ * redirect. Init param {@code retryAfterSeconds} (default 30).
+ */
+public class MaintenanceFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(MaintenanceFilter.class);
+
+    static final String MESSAGE = "The library is in read-only maintenance mode. "
+            + "You can still browse the catalog; please try again in a few minutes.";
+
+    private String retryAfter = "30";
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        String configured = filterConfig.getInitParameter("retryAfterSeconds");
+        if (configured != null && !configured.isBlank()) {
+            retryAfter = configured.trim();
+        }
+        logger.info("[MaintenanceFilter] Initialized successfully");
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        if (isRead(httpRequest.getMethod()) || !DatabaseConnection.isCircuitOpen()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        logger.info("Rejected {} {} during maintenance", httpRequest.getMethod(), httpRequest.getServletPath());
+        httpResponse.setHeader("Retry-After", retryAfter);
+        httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, MESSAGE);
+    }
+
+    private static boolean isRead(String method) {
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+
+    @Override
+    public void destroy() {
+        logger.info("[MaintenanceFilter] Destroyed");
+    }
+}
@@ -0,0 +1,163 @@
+package com.library.filter;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+
+/**
+ * Response wrapper that streams the body to the client as usual and keeps a
+ * copy of it, so a page rendered for one visitor can be served to the next.
+ * The copy is given up on anything that makes the response unfit to share:
+ * an error, a redirect, a cookie, or a body above {@code maxBytes}.
+ */
+class PageCaptureWrapper extends HttpServletResponseWrapper {
+
+    private final int maxBytes;
+    private final ByteArrayOutputStream copy = new ByteArrayOutputStream(64 * 1024);
+
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+    private boolean abandoned;
+
+    PageCaptureWrapper(HttpServletResponse response, int maxBytes) {
+        super(response);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        if (outputStream == null) {
+            outputStream = new CopyingOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            outputStream = new CopyingOutputStream(super.getOutputStream());
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, Charset.forName(getCharacterEncoding())));
+        }
+        return writer;
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        abandoned = true;
+        super.addCookie(cookie);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        abandoned = true;
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        abandoned = true;
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        abandoned = true;
+        super.sendRedirect(location);
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        copy.reset();
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        copy.reset();
+    }
+
+    /**
+     * Writes whatever the writer still buffers and returns the body, or null
+     * if the response is not an HTML page that can be shared.
+     */
+    byte[] finish() {
+        if (writer != null) {
+            writer.flush();
+        }
+        String contentType = getContentType();
+        if (abandoned || getStatus() != HttpServletResponse.SC_OK || copy.size() == 0
+                || contentType == null || !contentType.startsWith("text/html")) {
+            return null;
+        }
+        return copy.toByteArray();
+    }
+
+    private class CopyingOutputStream extends ServletOutputStream {
+        private final ServletOutputStream out;
+
+        CopyingOutputStream(ServletOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (!abandoned) {
+                if (copy.size() + len > maxBytes) {
+                    abandoned = true;
+                    copy.reset();
+                } else {
+                    copy.write(b, off, len);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return out.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            out.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.library.filter;
+
+import com.library.cache.CatalogVersion;
+import com.library.cache.PrerenderedCatalog;
+import com.library.dao.BookDAO;
+import com.library.session.SessionUser;
+import com.library.util.DatabaseConnection;
+import com.library.util.HttpCacheUtil;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Serves anonymous {@code /books} requests from pre-rendered pages.
+ * <p>
+ * Only the default page and plain {@code ?category=} pages are eligible;
+ * searches, signed-in users and pages with messages always reach
+ * {@link com.library.servlet.BookServlet}. A request for a page that is
+ * missing or stale is rendered by the servlet as usual, and its response is
+ * kept for the requests that follow. Init params: {@code enabled} (default
+ * true) and {@code diskDirectory} (optional).
+ */
+public class PrerenderFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrerenderFilter.class);
+
+    private static final int MAX_PAGE_BYTES = 4 * 1024 * 1024;
+
+    private PrerenderedCatalog catalog;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        if ("false".equalsIgnoreCase(filterConfig.getInitParameter("enabled"))) {
+            logger.info("[PrerenderFilter] Disabled");
+            return;
+        }
+        String dir = filterConfig.getInitParameter("diskDirectory");
+        catalog = new PrerenderedCatalog(new BookDAO(), dir == null || dir.isBlank() ? null : Paths.get(dir));
+        logger.info("[PrerenderFilter] Initialized successfully");
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        // The pages show availability, which is unknown while the database is down
+        String key = catalog == null || DatabaseConnection.isCircuitOpen() ? null : pageKey(httpRequest);
+        if (key == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        PrerenderedCatalog.Page page = catalog.get(key);
+        if (page == null) {
+            renderAndKeep(key, httpRequest, httpResponse, chain);
+            return;
+        }
+
+        // Tagged with the page's content version, which stock changes leave alone; BookServlet's
+        // tags count every change instead, so they carry another prefix and never match these
+        String etag = HttpCacheUtil.weakEtag("books-page", page.getVersion(), HttpCacheUtil.queryKey(httpRequest));
+        if (HttpCacheUtil.checkNotModified(httpRequest, httpResponse, etag, CatalogVersion.lastModified())) {
+            return;
+        }
+
+        httpResponse.setContentType("text/html;charset=UTF-8");
+        httpResponse.addHeader("Vary", "Accept-Encoding");
+        byte[] gzip = page.getGzip();
+        if (CompressionFilter.accepts(httpRequest.getHeader("Accept-Encoding"), "gzip")) {
+            httpResponse.setHeader("Content-Encoding", "gzip");
+            httpResponse.setContentLength(gzip.length);
+            httpResponse.getOutputStream().write(gzip);
+        } else {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+                in.transferTo(httpResponse.getOutputStream());
+            }
+        }
+    }
+
+    PrerenderedCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Lets the servlet render the page for this request and keeps a copy,
+     * unless another request is already rendering it.
+     */
+    private void renderAndKeep(String key, HttpServletRequest request, HttpServletResponse response,
+                               FilterChain chain) throws IOException, ServletException {
+        PrerenderedCatalog.Render render = catalog.startRender(key);
+        if (render == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        PageCaptureWrapper capture = new PageCaptureWrapper(response, MAX_PAGE_BYTES);
+        boolean async = false;
+        try {
+            chain.doFilter(request, capture);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new KeepOnComplete(render, request, capture));
+                async = true;
+            }
+        } catch (IOException | ServletException | RuntimeException e) {
+            catalog.finishRender(render, null);
+            throw e;
+        }
+        if (!async) {
+            catalog.finishRender(render, keepable(request, capture));
+        }
+    }
+
+    /** The captured page, or null if the servlet said it is not fit to keep. */
+    private static byte[] keepable(ServletRequest request, PageCaptureWrapper capture) {
+        byte[] html = capture.finish();
+        return request.getAttribute(PrerenderedCatalog.DO_NOT_KEEP) == null ? html : null;
+    }
+
+    /**
+     * Returns the pre-rendered page key for the request, or null when the
+     * request has to be rendered for this visitor.
+     */
+    String pageKey(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return null;
+        }
+        if (SessionUser.current(request) != null) {
+            return null;
+        }
+
+        Map<String, String[]> params = request.getParameterMap();
+        if (params.isEmpty()) {
+            return PrerenderedCatalog.DEFAULT_KEY;
+        }
+        String[] category = params.get("category");
+        if (params.size() == 1 && category != null && category.length == 1
+                && catalog.isKnownCategory(category[0])) {
+            return category[0];
+        }
+        return null;
+    }
+
+    @Override
+    public void destroy() {
+        if (catalog != null) {
+            catalog.shutdown();
+        }
+        logger.info("[PrerenderFilter] Destroyed");
+    }
+
+    private class KeepOnComplete implements AsyncListener {
+        private final PrerenderedCatalog.Render render;
+        private final ServletRequest request;
+        private final PageCaptureWrapper capture;
+        private boolean errored;
+
+        KeepOnComplete(PrerenderedCatalog.Render render, ServletRequest request, PageCaptureWrapper capture) {
+            this.render = render;
+            this.request = request;
+            this.capture = capture;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            catalog.finishRender(render, errored ? null : keepable(request, capture));
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            errored = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            errored = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
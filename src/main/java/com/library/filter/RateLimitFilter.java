@@ -0,0 +1,131 @@
+package com.library.filter;
+
+import com.library.metrics.Metrics;
+import com.library.session.SessionUser;
+import io.micrometer.core.instrument.Counter;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits POSTs to the endpoints it is mapped to, per client address and per
+ * account, with a {@link RateLimiter} for each. Requests over a limit get
+ * 429 with Retry-After and are counted in {@code rate_limit_rejected}.
+ * <p>
+ * Limits are init params named {@code <endpoint>.perIp} and
+ * {@code <endpoint>.perAccount}, where the endpoint is the servlet path
+ * without its slash, e.g. {@code login.perIp}, and the value is
+ * {@code <requests>/<seconds>}. The account is the submitted username on
+ * login and register and the signed-in user elsewhere. Init param
+ * {@code maxKeys} (default 100000) bounds the keys tracked per limit.
+ * <p>
+ * The client address is the request's remote address; behind a proxy,
+ * Tomcat's RemoteIpValve has to supply the real one.
+ */
+public class RateLimitFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private static final int DEFAULT_MAX_KEYS = 100_000;
+
+    private final Map<String, Limit> limits = new HashMap<>();
+
+    private static final class Limit {
+        final RateLimiter limiter;
+        final Counter rejected;
+
+        Limit(RateLimiter limiter, Counter rejected) {
+            this.limiter = limiter;
+            this.rejected = rejected;
+        }
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        String configuredMaxKeys = filterConfig.getInitParameter("maxKeys");
+        int maxKeys = configuredMaxKeys == null ? DEFAULT_MAX_KEYS : Integer.parseInt(configuredMaxKeys.trim());
+
+        for (String name : Collections.list(filterConfig.getInitParameterNames())) {
+            if (!name.endsWith(".perIp") && !name.endsWith(".perAccount")) {
+                continue;
+            }
+            int dot = name.lastIndexOf('.');
+            String value = filterConfig.getInitParameter(name).trim();
+            String[] parts = value.split("/");
+            if (parts.length != 2) {
+                throw new ServletException("Rate limit " + name + " must be <requests>/<seconds>, was " + value);
+            }
+            RateLimiter limiter = new RateLimiter(Integer.parseInt(parts[0].trim()),
+                    Long.parseLong(parts[1].trim()), TimeUnit.SECONDS, maxKeys);
+            Counter rejected = Counter.builder("rate_limit_rejected")
+                    .tag("endpoint", name.substring(0, dot))
+                    .tag("key", name.substring(dot + 1))
+                    .register(Metrics.registry());
+            limits.put(name, new Limit(limiter, rejected));
+        }
+        logger.info("[RateLimitFilter] Initialized successfully ({} limits)", limits.size());
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        if (!"POST".equals(httpRequest.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String endpoint = httpRequest.getServletPath().substring(1);
+        long wait = acquire(endpoint + ".perIp", httpRequest.getRemoteAddr());
+        if (wait == 0) {
+            String account = account(httpRequest);
+            if (account != null) {
+                wait = acquire(endpoint + ".perAccount", account);
+            }
+        }
+
+        if (wait > 0) {
+            long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+            logger.debug("Rate limit hit on {} from {}", endpoint, httpRequest.getRemoteAddr());
+            httpResponse.setHeader("Retry-After", String.valueOf(seconds));
+            httpResponse.sendError(429, "Too many requests, please try again in " + seconds + " seconds");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * @return 0 if allowed or no such limit, otherwise nanoseconds to wait
+     */
+    private long acquire(String limitName, String key) {
+        Limit limit = limits.get(limitName);
+        if (limit == null) {
+            return 0;
+        }
+        long wait = limit.limiter.tryAcquire(key);
+        if (wait > 0) {
+            limit.rejected.increment();
+        }
+        return wait;
+    }
+
+    private static String account(HttpServletRequest request) {
+        SessionUser user = SessionUser.current(request);
+        if (user != null) {
+            return String.valueOf(user.getId());
+        }
+        String username = request.getParameter("username");
+        return username == null || username.isBlank() ? null : username.trim().toLowerCase();
+    }
+}
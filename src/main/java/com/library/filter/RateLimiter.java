@@ -0,0 +1,121 @@
+package com.library.filter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets per key, e.g. per client address or per account.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} updated by compare-and-set, in
+ * the virtual-scheduling form of the token bucket: it holds the time at
+ * which the bucket would be full again, so taking a token is one CAS and a
+ * bucket needs no refill thread. Buckets live in a fixed number of stripes,
+ * each a small LRU map behind its own lock held only for the lookup. A
+ * stripe that reaches its share of {@code maxKeys} first drops buckets that
+ * have refilled completely, as they carry no state, and then the least
+ * recently used ones.
+ */
+public class RateLimiter {
+
+    private static final int STRIPES = 16;
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int keysPerStripe;
+    private final LongSupplier clock;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * @param capacity requests allowed in a burst
+     * @param period   time over which {@code capacity} tokens refill
+     * @param maxKeys  upper bound on the keys tracked
+     */
+    public RateLimiter(int capacity, long period, TimeUnit unit, int maxKeys) {
+        this(capacity, period, unit, maxKeys, System::nanoTime);
+    }
+
+    RateLimiter(int capacity, long period, TimeUnit unit, int maxKeys, LongSupplier clock) {
+        if (capacity < 1 || period < 1) {
+            throw new IllegalArgumentException("Capacity and period must be positive");
+        }
+        this.intervalNanos = Math.max(1, unit.toNanos(period) / capacity);
+        this.burstNanos = intervalNanos * (capacity - 1);
+        this.keysPerStripe = Math.max(1, maxKeys / STRIPES);
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Takes a token for the key.
+     *
+     * @return 0 if the request may proceed, otherwise the nanoseconds until
+     *         a token is available
+     */
+    public long tryAcquire(String key) {
+        long now = clock.getAsLong();
+        AtomicLong bucket = stripeFor(key).bucket(key, now);
+        while (true) {
+            long fullAt = bucket.get();
+            long start = Math.max(fullAt, now);
+            long wait = start - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, start + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.buckets.size();
+            }
+        }
+        return size;
+    }
+
+    private Stripe stripeFor(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    private class Stripe {
+        private final LinkedHashMap<String, AtomicLong> buckets = new LinkedHashMap<>(16, 0.75f, true);
+
+        synchronized AtomicLong bucket(String key, long now) {
+            AtomicLong bucket = buckets.get(key);
+            if (bucket != null) {
+                return bucket;
+            }
+            if (buckets.size() >= keysPerStripe) {
+                evict(now);
+            }
+            bucket = new AtomicLong(now);
+            buckets.put(key, bucket);
+            return bucket;
+        }
+
+        private void evict(long now) {
+            Iterator<Map.Entry<String, AtomicLong>> entries = buckets.entrySet().iterator();
+            while (entries.hasNext()) {
+                if (entries.next().getValue().get() <= now) {
+                    entries.remove();
+                }
+            }
+            if (buckets.size() >= keysPerStripe) {
+                entries = buckets.entrySet().iterator();
+                entries.next();
+                entries.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.library.health;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the instance before it stops: readiness goes false so the load
+ * balancer stops sending traffic, new writes are turned away by
+ * {@link com.library.filter.DrainFilter}, and requests already in flight get
+ * until a deadline to finish, so a rolling deploy does not cut a borrow or a
+ * return in half.
+ * <p>
+ * {@link #drain} runs at most once per start; the embedded launcher calls it
+ * through the {@link #DRAIN_ATTRIBUTE} context attribute before stopping
+ * Tomcat, and the filter calls it again on destroy for a plain Tomcat.
+ */
+public final class GracefulShutdown {
+
+    private static final Logger logger = LoggerFactory.getLogger(GracefulShutdown.class);
+
+    /** Context attribute holding a {@link Runnable} that drains the instance. */
+    public static final String DRAIN_ATTRIBUTE = "com.library.health.drain";
+
+    private static final long POLL_MILLIS = 50;
+
+    private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+    private static volatile boolean draining;
+    private static boolean drained;
+
+    private GracefulShutdown() {
+    }
+
+    public static boolean isDraining() {
+        return draining;
+    }
+
+    public static void requestStarted() {
+        IN_FLIGHT.incrementAndGet();
+    }
+
+    public static void requestFinished() {
+        IN_FLIGHT.decrementAndGet();
+    }
+
+    public static int inFlight() {
+        return IN_FLIGHT.get();
+    }
+
+    /**
+     * Stops taking traffic and waits up to {@code timeoutMillis} for the
+     * requests in flight.
+     *
+     * @return false if requests were still running at the deadline
+     */
+    public static synchronized boolean drain(long timeoutMillis) {
+        if (drained) {
+            return IN_FLIGHT.get() == 0;
+        }
+        drained = true;
+        Readiness.markNotReady();
+        draining = true;
+        logger.info("Draining {} requests in flight, waiting up to {} ms", IN_FLIGHT.get(), timeoutMillis);
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try {
+            while (IN_FLIGHT.get() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(POLL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int left = IN_FLIGHT.get();
+        if (left > 0) {
+            logger.warn("Drain deadline passed with {} requests still in flight", left);
+            return false;
+        }
+        logger.info("Drained");
+        return true;
+    }
+
+    /**
+     * Takes traffic again, for a web application that is started anew in the
+     * same JVM.
+     */
+    public static synchronized void reset() {
+        drained = false;
+        draining = false;
+    }
+}
@@ -0,0 +1,26 @@
+package com.library.health;
+
+import com.library.util.DatabaseConnection;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+
+/**
+ * Declared first in web.xml so it is notified last on shutdown: by then the
+ * {@link com.library.filter.DrainFilter} has drained the requests in flight
+ * and the other listeners have stopped their background jobs, so nothing
+ * uses the database any more and the JDBC driver can be released.
+ */
+public class GracefulShutdownListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        GracefulShutdown.reset();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        // Already done by the filter unless it never started
+        GracefulShutdown.drain(0);
+        DatabaseConnection.shutdown();
+    }
+}
@@ -0,0 +1,66 @@
+package com.library.health;
+
+import com.library.dao.BookDAO;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the {@link WarmUp} in the background when the web application starts
+ * and marks the instance ready once it has gone through, retrying every
+ * {@code health.retryMillis} (default 2000) while the database cannot be
+ * reached. Context param {@code health.warmupIterations} (default 50) sets
+ * how often the hot paths run; 0 skips the warm-up but still waits for the
+ * database.
+ */
+public class HealthListener implements ServletContextListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(HealthListener.class);
+
+    private static final int DEFAULT_WARMUP_ITERATIONS = 50;
+    private static final long DEFAULT_RETRY_MILLIS = 2000;
+
+    private Thread warmer;
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        ServletContext context = sce.getServletContext();
+        WarmUp warmUp = new WarmUp(new BookDAO(),
+                (int) param(context, "health.warmupIterations", DEFAULT_WARMUP_ITERATIONS));
+        long retryMillis = param(context, "health.retryMillis", DEFAULT_RETRY_MILLIS);
+
+        warmer = new Thread(() -> warm(warmUp, retryMillis), "warm-up");
+        warmer.setDaemon(true);
+        warmer.start();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        Readiness.markNotReady();
+        if (warmer != null) {
+            warmer.interrupt();
+        }
+    }
+
+    private static void warm(WarmUp warmUp, long retryMillis) {
+        long start = System.currentTimeMillis();
+        try {
+            while (!warmUp.run()) {
+                Thread.sleep(retryMillis);
+            }
+        } catch (InterruptedException e) {
+            // Stopped before it was ready
+            Thread.currentThread().interrupt();
+            return;
+        }
+        Readiness.markReady();
+        logger.info("Ready for traffic {} ms after start", System.currentTimeMillis() - start);
+    }
+
+    private static long param(ServletContext context, String name, long defaultValue) {
+        String configured = context.getInitParameter(name);
+        return configured == null || configured.isBlank() ? defaultValue : Long.parseLong(configured.trim());
+    }
+}
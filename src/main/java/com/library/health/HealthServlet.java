@@ -0,0 +1,35 @@
+package com.library.health;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Probe endpoints for Kubernetes. {@code /health/live} answers as long as
+ * the container dispatches requests; {@code /health/ready} answers 503 until
+ * {@link Readiness} says the instance is warm. Both answer from memory with
+ * fixed bodies and never touch the database, so probes stay cheap however
+ * often they run.
+ */
+public class HealthServlet extends HttpServlet {
+
+    private static final byte[] UP = "UP\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NOT_READY = "NOT READY\n".getBytes(StandardCharsets.US_ASCII);
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        boolean up = !"/health/ready".equals(request.getServletPath()) || Readiness.isReady();
+        byte[] body = up ? UP : NOT_READY;
+
+        response.setStatus(up ? HttpServletResponse.SC_OK : HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setContentType("text/plain");
+        response.setHeader("Cache-Control", "no-store");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
@@ -0,0 +1,26 @@
+package com.library.health;
+
+/**
+ * Whether this instance should take traffic. Set by {@link HealthListener}
+ * once the database answers and the warm-up has run, and cleared again when
+ * the web application stops.
+ */
+public final class Readiness {
+
+    private static volatile boolean ready;
+
+    private Readiness() {
+    }
+
+    public static boolean isReady() {
+        return ready;
+    }
+
+    public static void markReady() {
+        ready = true;
+    }
+
+    public static void markNotReady() {
+        ready = false;
+    }
+}
@@ -0,0 +1,79 @@
+package com.library.health;
+
+import com.library.dao.BookDAO;
+import com.library.model.Book;
+import com.library.util.DatabaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Runs the hot read paths of the catalog a number of times before the
+ * instance takes traffic, so the JIT has compiled them and the JDBC driver
+ * has loaded its classes, and the first real visitors are not the ones
+ * paying for it.
+ */
+public class WarmUp {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmUp.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final BookDAO bookDAO;
+    private final int iterations;
+
+    public WarmUp(BookDAO bookDAO, int iterations) {
+        this.bookDAO = bookDAO;
+        this.iterations = iterations;
+    }
+
+    /**
+     * @return false if the database could not be reached; nothing else has
+     *         run in that case
+     */
+    public boolean run() {
+        if (!databaseAnswers()) {
+            return false;
+        }
+
+        long start = System.nanoTime();
+        int rows = 0;
+        for (int i = 0; i < iterations; i++) {
+            List<Book> books = bookDAO.findAll();
+            rows += books.size();
+            if (!books.isEmpty()) {
+                Book first = books.get(0);
+                bookDAO.findById(first.getId());
+                bookDAO.findStampById(first.getId());
+                bookDAO.findByCategory(first.getCategory());
+            }
+            bookDAO.getAllCategories();
+            bookDAO.search("a");
+            try {
+                bookDAO.visitPage(0, null, 20, rs -> rs.getString("title"));
+            } catch (IOException e) {
+                // The visitor writes nothing
+            }
+        }
+        logger.info("Warm-up ran {} iterations ({} rows) in {} ms",
+                iterations, rows, (System.nanoTime() - start) / 1_000_000);
+        return true;
+    }
+
+    private static boolean databaseAnswers() {
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getReadConnection();
+            return conn.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            logger.warn("Database not reachable yet: {}", e.getMessage());
+            return false;
+        } finally {
+            DatabaseConnection.closeConnection(conn);
+        }
+    }
+}
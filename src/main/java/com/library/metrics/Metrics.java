@@ -0,0 +1,20 @@
+package com.library.metrics;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+/**
+ * The application's meter registry, shared by everything that records
+ * metrics and scraped by {@link PrometheusMetricsServlet}.
+ */
+public final class Metrics {
+
+    private static final PrometheusMeterRegistry REGISTRY = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+
+    private Metrics() {
+    }
+
+    public static PrometheusMeterRegistry registry() {
+        return REGISTRY;
+    }
+}
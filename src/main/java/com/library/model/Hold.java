@@ -0,0 +1,110 @@
+package com.library.model;
+
+import java.sql.Timestamp;
+
+/**
+ * A place in the queue for a book with no copy on the shelf. A WAITING hold
+ * becomes READY when a returned copy is set aside for its holder, who then
+ * has until {@code expiresAt} to borrow it.
+ */
+public class Hold {
+    private int id;
+    private int userId;
+    private int bookId;
+    private String status;
+    private Timestamp createdAt;
+    private Timestamp readyAt;
+    private Timestamp expiresAt;
+
+    // Derived and joined data
+    private int position;
+    private String bookTitle;
+    private String bookAuthor;
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    public int getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(int bookId) {
+        this.bookId = bookId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Timestamp createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Timestamp getReadyAt() {
+        return readyAt;
+    }
+
+    public void setReadyAt(Timestamp readyAt) {
+        this.readyAt = readyAt;
+    }
+
+    public Timestamp getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Timestamp expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Place in the queue, 1 being next in line. 0 once the hold is READY.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    public String getBookTitle() {
+        return bookTitle;
+    }
+
+    public void setBookTitle(String bookTitle) {
+        this.bookTitle = bookTitle;
+    }
+
+    public String getBookAuthor() {
+        return bookAuthor;
+    }
+
+    public void setBookAuthor(String bookAuthor) {
+        this.bookAuthor = bookAuthor;
+    }
+
+    public boolean isReady() {
+        return "READY".equals(status);
+    }
+}
@@ -0,0 +1,345 @@
+package com.library.service;
+
+import com.library.cache.InvalidationBus;
+import com.library.dao.BookDAO;
+import com.library.util.JsonWriter;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Pushes availability changes to open Server-Sent Events streams.
+ * <p>
+ * Each stream is a {@link Subscriber} watching a few book ids. Streams use
+ * non-blocking output, so an open tab costs a registered object and a socket,
+ * never a thread. Borrow and return call {@link #bookChanged}; changes made
+ * on other replicas arrive through the {@link InvalidationBus}. Lookups and
+ * heartbeats run on one shared thread.
+ * <p>
+ * A slow client never holds up the others: its pending events are coalesced
+ * to the latest state per book, and a stream that cannot be written for
+ * {@value #MAX_BLOCKED_SECONDS} seconds is closed so the browser reconnects.
+ */
+public class AvailabilityBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityBroadcaster.class);
+
+    private static final long HEARTBEAT_SECONDS = 25;
+    private static final long MAX_BLOCKED_SECONDS = 60;
+    // visitAvailability binds one parameter per id
+    private static final int REFRESH_BATCH = 100;
+
+    private static final AvailabilityBroadcaster SHARED = new AvailabilityBroadcaster(new BookDAO());
+
+    private final BookDAO bookDAO;
+    private final Map<Integer, Set<Subscriber>> watchers = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Consumer<String> remoteChanges = this::remoteBookChanged;
+    private ScheduledExecutorService executor;
+
+    AvailabilityBroadcaster(BookDAO bookDAO) {
+        this.bookDAO = bookDAO;
+    }
+
+    public static AvailabilityBroadcaster shared() {
+        return SHARED;
+    }
+
+    /**
+     * Starts heartbeats and listening for remote changes. Safe to call more than once.
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "availability-broadcaster");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+        InvalidationBus.subscribe(InvalidationBus.BOOK, remoteChanges);
+        InvalidationBus.subscribe(InvalidationBus.STOCK, remoteChanges);
+    }
+
+    /**
+     * Closes every open stream and stops the broadcaster thread.
+     */
+    public synchronized void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        InvalidationBus.unsubscribe(InvalidationBus.BOOK, remoteChanges);
+        InvalidationBus.unsubscribe(InvalidationBus.STOCK, remoteChanges);
+        executor.shutdownNow();
+        executor = null;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+    }
+
+    public void register(Subscriber subscriber) {
+        subscribers.add(subscriber);
+        for (Integer bookId : subscriber.bookIds) {
+            watchers.computeIfAbsent(bookId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+        // The first event per book is the current state
+        submit(() -> refresh(subscriber.bookIds));
+    }
+
+    void unregister(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        for (Integer bookId : subscriber.bookIds) {
+            watchers.computeIfPresent(bookId, (id, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    /**
+     * Called after a committed change of the book's stock. Does nothing
+     * unless a stream is watching the book.
+     */
+    public void bookChanged(int bookId) {
+        if (watchers.containsKey(bookId)) {
+            submit(() -> refresh(List.of(bookId)));
+        }
+    }
+
+    private void remoteBookChanged(String key) {
+        if (InvalidationBus.ALL_KEYS.equals(key)) {
+            submit(() -> refresh(new ArrayList<>(watchers.keySet())));
+            return;
+        }
+        try {
+            bookChanged(Integer.parseInt(key));
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring book invalidation with key '{}'", key);
+        }
+    }
+
+    private synchronized void submit(Runnable task) {
+        if (executor != null) {
+            executor.execute(task);
+        }
+    }
+
+    void refresh(Collection<Integer> bookIds) {
+        List<Integer> batch = new ArrayList<>(Math.min(bookIds.size(), REFRESH_BATCH));
+        for (Integer bookId : bookIds) {
+            batch.add(bookId);
+            if (batch.size() == REFRESH_BATCH) {
+                refreshBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            refreshBatch(batch);
+        }
+    }
+
+    private void refreshBatch(List<Integer> bookIds) {
+        try {
+            bookDAO.visitAvailability(bookIds, rs ->
+                    publish(rs.getInt("id"), rs.getInt("available_quantity"), rs.getInt("quantity")));
+        } catch (IOException e) {
+            // Subscribers handle their own write failures, nothing else throws here
+            logger.warn("Failed to refresh availability", e);
+        }
+    }
+
+    void publish(int bookId, int available, int quantity) {
+        Set<Subscriber> watching = watchers.get(bookId);
+        if (watching != null) {
+            for (Subscriber subscriber : watching) {
+                subscriber.offer(bookId, available, quantity);
+            }
+        }
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeat();
+        }
+    }
+
+    /**
+     * One open event stream. Writes only while the container reports the
+     * output ready, and finishes the rest from {@link #onWritePossible}.
+     */
+    public static final class Subscriber implements WriteListener, AsyncListener {
+
+        private final AvailabilityBroadcaster broadcaster;
+        private final AsyncContext asyncContext;
+        private final ServletOutputStream out;
+        private final Set<Integer> bookIds;
+
+        // Guarded by this
+        private final Map<Integer, String> pending = new LinkedHashMap<>();
+        private final Map<Integer, Long> lastSent = new HashMap<>();
+        private StringBuilder preamble = new StringBuilder("retry: 5000\n\n");
+        private boolean heartbeatDue;
+        private long blockedSince;
+        private boolean closed;
+
+        public Subscriber(AvailabilityBroadcaster broadcaster, AsyncContext asyncContext,
+                          ServletOutputStream out, Set<Integer> bookIds) {
+            this.broadcaster = broadcaster;
+            this.asyncContext = asyncContext;
+            this.out = out;
+            this.bookIds = Set.copyOf(bookIds);
+        }
+
+        synchronized void offer(int bookId, int available, int quantity) {
+            long state = ((long) available << 32) | (quantity & 0xffffffffL);
+            Long previous = lastSent.put(bookId, state);
+            if (closed || (previous != null && previous == state)) {
+                return;
+            }
+            pending.put(bookId, event(bookId, available, quantity));
+            drain();
+        }
+
+        synchronized void heartbeat() {
+            if (closed) {
+                return;
+            }
+            if (blockedSince != 0 && System.nanoTime() - blockedSince > TimeUnit.SECONDS.toNanos(MAX_BLOCKED_SECONDS)) {
+                logger.debug("Closing availability stream that stopped reading");
+                close();
+                return;
+            }
+            heartbeatDue = true;
+            drain();
+        }
+
+        private void drain() {
+            if (closed) {
+                return;
+            }
+            try {
+                if (!out.isReady()) {
+                    markBlocked();
+                    return;
+                }
+                String chunk = takePending();
+                if (chunk != null) {
+                    out.write(chunk.getBytes(StandardCharsets.UTF_8));
+                    if (!out.isReady()) {
+                        markBlocked();
+                        return;
+                    }
+                    out.flush();
+                }
+                blockedSince = 0;
+            } catch (IOException | IllegalStateException e) {
+                close();
+            }
+        }
+
+        private String takePending() {
+            if (pending.isEmpty() && !heartbeatDue && preamble == null) {
+                return null;
+            }
+            StringBuilder chunk = preamble != null ? preamble : new StringBuilder();
+            preamble = null;
+            for (String event : pending.values()) {
+                chunk.append(event);
+            }
+            pending.clear();
+            if (heartbeatDue && chunk.length() == 0) {
+                // A comment line keeps proxies from timing out an idle stream
+                chunk.append(": ping\n\n");
+            }
+            heartbeatDue = false;
+            return chunk.toString();
+        }
+
+        private void markBlocked() {
+            if (blockedSince == 0) {
+                blockedSince = System.nanoTime();
+            }
+        }
+
+        private static String event(int bookId, int available, int quantity) {
+            StringWriter data = new StringWriter(64);
+            try {
+                new JsonWriter(data).beginObject()
+                        .name("id").value(bookId)
+                        .name("available").value(available)
+                        .name("quantity").value(quantity)
+                        .endObject();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return "event: availability\ndata: " + data + "\n\n";
+        }
+
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            broadcaster.unregister(this);
+            try {
+                asyncContext.complete();
+            } catch (IllegalStateException e) {
+                // Already completed by the container
+            }
+        }
+
+        @Override
+        public synchronized void onWritePossible() {
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            close();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            synchronized (this) {
+                closed = true;
+            }
+            broadcaster.unregister(this);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Not restarted
+        }
+    }
+}
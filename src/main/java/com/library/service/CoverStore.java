@@ -0,0 +1,124 @@
+package com.library.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Local disk storage for book cover images.
+ * <p>
+ * Files are named after a hash of their content, so a name never refers to
+ * two different images and browsers may cache them forever.
+ */
+public class CoverStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoverStore.class);
+
+    /** Relative URL prefix under which covers are served. */
+    public static final String URL_PREFIX = "covers/";
+
+    private static final int HASH_LENGTH = 32;
+    private static final int COPY_BUFFER_SIZE = 16 * 1024;
+    private static final Pattern SAFE_NAME = Pattern.compile("[0-9a-f]{" + HASH_LENGTH + "}(-\\d+)?\\.(jpg|png|gif)");
+
+    private final Path root;
+
+    public CoverStore(Path root) {
+        this.root = root;
+        try {
+            Files.createDirectories(root);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create cover directory " + root, e);
+        }
+    }
+
+    /**
+     * Uses {@code COVER_STORAGE_DIR} when set, otherwise a folder in the user's home.
+     */
+    public static CoverStore fromEnvironment() {
+        String dir = System.getenv("COVER_STORAGE_DIR") != null
+                ? System.getenv("COVER_STORAGE_DIR")
+                : Paths.get(System.getProperty("user.home"), "online-library", "covers").toString();
+        return new CoverStore(Paths.get(dir));
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Copies the stream to disk in small chunks while hashing it, then moves
+     * the file to its content-hashed name. The upload is never held in memory.
+     *
+     * @return the stored file name, e.g. {@code 3f2a...e1.jpg}
+     */
+    public String store(InputStream in, String extension) throws IOException {
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(root, "upload-", ".tmp");
+        try {
+            try (InputStream hashing = new DigestInputStream(in, digest);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                int read;
+                while ((read = hashing.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+
+            String name = HexFormat.of().formatHex(digest.digest()).substring(0, HASH_LENGTH) + "." + extension;
+            Path target = root.resolve(name);
+            if (Files.exists(target)) {
+                logger.info("Cover {} already stored, reusing it", name);
+            } else {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return name;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Resolves a stored file name, or returns null when the name is not one
+     * this store could have produced (which also rules out path traversal).
+     */
+    public Path resolve(String name) {
+        if (name == null || !SAFE_NAME.matcher(name).matches()) {
+            return null;
+        }
+        return root.resolve(name);
+    }
+
+    public static String url(String name) {
+        return URL_PREFIX + name;
+    }
+
+    /**
+     * Name of a derived asset, e.g. the 320px thumbnail of {@code abc.png} is {@code abc-320.jpg}.
+     */
+    public static String variantName(String name, int width) {
+        int dot = name.lastIndexOf('.');
+        return name.substring(0, dot) + "-" + width + ".jpg";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.library.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk user import: counters plus the reason for every row
+ * that was skipped or failed, keyed by its CSV line number.
+ */
+public class ImportSummary {
+
+    private int created;
+    private int skipped;
+    private int failed;
+    private final List<String> messages = new ArrayList<>();
+
+    void recordCreated() {
+        created++;
+    }
+
+    void recordSkipped(int line, String reason) {
+        skipped++;
+        messages.add("Line " + line + ": skipped - " + reason);
+    }
+
+    void recordFailed(int line, String reason) {
+        failed++;
+        messages.add("Line " + line + ": failed - " + reason);
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public int getTotal() {
+        return created + skipped + failed;
+    }
+
+    public List<String> getMessages() {
+        return Collections.unmodifiableList(messages);
+    }
+}
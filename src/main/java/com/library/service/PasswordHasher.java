@@ -0,0 +1,306 @@
+package com.library.service;
+
+import com.library.util.PasswordUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Hashes and verifies passwords with salted PBKDF2-HMAC-SHA256 on a small
+ * bounded pool of its own, so a login storm queues for a few hashing
+ * threads instead of burning every request thread's CPU. When the queue is
+ * full, or a job cannot start within the wait limit, callers get
+ * {@link Verification#BUSY} (or null from {@link #hash}) at once and can
+ * ask the user to retry.
+ * <p>
+ * Hashes are stored as {@code pbkdf2-sha256$<iterations>$<salt>$<hash>}.
+ * The iteration count is calibrated at startup so one hash takes about the
+ * target time on this machine, never below {@link #MIN_ITERATIONS}. A stored
+ * hash with fewer iterations, or a legacy unsalted SHA-256 hex digest from
+ * {@link PasswordUtil}, still verifies but is reported as needing a rehash.
+ */
+public class PasswordHasher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHasher.class);
+
+    public enum Verification {
+        MATCH,
+        /** Matches, but the stored hash uses an old scheme or a lower cost. */
+        MATCH_NEEDS_REHASH,
+        MISMATCH,
+        /** The hashing pool is saturated; nothing was checked. */
+        BUSY;
+
+        public boolean matches() {
+            return this == MATCH || this == MATCH_NEEDS_REHASH;
+        }
+    }
+
+    static final String SCHEME = "pbkdf2-sha256";
+    static final int MIN_ITERATIONS = 50_000;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int CALIBRATION_ITERATIONS = 20_000;
+    private static final int ITERATION_STEP = 10_000;
+
+    public static final int DEFAULT_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    public static final int DEFAULT_QUEUE_CAPACITY = 32;
+    public static final long DEFAULT_TARGET_MILLIS = 100;
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 2_000;
+
+    private static PasswordHasher shared;
+
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitMillis;
+    private final int iterations;
+    private final String unknownUserHash;
+
+    /**
+     * @param iterations PBKDF2 cost of new hashes; see {@link #calibrate}
+     */
+    public PasswordHasher(int threads, int queueCapacity, long maxWaitMillis, int iterations) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "password-hash-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.maxWaitMillis = maxWaitMillis;
+        this.iterations = Math.max(MIN_ITERATIONS, iterations);
+        this.unknownUserHash = randomHash();
+    }
+
+    /**
+     * The instance set up by {@link PasswordHashingListener}, or one with
+     * default settings when none was.
+     */
+    public static synchronized PasswordHasher shared() {
+        if (shared == null) {
+            shared = new PasswordHasher(DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_WAIT_MILLIS,
+                    calibrate(DEFAULT_TARGET_MILLIS));
+        }
+        return shared;
+    }
+
+    static synchronized void setShared(PasswordHasher hasher) {
+        PasswordHasher previous = shared;
+        shared = hasher;
+        if (previous != null && previous != hasher) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Times a short PBKDF2 run and scales it to the iteration count that
+     * takes about {@code targetMillis}, rounded down to a multiple of 10,000.
+     */
+    public static int calibrate(long targetMillis) {
+        byte[] salt = new byte[SALT_BYTES];
+        // First run loads and JIT-compiles the provider
+        pbkdf2("calibration", salt, CALIBRATION_ITERATIONS);
+        long start = System.nanoTime();
+        pbkdf2("calibration", salt, CALIBRATION_ITERATIONS);
+        long nanos = Math.max(1, System.nanoTime() - start);
+
+        long scaled = CALIBRATION_ITERATIONS * targetMillis * 1_000_000 / nanos;
+        int iterations = (int) Math.min(Integer.MAX_VALUE, scaled / ITERATION_STEP * ITERATION_STEP);
+        if (iterations < MIN_ITERATIONS) {
+            logger.warn("{} iterations fit in {} ms on this machine, using the minimum of {}",
+                    iterations, targetMillis, MIN_ITERATIONS);
+            return MIN_ITERATIONS;
+        }
+        logger.info("Password hashing calibrated to {} iterations for {} ms", iterations, targetMillis);
+        return iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the encoded hash, or null if the hashing pool is saturated
+     */
+    public String hash(String password) {
+        Future<String> job;
+        try {
+            job = executor.submit(() -> encode(password));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Password hashing queue full, rejecting hash");
+            return null;
+        }
+        return await(job, null);
+    }
+
+    public Verification verify(String password, String stored) {
+        Future<Verification> job;
+        try {
+            job = executor.submit(() -> check(password, stored));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Password hashing queue full, rejecting verification");
+            return Verification.BUSY;
+        }
+        return await(job, Verification.BUSY);
+    }
+
+    /**
+     * Hashes a batch of passwords for a bulk import. The work runs on a
+     * fork/join pool of its own, as wide as the sign-in pool, so an import
+     * neither queues behind sign-ins nor fills their queue. The result is
+     * index-aligned with the input.
+     */
+    public String[] hashAll(List<String> passwords) {
+        String[] hashes = new String[passwords.size()];
+        if (passwords.isEmpty()) {
+            return hashes;
+        }
+        ForkJoinPool pool = new ForkJoinPool(executor.getMaximumPoolSize());
+        try {
+            pool.submit(() -> IntStream.range(0, hashes.length).parallel()
+                    .forEach(i -> hashes[i] = encode(passwords.get(i)))).get();
+            return hashes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing passwords", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Does the work of {@link #verify} for a sign-in with an unknown
+     * username, against a random hash at the current cost, so the response
+     * time does not tell which usernames exist.
+     *
+     * @return {@link Verification#MISMATCH}, or {@link Verification#BUSY}
+     *         when verify would have been
+     */
+    public Verification verifyUnknownUser(String password) {
+        Verification verification = verify(password, unknownUserHash);
+        return verification == Verification.BUSY ? Verification.BUSY : Verification.MISMATCH;
+    }
+
+    /**
+     * Hashes the password in the background and hands the new hash to
+     * {@code store}. Skipped when the pool is saturated; the next sign-in
+     * tries again.
+     */
+    public void rehash(String password, Consumer<String> store) {
+        try {
+            executor.execute(() -> store.accept(encode(password)));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Password hashing queue full, rehash deferred");
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    String encode(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return SCHEME + "$" + iterations + "$" + base64.encodeToString(salt)
+                + "$" + base64.encodeToString(pbkdf2(password, salt, iterations));
+    }
+
+    String unknownUserHash() {
+        return unknownUserHash;
+    }
+
+    /** A well-formed hash at the current cost that no password produces. */
+    private String randomHash() {
+        byte[] salt = new byte[SALT_BYTES];
+        byte[] hash = new byte[HASH_BITS / 8];
+        random.nextBytes(salt);
+        random.nextBytes(hash);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return SCHEME + "$" + iterations + "$" + base64.encodeToString(salt) + "$" + base64.encodeToString(hash);
+    }
+
+    Verification check(String password, String stored) {
+        if (stored == null) {
+            return Verification.MISMATCH;
+        }
+        if (!stored.startsWith(SCHEME + "$")) {
+            // Legacy unsalted SHA-256 hex digest
+            return PasswordUtil.verifyPassword(password, stored) ? Verification.MATCH_NEEDS_REHASH : Verification.MISMATCH;
+        }
+
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            logger.warn("Malformed password hash");
+            return Verification.MISMATCH;
+        }
+        int storedIterations;
+        byte[] salt;
+        byte[] expected;
+        try {
+            storedIterations = Integer.parseInt(parts[1]);
+            salt = Base64.getDecoder().decode(parts[2]);
+            expected = Base64.getDecoder().decode(parts[3]);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Malformed password hash");
+            return Verification.MISMATCH;
+        }
+
+        if (!MessageDigest.isEqual(expected, pbkdf2(password, salt, storedIterations))) {
+            return Verification.MISMATCH;
+        }
+        return storedIterations < iterations ? Verification.MATCH_NEEDS_REHASH : Verification.MATCH;
+    }
+
+    private <T> T await(Future<T> job, T busy) {
+        try {
+            return job.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            job.cancel(true);
+            logger.warn("Password hashing took longer than {} ms, giving up", maxWaitMillis);
+            return busy;
+        } catch (InterruptedException e) {
+            job.cancel(true);
+            Thread.currentThread().interrupt();
+            return busy;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            // Every Java 8+ runtime ships PBKDF2WithHmacSHA256
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
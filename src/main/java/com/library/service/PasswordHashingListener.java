@@ -0,0 +1,38 @@
+package com.library.service;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+
+/**
+ * Calibrates and starts the shared {@link PasswordHasher}. Context params:
+ * {@code passwordHash.targetMillis}, the time one hash should take (default
+ * 100), {@code passwordHash.threads} (default half the cores),
+ * {@code passwordHash.queueCapacity} (default 32) and
+ * {@code passwordHash.maxWaitMillis}, how long a sign-in waits for its hash
+ * before it is turned away (default 2000).
+ */
+public class PasswordHashingListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        ServletContext context = sce.getServletContext();
+        int iterations = PasswordHasher.calibrate(
+                param(context, "passwordHash.targetMillis", PasswordHasher.DEFAULT_TARGET_MILLIS));
+        PasswordHasher.setShared(new PasswordHasher(
+                (int) param(context, "passwordHash.threads", PasswordHasher.DEFAULT_THREADS),
+                (int) param(context, "passwordHash.queueCapacity", PasswordHasher.DEFAULT_QUEUE_CAPACITY),
+                param(context, "passwordHash.maxWaitMillis", PasswordHasher.DEFAULT_MAX_WAIT_MILLIS),
+                iterations));
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        PasswordHasher.setShared(null);
+    }
+
+    private static long param(ServletContext context, String name, long defaultValue) {
+        String configured = context.getInitParameter(name);
+        return configured == null || configured.isBlank() ? defaultValue : Long.parseLong(configured.trim());
+    }
+}
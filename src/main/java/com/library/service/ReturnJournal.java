@@ -0,0 +1,436 @@
+package com.library.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable, append-only log of returns accepted while the database is down.
+ * <p>
+ * Records go into fixed-size, memory-mapped segment files, each record with
+ * a CRC32C, and {@link #append} only returns once its record has been forced
+ * to disk. Appenders that arrive while another one is forcing are covered by
+ * the next force, so under load one fsync acknowledges a whole batch. On
+ * open, each segment is read up to the first record that fails its
+ * checksum, which is where a crash tore the last write.
+ * <p>
+ * Entries are handed to {@link #replay} in order, by a single thread. The
+ * sequence number reached is kept in a checkpoint file, and segments that
+ * have been fully replayed are deleted. The checkpoint is not forced, so
+ * after a crash some entries may be replayed twice; applying an entry must
+ * be idempotent.
+ * <p>
+ * Entries the database rejects for good are moved to a {@code dead-letter}
+ * text file, one line each, for someone to look at, instead of blocking the
+ * entries behind them.
+ * <p>
+ * One process at a time owns the directory, through a lock on its
+ * {@code lock} file; a second one would append over the same segments.
+ */
+public class ReturnJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReturnJournal.class);
+
+    public static final int DEFAULT_SEGMENT_BYTES = 1 << 20;
+
+    // marker, seq, borrowing id, user id, return day, accepted at, crc
+    static final int RECORD_SIZE = 4 + 8 + 4 + 4 + 8 + 8 + 4;
+    private static final int HEADER_SIZE = 8;
+    private static final int MAGIC = 0x524A_4E31;  // "RJN1"
+    private static final int MARKER = 0x5245_5431; // "RET1"
+    private static final String CHECKPOINT = "checkpoint";
+    private static final String LOCK = "lock";
+    private static final String DEAD_LETTER = "dead-letter";
+
+    private static volatile ReturnJournal shared;
+
+    public static final class Entry {
+        private final long seq;
+        private final int borrowingId;
+        private final int userId;
+        private final LocalDate returnDate;
+        private final long acceptedAt;
+
+        Entry(long seq, int borrowingId, int userId, LocalDate returnDate, long acceptedAt) {
+            this.seq = seq;
+            this.borrowingId = borrowingId;
+            this.userId = userId;
+            this.returnDate = returnDate;
+            this.acceptedAt = acceptedAt;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public int getBorrowingId() {
+            return borrowingId;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        public LocalDate getReturnDate() {
+            return returnDate;
+        }
+
+        public long getAcceptedAt() {
+            return acceptedAt;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Applier {
+        /**
+         * @return false to stop replaying and retry this entry later
+         */
+        boolean apply(Entry entry);
+    }
+
+    private static final class Segment {
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        volatile long lastSeq;
+
+        Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final FileChannel lockChannel;
+    private final Object forceLock = new Object();
+
+    // Guarded by this
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Deque<Entry> pending = new ArrayDeque<>();
+    private long lastSeq;
+    private boolean closed;
+
+    private volatile long durableSeq;
+    private volatile long replayedSeq;
+
+    private ReturnJournal(Path directory, int segmentBytes, FileChannel lockChannel) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.lockChannel = lockChannel;
+    }
+
+    /**
+     * Opens the journal in the directory, recovering what earlier runs left
+     * there that has not been replayed yet.
+     *
+     * @throws IllegalStateException if another process has the journal open
+     */
+    public static ReturnJournal open(Path directory, int segmentBytes) throws IOException {
+        if (segmentBytes < HEADER_SIZE + RECORD_SIZE) {
+            throw new IllegalArgumentException("Segment too small: " + segmentBytes);
+        }
+        Files.createDirectories(directory);
+        FileChannel lockChannel = lock(directory);
+        try {
+            ReturnJournal journal = new ReturnJournal(directory, segmentBytes, lockChannel);
+            journal.recover();
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    private static FileChannel lock(Path directory) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(LOCK), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IllegalStateException("Return journal in " + directory + " is already open in another process");
+        }
+        // Released when the channel is closed
+        return channel;
+    }
+
+    /** The journal opened by {@link ReturnJournalListener}, or null. */
+    public static ReturnJournal shared() {
+        return shared;
+    }
+
+    public static void setShared(ReturnJournal journal) {
+        shared = journal;
+    }
+
+    /**
+     * Records a return and waits until it is on disk.
+     *
+     * @return the entry's sequence number
+     */
+    public long append(int borrowingId, int userId, LocalDate returnDate) throws IOException {
+        long seq;
+        Segment segment;
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Return journal is closed");
+            }
+            segment = segments.peekLast();
+            if (segment == null || segment.buffer.remaining() < RECORD_SIZE) {
+                if (segment != null) {
+                    // Whatever is still waiting on the old segment is durable before moving on
+                    segment.buffer.force();
+                }
+                segment = createSegment(lastSeq + 1);
+                segments.add(segment);
+            }
+            seq = ++lastSeq;
+            Entry entry = new Entry(seq, borrowingId, userId, returnDate, System.currentTimeMillis());
+            write(segment.buffer, entry);
+            segment.lastSeq = seq;
+            pending.add(entry);
+        }
+        awaitDurable(seq, segment);
+        return seq;
+    }
+
+    private void awaitDurable(long seq, Segment segment) {
+        synchronized (forceLock) {
+            if (durableSeq >= seq) {
+                // Covered by a force that ran while this thread waited for the lock
+                return;
+            }
+            long target = segment.lastSeq;
+            segment.buffer.force();
+            durableSeq = Math.max(durableSeq, target);
+        }
+    }
+
+    /**
+     * Applies acknowledged entries in order until there are none left or the
+     * applier asks to stop. Only one thread may replay at a time.
+     *
+     * @return how many entries were applied
+     */
+    public int replay(Applier applier) throws IOException {
+        int applied = 0;
+        while (true) {
+            Entry entry;
+            synchronized (this) {
+                entry = pending.peekFirst();
+            }
+            if (entry == null || entry.seq > durableSeq || !applier.apply(entry)) {
+                break;
+            }
+            synchronized (this) {
+                pending.pollFirst();
+            }
+            replayedSeq = entry.seq;
+            applied++;
+        }
+        if (applied > 0) {
+            writeCheckpoint(replayedSeq);
+            deleteReplayedSegments();
+        }
+        return applied;
+    }
+
+    /**
+     * Appends the entry to the dead-letter file and waits until it is on
+     * disk. The applier then reports the entry as done so replay moves on.
+     */
+    public void deadLetter(Entry entry) throws IOException {
+        String line = entry.seq + "," + entry.borrowingId + "," + entry.userId + "," + entry.returnDate
+                + "," + Instant.ofEpochMilli(entry.acceptedAt) + "\n";
+        try (FileChannel channel = FileChannel.open(directory.resolve(DEAD_LETTER), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.US_ASCII)));
+            channel.force(false);
+        }
+    }
+
+    public synchronized int pending() {
+        return pending.size();
+    }
+
+    public synchronized boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /** When the oldest entry not yet replayed was accepted, or 0 if none is. */
+    public synchronized long oldestPendingAt() {
+        Entry oldest = pending.peekFirst();
+        return oldest == null ? 0 : oldest.acceptedAt;
+    }
+
+    public long getReplayedSeq() {
+        return replayedSeq;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Segment segment : segments) {
+            segment.buffer.force();
+            segment.channel.close();
+        }
+        segments.clear();
+        lockChannel.close();
+    }
+
+    private void recover() throws IOException {
+        replayedSeq = readCheckpoint();
+        lastSeq = replayedSeq;
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "returns-*.seg")) {
+            stream.forEach(files::add);
+        }
+        // Names carry the first sequence number, zero-padded
+        Collections.sort(files);
+
+        for (Path file : files) {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != RECORD_SIZE) {
+                logger.warn("Skipping {}: not a return journal segment", file);
+                channel.close();
+                continue;
+            }
+            Segment segment = new Segment(file, channel, buffer);
+            int position = HEADER_SIZE;
+            while (position + RECORD_SIZE <= buffer.capacity()) {
+                Entry entry = read(buffer, position);
+                if (entry == null || entry.seq <= segment.lastSeq) {
+                    break;
+                }
+                segment.lastSeq = entry.seq;
+                lastSeq = Math.max(lastSeq, entry.seq);
+                if (entry.seq > replayedSeq) {
+                    pending.add(entry);
+                }
+                position += RECORD_SIZE;
+            }
+            buffer.position(position);
+            segments.add(segment);
+        }
+        durableSeq = lastSeq;
+        deleteReplayedSegments();
+        if (!pending.isEmpty()) {
+            logger.info("Recovered {} returns to replay from {}", pending.size(), directory);
+        }
+    }
+
+    private Segment createSegment(long firstSeq) throws IOException {
+        Path file = directory.resolve(String.format("returns-%020d.seg", firstSeq));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        buffer.putInt(MAGIC).putInt(RECORD_SIZE);
+        return new Segment(file, channel, buffer);
+    }
+
+    private synchronized void deleteReplayedSegments() throws IOException {
+        // The last segment stays: it is the one being appended to
+        while (segments.size() > 1 && segments.peekFirst().lastSeq <= replayedSeq) {
+            Segment segment = segments.pollFirst();
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        }
+    }
+
+    private static void write(MappedByteBuffer buffer, Entry entry) {
+        int start = buffer.position();
+        buffer.putInt(MARKER)
+                .putLong(entry.seq)
+                .putInt(entry.borrowingId)
+                .putInt(entry.userId)
+                .putLong(entry.returnDate.toEpochDay())
+                .putLong(entry.acceptedAt);
+        buffer.putInt(checksum(buffer, start));
+    }
+
+    /**
+     * Reads the record at the position, or returns null at the end of the
+     * written records or at a torn one.
+     */
+    private static Entry read(ByteBuffer buffer, int position) {
+        if (buffer.getInt(position) != MARKER
+                || buffer.getInt(position + RECORD_SIZE - 4) != checksum(buffer, position)) {
+            return null;
+        }
+        return new Entry(
+                buffer.getLong(position + 4),
+                buffer.getInt(position + 12),
+                buffer.getInt(position + 16),
+                LocalDate.ofEpochDay(buffer.getLong(position + 20)),
+                buffer.getLong(position + 28));
+    }
+
+    private static int checksum(ByteBuffer buffer, int position) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(position, RECORD_SIZE - 4));
+        return (int) crc.getValue();
+    }
+
+    private long readCheckpoint() throws IOException {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(directory.resolve(CHECKPOINT)));
+            if (buffer.capacity() == 12) {
+                CRC32C crc = new CRC32C();
+                crc.update(buffer.slice(0, 8));
+                if ((int) crc.getValue() == buffer.getInt(8)) {
+                    return buffer.getLong(0);
+                }
+            }
+            // Replaying from the start is safe, only slower
+            logger.warn("Ignoring corrupt return journal checkpoint in {}", directory);
+        } catch (NoSuchFileException e) {
+            // Nothing replayed yet
+        }
+        return 0;
+    }
+
+    private void writeCheckpoint(long seq) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(12).putLong(0, seq);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(0, 8));
+        buffer.putInt(8, (int) crc.getValue());
+
+        Path temp = directory.resolve(CHECKPOINT + ".tmp");
+        Files.write(temp, buffer.array());
+        Files.move(temp, directory.resolve(CHECKPOINT), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,166 @@
+package com.library.service;
+
+import com.library.dao.BorrowingDAO;
+import com.library.metrics.Metrics;
+import com.library.util.DatabaseConnection;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens the shared {@link ReturnJournal} and replays it into the database
+ * whenever the database circuit is closed.
+ * <p>
+ * Context params: {@code returnJournal.directory} (default
+ * {@code library-returns} in the temp directory; it must survive restarts
+ * to be of any use, and only one instance may use it: the application
+ * fails to start if another process has it open),
+ * {@code returnJournal.segmentBytes} (default 1 MiB) and
+ * {@code returnJournal.replayMillis} (default 1000). Metrics:
+ * {@code return_journal_pending}, {@code return_journal_lag_seconds} (age of
+ * the oldest return not replayed yet), {@code return_journal_replayed_seq}
+ * and {@code return_journal_replayed} by outcome: {@code returned},
+ * {@code skipped} or {@code dead_letter}, a return the database rejected
+ * for good and that was set aside in the journal's dead-letter file.
+ */
+public class ReturnJournalListener implements ServletContextListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReturnJournalListener.class);
+
+    private static final long DEFAULT_REPLAY_MILLIS = 1000;
+
+    private final BorrowingDAO borrowingDAO = new BorrowingDAO();
+    private ReturnJournal journal;
+    private ScheduledExecutorService executor;
+    private Counter returned;
+    private Counter skipped;
+    private Counter deadLettered;
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        ServletContext context = sce.getServletContext();
+        String configured = context.getInitParameter("returnJournal.directory");
+        Path directory = configured == null || configured.isBlank()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "library-returns")
+                : Paths.get(configured.trim());
+        try {
+            journal = ReturnJournal.open(directory,
+                    (int) param(context, "returnJournal.segmentBytes", ReturnJournal.DEFAULT_SEGMENT_BYTES));
+        } catch (IOException e) {
+            // Returns then simply need the database, as before
+            logger.error("Failed to open return journal in {}", directory, e);
+            return;
+        }
+        ReturnJournal.setShared(journal);
+
+        Gauge.builder("return_journal_pending", journal, ReturnJournal::pending).register(Metrics.registry());
+        Gauge.builder("return_journal_lag_seconds", journal, j -> {
+            long oldest = j.oldestPendingAt();
+            return oldest == 0 ? 0 : (System.currentTimeMillis() - oldest) / 1000.0;
+        }).register(Metrics.registry());
+        Gauge.builder("return_journal_replayed_seq", journal, ReturnJournal::getReplayedSeq).register(Metrics.registry());
+        returned = Counter.builder("return_journal_replayed").tag("outcome", "returned").register(Metrics.registry());
+        skipped = Counter.builder("return_journal_replayed").tag("outcome", "skipped").register(Metrics.registry());
+        deadLettered = Counter.builder("return_journal_replayed").tag("outcome", "dead_letter").register(Metrics.registry());
+
+        long replayMillis = param(context, "returnJournal.replayMillis", DEFAULT_REPLAY_MILLIS);
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "return-replay");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::replay, 0, replayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        ReturnJournal.setShared(null);
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                // Let a replay in progress finish its current entry
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close return journal", e);
+            }
+        }
+    }
+
+    private void replay() {
+        if (!journal.hasPending() || DatabaseConnection.isCircuitOpen()) {
+            return;
+        }
+        try {
+            int applied = journal.replay(this::apply);
+            if (applied > 0) {
+                logger.info("Replayed {} journaled returns, {} still pending", applied, journal.pending());
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Return journal replay failed", e);
+        }
+    }
+
+    private boolean apply(ReturnJournal.Entry entry) {
+        int bookId = borrowingDAO.returnOpenBorrowing(entry.getBorrowingId(), entry.getUserId(),
+                Date.valueOf(entry.getReturnDate()));
+        if (bookId == BorrowingDAO.REPLAY_RETRY) {
+            return false;
+        }
+        if (bookId == BorrowingDAO.REPLAY_FAILED) {
+            return deadLetter(entry);
+        }
+        if (bookId > 0) {
+            AvailabilityBroadcaster.shared().bookChanged(bookId);
+            returned.increment();
+        } else {
+            // Returned some other way in the meantime, or never this user's
+            logger.warn("Skipped journaled return #{} of borrowing {} by user {}: not open",
+                    entry.getSeq(), entry.getBorrowingId(), entry.getUserId());
+            skipped.increment();
+        }
+        return true;
+    }
+
+    /**
+     * Sets aside an entry the database will never accept, so the returns
+     * behind it are not held up.
+     *
+     * @return false if it could not be written, to try again later
+     */
+    private boolean deadLetter(ReturnJournal.Entry entry) {
+        try {
+            journal.deadLetter(entry);
+        } catch (IOException e) {
+            logger.error("Failed to dead-letter journaled return #{}", entry.getSeq(), e);
+            return false;
+        }
+        logger.error("Dead-lettered journaled return #{} of borrowing {} by user {}: rejected by the database",
+                entry.getSeq(), entry.getBorrowingId(), entry.getUserId());
+        deadLettered.increment();
+        return true;
+    }
+
+    private static long param(ServletContext context, String name, long defaultValue) {
+        String configured = context.getInitParameter(name);
+        return configured == null || configured.isBlank() ? defaultValue : Long.parseLong(configured.trim());
+    }
+}
@@ -0,0 +1,189 @@
+package com.library.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Generates cover thumbnails on a small bounded pool so uploads return
+ * immediately and a burst of uploads cannot pile up unbounded work.
+ */
+public class ThumbnailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+
+    public enum Size {
+        SMALL(160),
+        MEDIUM(320),
+        LARGE(640);
+
+        private final int width;
+
+        Size(int width) {
+            this.width = width;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+    }
+
+    private static final int WORKERS = 2;
+    private static final int QUEUE_CAPACITY = 32;
+    private static final long SHUTDOWN_SECONDS = 5;
+
+    private final CoverStore coverStore;
+    private final ThreadPoolExecutor executor;
+
+    public ThumbnailService(CoverStore coverStore) {
+        this.coverStore = coverStore;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(WORKERS, WORKERS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                r -> {
+                    Thread t = new Thread(r, "thumbnail-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues thumbnail generation for a stored cover. The callback receives
+     * the generated file names once all sizes are written.
+     *
+     * @return false when the queue is full; the original image is then kept as is
+     */
+    public boolean submit(String originalName, Consumer<Map<Size, String>> onDone) {
+        try {
+            executor.execute(() -> {
+                try {
+                    onDone.accept(generate(originalName));
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Failed to generate thumbnails for cover {}", originalName, e);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            logger.warn("Thumbnail queue full, keeping original cover {}", originalName);
+            return false;
+        }
+    }
+
+    /**
+     * Writes every thumbnail size of a stored cover, skipping those already on disk.
+     */
+    Map<Size, String> generate(String originalName) throws IOException {
+        Path source = coverStore.resolve(originalName);
+        if (source == null || !Files.exists(source)) {
+            throw new IOException("Unknown cover " + originalName);
+        }
+
+        Map<Size, String> names = new EnumMap<>(Size.class);
+        BufferedImage image = null;
+        for (Size size : Size.values()) {
+            String name = CoverStore.variantName(originalName, size.getWidth());
+            names.put(size, name);
+            Path target = coverStore.resolve(name);
+            if (Files.exists(target)) {
+                continue;
+            }
+            if (image == null) {
+                image = read(source, Size.LARGE.getWidth());
+            }
+            write(scale(image, size.getWidth()), target);
+        }
+        return names;
+    }
+
+    /**
+     * Decodes the image, subsampling very large sources while reading so a
+     * huge upload is never fully decoded into memory.
+     */
+    private BufferedImage read(Path source, int maxWidth) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + source.getFileName());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, reader.getWidth(0) / (maxWidth * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage image, int width) {
+        int targetWidth = Math.min(width, image.getWidth());
+        int targetHeight = Math.max(1, image.getHeight() * targetWidth / image.getWidth());
+
+        BufferedImage scaled = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            // JPEG has no alpha channel, flatten transparent PNG/GIF covers onto white
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, targetWidth, targetHeight);
+            g.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+
+    private void write(BufferedImage image, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), "thumb-", ".tmp");
+        try {
+            if (!ImageIO.write(image, "jpg", temp.toFile())) {
+                throw new IOException("No JPEG writer available");
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Stops taking work and gives queued thumbnails a few seconds to be
+     * written, so covers uploaded just before a shutdown keep them.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("{} thumbnail jobs dropped at shutdown", executor.shutdownNow().size());
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.library.service;
+
+import com.library.dao.UserDAO;
+import com.library.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bulk user onboarding from CSV.
+ * <p>
+ * Expected columns: {@code username,email,password,full_name[,role]}. A header
+ * row starting with {@code username} is ignored. Rows are validated with the
+ * same rules as registration, duplicates are detected with one set-based
+ * query, passwords are hashed in parallel with the salted scheme of
+ * {@link PasswordHasher} and inserts go out in JDBC batches.
+ */
+public class UserImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+
+    static final int DEFAULT_CHUNK_SIZE = 500;
+    private static final int MIN_PASSWORD_LENGTH = 6;
+
+    private final UserDAO userDAO;
+    private final int chunkSize;
+    private final PasswordHasher hasher;
+
+    public UserImportService(UserDAO userDAO) {
+        this(userDAO, DEFAULT_CHUNK_SIZE, PasswordHasher.shared());
+    }
+
+    public UserImportService(UserDAO userDAO, int chunkSize, PasswordHasher hasher) {
+        this.userDAO = userDAO;
+        this.chunkSize = chunkSize;
+        this.hasher = hasher;
+    }
+
+    /**
+     * @return the outcome per row, or null if the rows could not be checked
+     *         against existing users, in which case nothing was imported
+     */
+    public ImportSummary importCsv(Reader source) throws IOException {
+        ImportSummary summary = new ImportSummary();
+        List<Row> rows = parse(source, summary);
+
+        Set<String> usernames = new LinkedHashSet<>();
+        Set<String> emails = new LinkedHashSet<>();
+        for (Row row : rows) {
+            usernames.add(row.username);
+            emails.add(row.email);
+        }
+        Set<String> existing = userDAO.findExistingUsernamesAndEmails(usernames, emails);
+        if (existing == null) {
+            // Without it duplicates would go to the inserts and be reported as failures
+            logger.warn("User import of {} rows aborted: duplicate check failed", rows.size());
+            return null;
+        }
+
+        // Keep only rows that clash neither with the database nor with an earlier CSV row
+        List<Row> accepted = new ArrayList<>();
+        Set<String> seenUsernames = new HashSet<>();
+        Set<String> seenEmails = new HashSet<>();
+        for (Row row : rows) {
+            String username = row.username.toLowerCase();
+            String email = row.email.toLowerCase();
+            if (existing.contains(username) || existing.contains(email)) {
+                summary.recordSkipped(row.line, "username or email already exists");
+            } else if (seenUsernames.contains(username) || seenEmails.contains(email)) {
+                summary.recordSkipped(row.line, "duplicate username or email in file");
+            } else {
+                seenUsernames.add(username);
+                seenEmails.add(email);
+                accepted.add(row);
+            }
+        }
+
+        List<String> passwords = new ArrayList<>(accepted.size());
+        for (Row row : accepted) {
+            passwords.add(row.password);
+        }
+        String[] hashes = hasher.hashAll(passwords);
+
+        List<User> users = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            Row row = accepted.get(i);
+            User user = new User();
+            user.setUsername(row.username);
+            user.setEmail(row.email);
+            user.setPassword(hashes[i]);
+            user.setFullName(row.fullName);
+            user.setRole(row.role);
+            users.add(user);
+        }
+
+        boolean[] created = userDAO.createBatch(users, chunkSize);
+        for (int i = 0; i < created.length; i++) {
+            if (created[i]) {
+                summary.recordCreated();
+            } else {
+                summary.recordFailed(accepted.get(i).line, "database insert failed");
+            }
+        }
+
+        logger.info("User import finished: {} created, {} skipped, {} failed",
+                summary.getCreated(), summary.getSkipped(), summary.getFailed());
+        return summary;
+    }
+
+    private List<Row> parse(Reader source, ImportSummary summary) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+                line = line.substring(1);
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> cells = splitCsvLine(line);
+            if (lineNumber == 1 && "username".equalsIgnoreCase(cells.get(0).trim())) {
+                continue;
+            }
+
+            String error = validate(cells);
+            if (error != null) {
+                summary.recordFailed(lineNumber, error);
+                continue;
+            }
+
+            String role = cells.size() > 4 && !cells.get(4).isBlank()
+                    ? cells.get(4).trim().toUpperCase()
+                    : "USER";
+            rows.add(new Row(lineNumber, cells.get(0).trim(), cells.get(1).trim(),
+                    cells.get(2), cells.get(3).trim(), role));
+        }
+        return rows;
+    }
+
+    private String validate(List<String> cells) {
+        if (cells.size() < 4) {
+            return "expected at least 4 columns";
+        }
+        for (int i = 0; i < 4; i++) {
+            if (cells.get(i).trim().isEmpty()) {
+                return "missing required field";
+            }
+        }
+        if (cells.get(2).length() < MIN_PASSWORD_LENGTH) {
+            return "password must be at least " + MIN_PASSWORD_LENGTH + " characters";
+        }
+        if (cells.size() > 4 && !cells.get(4).isBlank()) {
+            String role = cells.get(4).trim().toUpperCase();
+            if (!"USER".equals(role) && !"ADMIN".equals(role)) {
+                return "unknown role " + cells.get(4).trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Splits one CSV line, honouring double-quoted cells and {@code ""} escapes.
+     */
+    static List<String> splitCsvLine(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    private static class Row {
+        final int line;
+        final String username;
+        final String email;
+        final String password;
+        final String fullName;
+        final String role;
+
+        Row(int line, String username, String email, String password, String fullName, String role) {
+            this.line = line;
+            this.username = username;
+            this.email = email;
+            this.password = password;
+            this.fullName = fullName;
+            this.role = role;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.library.servlet;
+
+import com.library.metrics.Metrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the database work of a request off the container thread.
+ * <p>
+ * A servlet hands its work to {@link #execute} as a {@link Handler} that
+ * returns the JSP to render. In async mode the request is put into async
+ * state, the handler runs on a worker, and the page is rendered by an async
+ * dispatch, so the container thread is free while JDBC blocks. Each servlet
+ * caps its handlers in flight ({@code async.maxConcurrent}, answered with
+ * 503 beyond that) and how long a request may wait for one
+ * ({@code async.timeoutMillis}).
+ * <p>
+ * Workers are virtual threads when the JVM has them and a fixed pool of
+ * {@code async.workerThreads} otherwise. With async mode off, or a request
+ * that cannot go async, the handler simply runs inline.
+ */
+public final class AsyncExecution {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncExecution.class);
+
+    private static final int DEFAULT_MAX_CONCURRENT = 32;
+    private static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+
+    /** Runs every handler on the calling thread; used until a servlet is initialized. */
+    public static final AsyncExecution INLINE = new AsyncExecution(null, DEFAULT_MAX_CONCURRENT, DEFAULT_TIMEOUT_MILLIS);
+
+    // Null while async mode is off
+    private static ExecutorService executor;
+
+    /**
+     * The work of one request.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * @return the view to render, or null once the handler has completed
+         *         the response itself, e.g. with a redirect
+         */
+        String handle(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException;
+    }
+
+    private final String endpoint;
+    private final int maxConcurrent;
+    private final long timeoutMillis;
+    private final Semaphore permits;
+    private final Counter rejected;
+    private final Counter timedOut;
+
+    private AsyncExecution(String endpoint, int maxConcurrent, long timeoutMillis) {
+        this.endpoint = endpoint;
+        this.maxConcurrent = maxConcurrent;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(maxConcurrent);
+        if (endpoint == null) {
+            rejected = null;
+            timedOut = null;
+            return;
+        }
+        Gauge.builder("async_requests_in_flight", permits, p -> maxConcurrent - p.availablePermits())
+                .tag("endpoint", endpoint)
+                .register(Metrics.registry());
+        rejected = Counter.builder("async_requests_rejected").tag("endpoint", endpoint).register(Metrics.registry());
+        timedOut = Counter.builder("async_requests_timed_out").tag("endpoint", endpoint).register(Metrics.registry());
+    }
+
+    /**
+     * Reads the servlet's {@code async.maxConcurrent} and
+     * {@code async.timeoutMillis} init params.
+     */
+    public static AsyncExecution forServlet(ServletConfig config) {
+        return new AsyncExecution(config.getServletName(),
+                (int) param(config.getInitParameter("async.maxConcurrent"), DEFAULT_MAX_CONCURRENT),
+                param(config.getInitParameter("async.timeoutMillis"), DEFAULT_TIMEOUT_MILLIS));
+    }
+
+    /**
+     * Turns async mode on. Uses virtual threads when the JVM has them.
+     */
+    static synchronized void start(int workerThreads) {
+        if (executor != null) {
+            return;
+        }
+        try {
+            executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            logger.info("Async request execution on virtual threads");
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(workerThreads, r -> {
+                Thread t = new Thread(r, "async-worker-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            logger.info("Async request execution on {} worker threads (no virtual threads in this JVM)", workerThreads);
+        }
+    }
+
+    /**
+     * Turns async mode off and waits briefly for running handlers.
+     */
+    static synchronized void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        ExecutorService stopping = executor;
+        executor = null;
+        stopping.shutdown();
+        try {
+            if (!stopping.awaitTermination(5, TimeUnit.SECONDS)) {
+                stopping.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            stopping.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static synchronized ExecutorService executor() {
+        return executor;
+    }
+
+    public void execute(HttpServletRequest request, HttpServletResponse response, Handler handler)
+            throws ServletException, IOException {
+
+        ExecutorService pool = endpoint == null ? null : executor();
+        if (pool == null || !request.isAsyncSupported()) {
+            String view = handler.handle(request, response);
+            if (view != null) {
+                request.getRequestDispatcher(view).forward(request, response);
+            }
+            return;
+        }
+
+        if (!permits.tryAcquire()) {
+            reject(response);
+            return;
+        }
+        // Keeps the response wrappers of the filters, e.g. compression, for the dispatch
+        AsyncContext async = request.startAsync(request, response);
+        async.setTimeout(timeoutMillis);
+        async.addListener(new TimeoutListener());
+        try {
+            pool.execute(() -> {
+                try {
+                    run(async, handler);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            permits.release();
+            reject(response);
+            async.complete();
+        }
+    }
+
+    private void run(AsyncContext async, Handler handler) {
+        HttpServletRequest request = (HttpServletRequest) async.getRequest();
+        HttpServletResponse response = (HttpServletResponse) async.getResponse();
+        try {
+            String view = handler.handle(request, response);
+            if (view != null) {
+                async.dispatch(view);
+            } else {
+                async.complete();
+            }
+        } catch (IllegalStateException e) {
+            // The request timed out and was completed while the handler ran
+            logger.debug("{} handler finished after its request timed out", endpoint);
+        } catch (Exception e) {
+            logger.error("{} handler failed", endpoint, e);
+            try {
+                if (!response.isCommitted()) {
+                    response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                }
+                async.complete();
+            } catch (IOException | IllegalStateException ignored) {
+                // Nothing more can be sent
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        rejected.increment();
+        response.setHeader("Retry-After", "1");
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+
+    private static long param(String value, long defaultValue) {
+        return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    private class TimeoutListener implements AsyncListener {
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            timedOut.increment();
+            logger.warn("{} request timed out after {} ms", endpoint, timeoutMillis);
+            HttpServletResponse response = (HttpServletResponse) event.getSuppliedResponse();
+            if (!response.isCommitted()) {
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            }
+            event.getAsyncContext().complete();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            // Permits are released by the worker
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // Permits are released by the worker
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Not restarted
+        }
+    }
+}
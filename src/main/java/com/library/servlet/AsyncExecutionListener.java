@@ -0,0 +1,35 @@
+package com.library.servlet;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Turns {@link AsyncExecution} on for the web application. Context params:
+ * {@code async.enabled} (default false) and {@code async.workerThreads}, the
+ * size of the worker pool on JVMs without virtual threads (default 64).
+ */
+public class AsyncExecutionListener implements ServletContextListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncExecutionListener.class);
+
+    private static final int DEFAULT_WORKER_THREADS = 64;
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        ServletContext context = sce.getServletContext();
+        if (!"true".equalsIgnoreCase(context.getInitParameter("async.enabled"))) {
+            logger.info("Async request execution disabled");
+            return;
+        }
+        String configured = context.getInitParameter("async.workerThreads");
+        AsyncExecution.start(configured == null ? DEFAULT_WORKER_THREADS : Integer.parseInt(configured.trim()));
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        AsyncExecution.shutdown();
+    }
+}
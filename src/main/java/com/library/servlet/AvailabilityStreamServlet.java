@@ -0,0 +1,86 @@
+package com.library.servlet;
+
+import com.library.service.AvailabilityBroadcaster;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Server-Sent Events stream of availability changes:
+ * {@code GET /availability/stream?ids=1,2,3}.
+ * <p>
+ * Sends the current availability of each book, then an {@code availability}
+ * event whenever it changes. The request goes async straight away and the
+ * stream is written by {@link AvailabilityBroadcaster}, so no request thread
+ * stays with an open page. Streams end after {@value #STREAM_TIMEOUT_MS} ms
+ * and the browser's EventSource reconnects by itself.
+ */
+public class AvailabilityStreamServlet extends HttpServlet {
+
+    private static final int MAX_IDS = 200;
+    private static final long STREAM_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    private transient AvailabilityBroadcaster broadcaster;
+
+    @Override
+    public void init() throws ServletException {
+        broadcaster = AvailabilityBroadcaster.shared();
+        broadcaster.start();
+    }
+
+    @Override
+    public void destroy() {
+        broadcaster.shutdown();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        Set<Integer> ids = parseIds(request.getParameter("ids"));
+        if (ids == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "ids must list between 1 and " + MAX_IDS + " book IDs");
+            return;
+        }
+
+        response.setContentType("text/event-stream;charset=UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        // Stop nginx-style proxies from buffering the stream
+        response.setHeader("X-Accel-Buffering", "no");
+
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(STREAM_TIMEOUT_MS);
+        ServletOutputStream out = response.getOutputStream();
+        AvailabilityBroadcaster.Subscriber subscriber =
+                new AvailabilityBroadcaster.Subscriber(broadcaster, asyncContext, out, ids);
+        asyncContext.addListener(subscriber);
+        // Non-blocking mode must be on before the broadcaster writes anything
+        out.setWriteListener(subscriber);
+        broadcaster.register(subscriber);
+    }
+
+    static Set<Integer> parseIds(String param) {
+        if (param == null) {
+            return null;
+        }
+        Set<Integer> ids = new LinkedHashSet<>();
+        try {
+            for (String part : param.split(",")) {
+                if (!part.isBlank()) {
+                    ids.add(Integer.parseInt(part.trim()));
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return ids.isEmpty() || ids.size() > MAX_IDS ? null : ids;
+    }
+}
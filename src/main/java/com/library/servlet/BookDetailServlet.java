@@ -1,37 +1,47 @@
 package com.library.servlet;
 
+import com.library.cache.CatalogSnapshot;
 import com.library.dao.BookDAO;
 import com.library.dao.BorrowingDAO;
+import com.library.dao.HoldDAO;
 import com.library.model.Book;
-import com.library.model.User;
+import com.library.model.Hold;
+import com.library.session.SessionUser;
+import com.library.util.HttpCacheUtil;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 import java.io.IOException;
 
 public class BookDetailServlet extends HttpServlet {
 
     private transient BookDAO bookDAO;
     private transient BorrowingDAO borrowingDAO;
+    private transient HoldDAO holdDAO;
+    private transient AsyncExecution async = AsyncExecution.INLINE;
 
     @Override
     public void init() throws ServletException {
         bookDAO = new BookDAO();
         borrowingDAO = new BorrowingDAO();
+        holdDAO = new HoldDAO();
+        async = AsyncExecution.forServlet(getServletConfig());
     }
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
+        async.execute(request, response, this::showBook);
+    }
 
+    private String showBook(HttpServletRequest request, HttpServletResponse response) throws IOException {
         String bookIdParam = request.getParameter("id");
 
         // Redirect if no id provided
         if (bookIdParam == null || bookIdParam.trim().isEmpty()) {
             response.sendRedirect("books");
-            return;
+            return null;
         }
 
         int bookId;
@@ -39,7 +49,30 @@ public class BookDetailServlet extends HttpServlet {
             bookId = Integer.parseInt(bookIdParam);
         } catch (NumberFormatException e) {
             response.sendRedirect("books?error=Invalid book ID");
-            return;
+            return null;
+        }
+
+        CatalogSnapshot snapshot = CatalogSnapshot.ifDegraded();
+        if (snapshot != null) {
+            return showFromSnapshot(snapshot, bookId, request, response);
+        }
+
+        // Revalidate against the book's last update and availability before loading it
+        Book stamp = bookDAO.findStampById(bookId);
+        if (stamp == null) {
+            response.sendRedirect("books?error=Book not found");
+            return null;
+        }
+
+        SessionUser user = SessionUser.current(request);
+        // A hold moving up the queue changes the page without touching the book
+        Hold hold = user == null ? null : holdDAO.findActive(user.getId(), bookId);
+        String holdState = hold == null ? "-" : hold.getStatus() + hold.getPosition();
+        long updatedAt = stamp.getUpdatedAt() == null ? 0 : stamp.getUpdatedAt().getTime();
+        String etag = HttpCacheUtil.weakEtag("book", bookId, updatedAt, stamp.getAvailableQuantity(),
+                stamp.getQuantity(), user == null ? 0 : user.getId(), holdState, HttpCacheUtil.queryKey(request));
+        if (HttpCacheUtil.checkNotModified(request, response, etag, updatedAt)) {
+            return null;
         }
 
         Book book = bookDAO.findById(bookId);
@@ -47,21 +80,35 @@ public class BookDetailServlet extends HttpServlet {
         // Redirect if book not found
         if (book == null) {
             response.sendRedirect("books?error=Book not found");
-            return;
+            return null;
         }
 
         // Check if user has active borrowing for this book
-        HttpSession session = request.getSession(false);
-        if (session != null) {
-            User user = (User) session.getAttribute("user");
-            if (user != null) {
-                boolean hasActiveBorrowing = borrowingDAO.hasActiveBorrowing(user.getId(), bookId);
-                request.setAttribute("hasActiveBorrowing", hasActiveBorrowing);
-            }
+        if (user != null) {
+            boolean hasActiveBorrowing = borrowingDAO.hasActiveBorrowing(user.getId(), bookId);
+            request.setAttribute("hasActiveBorrowing", hasActiveBorrowing);
+            request.setAttribute("hold", hold);
         }
 
         // Forward to book detail page
         request.setAttribute("book", book);
-        request.getRequestDispatcher("/book-detail.jsp").forward(request, response);
+        return "/book-detail.jsp";
+    }
+
+    /**
+     * The page while the database is down: no borrowing or hold state, and
+     * availability shown as unknown.
+     */
+    private String showFromSnapshot(CatalogSnapshot snapshot, int bookId, HttpServletRequest request,
+                                    HttpServletResponse response) throws IOException {
+        Book book = snapshot.findById(bookId);
+        if (book == null) {
+            response.sendRedirect("books?error=Book not found");
+            return null;
+        }
+        response.setHeader("Cache-Control", "no-store");
+        request.setAttribute("availabilityUnknown", true);
+        request.setAttribute("book", book);
+        return "/book-detail.jsp";
     }
 }
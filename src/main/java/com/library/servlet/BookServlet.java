@@ -1,7 +1,12 @@
 package com.library.servlet;
 
+import com.library.cache.CatalogSnapshot;
+import com.library.cache.CatalogVersion;
+import com.library.cache.PrerenderedCatalog;
 import com.library.dao.BookDAO;
 import com.library.model.Book;
+import com.library.session.SessionUser;
+import com.library.util.HttpCacheUtil;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -12,36 +17,82 @@ import java.util.List;
 
 public class BookServlet extends HttpServlet {
     private BookDAO bookDAO;
+    private AsyncExecution async = AsyncExecution.INLINE;
     
     @Override
     public void init() throws ServletException {
         bookDAO = new BookDAO();
+        async = AsyncExecution.forServlet(getServletConfig());
     }
     
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         
+        if (CatalogSnapshot.ifDegraded() != null) {
+            // Served from the snapshot: not worth revalidating once the database is back
+            response.setHeader("Cache-Control", "no-store");
+            async.execute(request, response, this::listBooks);
+            return;
+        }
+
+        // The page only changes with the catalog, the query and who is signed in
+        String etag = HttpCacheUtil.weakEtag("books", CatalogVersion.current(),
+                currentUserId(request), HttpCacheUtil.queryKey(request));
+        if (HttpCacheUtil.checkNotModified(request, response, etag, CatalogVersion.lastModified())) {
+            return;
+        }
+        
+        async.execute(request, response, this::listBooks);
+    }
+    
+    private String listBooks(HttpServletRequest request, HttpServletResponse response) {
         String search = request.getParameter("search");
         String category = request.getParameter("category");
         
         List<Book> books;
+        List<String> categories;
         
-        if (search != null && !search.trim().isEmpty()) {
-            books = bookDAO.search(search);
-            request.setAttribute("searchQuery", search);
-        } else if (category != null && !category.trim().isEmpty()) {
-            books = bookDAO.findByCategory(category);
-            request.setAttribute("selectedCategory", category);
+        CatalogSnapshot snapshot = CatalogSnapshot.ifDegraded();
+        if (snapshot != null) {
+            // Database down: the snapshot has no quantities, so availability is unknown
+            request.setAttribute("availabilityUnknown", true);
+            request.setAttribute(PrerenderedCatalog.DO_NOT_KEEP, true);
+            if (search != null && !search.trim().isEmpty()) {
+                books = snapshot.search(search);
+                request.setAttribute("searchQuery", search);
+            } else if (category != null && !category.trim().isEmpty()) {
+                books = snapshot.byCategory(category);
+                request.setAttribute("selectedCategory", category);
+            } else {
+                books = snapshot.all();
+            }
+            categories = snapshot.categories();
         } else {
-            books = bookDAO.findAll();
+            if (search != null && !search.trim().isEmpty()) {
+                books = bookDAO.search(search);
+                request.setAttribute("searchQuery", search);
+            } else if (category != null && !category.trim().isEmpty()) {
+                books = bookDAO.findByCategory(category);
+                request.setAttribute("selectedCategory", category);
+            } else {
+                books = bookDAO.findAll();
+            }
+            categories = bookDAO.getAllCategories();
+            // The DAO answers a failed query with an empty list; never share such a page
+            if (books.isEmpty() || categories.isEmpty()) {
+                request.setAttribute(PrerenderedCatalog.DO_NOT_KEEP, true);
+            }
         }
         
-        List<String> categories = bookDAO.getAllCategories();
-        
         request.setAttribute("books", books);
         request.setAttribute("categories", categories);
         
-        request.getRequestDispatcher("/books.jsp").forward(request, response);
+        return "/books.jsp";
+    }
+    
+    private int currentUserId(HttpServletRequest request) {
+        SessionUser user = SessionUser.current(request);
+        return user == null ? 0 : user.getId();
     }
 }
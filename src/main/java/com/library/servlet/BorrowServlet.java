@@ -2,14 +2,16 @@ package com.library.servlet;
 
 import com.library.dao.BookDAO;
 import com.library.dao.BorrowingDAO;
+import com.library.dao.HoldDAO;
 import com.library.model.Book;
 import com.library.model.Borrowing;
-import com.library.model.User;
+import com.library.model.Hold;
+import com.library.service.AvailabilityBroadcaster;
+import com.library.session.SessionUser;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 
 import java.io.IOException;
 import java.sql.Date;
@@ -19,33 +21,39 @@ public class BorrowServlet extends HttpServlet {
 
     private BookDAO bookDAO;
     private BorrowingDAO borrowingDAO;
+    private HoldDAO holdDAO;
+    private AsyncExecution async = AsyncExecution.INLINE;
 
     @Override
     public void init() throws ServletException {
         bookDAO = new BookDAO();
         borrowingDAO = new BorrowingDAO();
+        holdDAO = new HoldDAO();
+        async = AsyncExecution.forServlet(getServletConfig());
     }
 
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-        User user = getLoggedInUser(request, response);
+        SessionUser user = getLoggedInUser(request, response);
         if (user == null) return;
 
         Integer bookId = getBookId(request, response);
         if (bookId == null) return;
 
-        borrowBook(request, response, user, bookId);
+        async.execute(request, response, (req, resp) -> {
+            borrowBook(req, resp, user, bookId);
+            return null;
+        });
     }
 
     // ---------------- Helper methods ----------------
 
-    private User getLoggedInUser(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        HttpSession session = request.getSession(false);
-        if (session == null || session.getAttribute("user") == null) {
+    private SessionUser getLoggedInUser(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        SessionUser user = SessionUser.current(request);
+        if (user == null) {
             response.sendRedirect("login.jsp?error=Please login to borrow books");
-            return null;
         }
-        return (User) session.getAttribute("user");
+        return user;
     }
 
     private Integer getBookId(HttpServletRequest request, HttpServletResponse response) throws IOException {
@@ -62,15 +70,27 @@ public class BorrowServlet extends HttpServlet {
         }
     }
 
-    private void borrowBook(HttpServletRequest request, HttpServletResponse response, User user, int bookId) throws IOException {
+    private void borrowBook(HttpServletRequest request, HttpServletResponse response, SessionUser user, int bookId) throws IOException {
         Book book = bookDAO.findById(bookId);
         if (book == null) {
             response.sendRedirect("books?error=Book not found");
             return;
         }
 
+        // A copy set aside for the user's hold is theirs even with none on the shelf
+        Hold hold = holdDAO.findActive(user.getId(), bookId);
+        if (hold != null && hold.isReady()) {
+            borrowFromHold(response, user, bookId, hold);
+            return;
+        }
+
+        if (hold != null) {
+            response.sendRedirect("book-detail?id=" + bookId + "&error=You are number " + hold.getPosition() + " in the queue for this book");
+            return;
+        }
+
         if (!book.isAvailable()) {
-            response.sendRedirect("book-detail?id=" + bookId + "&error=Book is not available");
+            response.sendRedirect("book-detail?id=" + bookId + "&error=Book is not available. Place a hold to get the next copy");
             return;
         }
 
@@ -79,18 +99,30 @@ public class BorrowServlet extends HttpServlet {
             return;
         }
 
+        Borrowing borrowing = newBorrowing(user, bookId);
+        if (borrowingDAO.borrow(borrowing)) {
+            AvailabilityBroadcaster.shared().bookChanged(bookId);
+            response.sendRedirect("my-borrowings?success=Book borrowed successfully");
+        } else {
+            response.sendRedirect("book-detail?id=" + bookId + "&error=Failed to borrow book");
+        }
+    }
+
+    private void borrowFromHold(HttpServletResponse response, SessionUser user, int bookId, Hold hold) throws IOException {
+        if (borrowingDAO.createFromHold(newBorrowing(user, bookId), hold.getId())) {
+            response.sendRedirect("my-borrowings?success=Book borrowed successfully");
+        } else {
+            response.sendRedirect("book-detail?id=" + bookId + "&error=Failed to borrow book");
+        }
+    }
+
+    private static Borrowing newBorrowing(SessionUser user, int bookId) {
         Borrowing borrowing = new Borrowing();
         borrowing.setUserId(user.getId());
         borrowing.setBookId(bookId);
         borrowing.setBorrowDate(Date.valueOf(LocalDate.now()));
         borrowing.setDueDate(Date.valueOf(LocalDate.now().plusDays(14)));
         borrowing.setStatus("BORROWED");
-
-        boolean success = borrowingDAO.create(borrowing) && bookDAO.decreaseAvailableQuantity(bookId);
-        if (success) {
-            response.sendRedirect("my-borrowings?success=Book borrowed successfully");
-        } else {
-            response.sendRedirect("book-detail?id=" + bookId + "&error=Failed to borrow book");
-        }
+        return borrowing;
     }
 }
@@ -0,0 +1,259 @@
+package com.library.servlet;
+
+import com.library.cache.CatalogVersion;
+import com.library.dao.BookDAO;
+import com.library.model.Book;
+import com.library.util.HttpCacheUtil;
+import com.library.util.JsonWriter;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Read-only JSON API for the catalog, mapped to {@code /api/v1/*}:
+ * <ul>
+ *   <li>{@code GET /books?limit=&cursor=&category=} - books in id order, paged
+ *       with the opaque {@code nextCursor} of the previous page</li>
+ *   <li>{@code GET /books/{id}} - one book with all its fields</li>
+ *   <li>{@code GET /categories}</li>
+ *   <li>{@code GET /availability?ids=1,2,3} - stock of up to 100 books</li>
+ * </ul>
+ * Rows are written to the response as they are read from the database.
+ * Responses are revalidated against the catalog version, so a kiosk polling
+ * an unchanged catalog gets a 304 without a query.
+ */
+public class CatalogApiServlet extends HttpServlet {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogApiServlet.class);
+
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 200;
+    private static final int MAX_AVAILABILITY_IDS = 100;
+
+    private transient BookDAO bookDAO;
+
+    void setBookDAO(BookDAO bookDAO) {
+        this.bookDAO = bookDAO;
+    }
+
+    @Override
+    public void init() throws ServletException {
+        bookDAO = new BookDAO();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        String path = request.getPathInfo() == null ? "/" : request.getPathInfo();
+        String etag = HttpCacheUtil.weakEtag("api", CatalogVersion.current(),
+                Integer.toHexString(path.hashCode()), HttpCacheUtil.queryKey(request));
+        if (HttpCacheUtil.checkNotModified(request, response, etag, CatalogVersion.lastModified())) {
+            return;
+        }
+
+        response.setContentType("application/json;charset=UTF-8");
+        if ("/books".equals(path)) {
+            listBooks(request, response);
+        } else if (path.startsWith("/books/")) {
+            showBook(path.substring("/books/".length()), response);
+        } else if ("/categories".equals(path)) {
+            listCategories(response);
+        } else if ("/availability".equals(path)) {
+            showAvailability(request, response);
+        } else {
+            sendError(response, HttpServletResponse.SC_NOT_FOUND, "Unknown resource");
+        }
+    }
+
+    private void listBooks(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        int limit;
+        int afterId;
+        try {
+            limit = parseOrDefault(request.getParameter("limit"), DEFAULT_LIMIT);
+            afterId = parseOrDefault(request.getParameter("cursor"), 0);
+        } catch (NumberFormatException e) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid limit or cursor");
+            return;
+        }
+        if (limit < 1 || limit > MAX_LIMIT || afterId < 0) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "limit must be between 1 and " + MAX_LIMIT);
+            return;
+        }
+        String category = request.getParameter("category");
+        if (category != null && category.isBlank()) {
+            category = null;
+        }
+
+        JsonWriter json = new JsonWriter(response.getWriter());
+        json.beginObject().name("items").beginArray();
+        PageState page = new PageState(limit);
+        // One extra row tells whether another page follows
+        boolean ok = bookDAO.visitPage(afterId, category, limit + 1, rs -> {
+            if (page.written == page.limit) {
+                page.hasMore = true;
+                return;
+            }
+            writeSummary(json, rs);
+            page.lastId = rs.getInt("id");
+            page.written++;
+        });
+        if (!ok) {
+            failStream(response, page.written);
+            return;
+        }
+        json.endArray().name("nextCursor");
+        if (page.hasMore) {
+            json.value(Integer.toString(page.lastId));
+        } else {
+            json.nullValue();
+        }
+        json.endObject().flush();
+    }
+
+    private void showBook(String idText, HttpServletResponse response) throws IOException {
+        int id;
+        try {
+            id = Integer.parseInt(idText);
+        } catch (NumberFormatException e) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid book ID");
+            return;
+        }
+        Book book = bookDAO.findById(id);
+        if (book == null) {
+            sendError(response, HttpServletResponse.SC_NOT_FOUND, "Book not found");
+            return;
+        }
+
+        JsonWriter json = new JsonWriter(response.getWriter());
+        json.beginObject()
+                .name("id").value(book.getId())
+                .name("title").value(book.getTitle())
+                .name("author").value(book.getAuthor())
+                .name("isbn").value(book.getIsbn())
+                .name("category").value(book.getCategory())
+                .name("description").value(book.getDescription())
+                .name("publisher").value(book.getPublisher())
+                .name("publishedYear").value(book.getPublishedYear())
+                .name("pages").value(book.getPages())
+                .name("language").value(book.getLanguage())
+                .name("coverImage").value(book.getCoverImage())
+                .name("quantity").value(book.getQuantity())
+                .name("available").value(book.getAvailableQuantity())
+                .name("createdAt").value(isoTime(book.getCreatedAt()))
+                .name("updatedAt").value(isoTime(book.getUpdatedAt()))
+                .endObject().flush();
+    }
+
+    private void listCategories(HttpServletResponse response) throws IOException {
+        JsonWriter json = new JsonWriter(response.getWriter());
+        json.beginObject().name("items").beginArray();
+        for (String category : bookDAO.getAllCategories()) {
+            json.value(category);
+        }
+        json.endArray().endObject().flush();
+    }
+
+    private void showAvailability(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Set<Integer> ids = new LinkedHashSet<>();
+        String param = request.getParameter("ids");
+        try {
+            if (param != null) {
+                for (String part : param.split(",")) {
+                    if (!part.isBlank()) {
+                        ids.add(Integer.parseInt(part.trim()));
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "ids must be a comma-separated list of book IDs");
+            return;
+        }
+        if (ids.isEmpty() || ids.size() > MAX_AVAILABILITY_IDS) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST,
+                    "Between 1 and " + MAX_AVAILABILITY_IDS + " book IDs are required");
+            return;
+        }
+
+        JsonWriter json = new JsonWriter(response.getWriter());
+        json.beginObject().name("items").beginArray();
+        int[] written = {0};
+        boolean ok = bookDAO.visitAvailability(ids, rs -> {
+            json.beginObject()
+                    .name("id").value(rs.getInt("id"))
+                    .name("quantity").value(rs.getInt("quantity"))
+                    .name("available").value(rs.getInt("available_quantity"))
+                    .endObject();
+            written[0]++;
+        });
+        if (!ok) {
+            failStream(response, written[0]);
+            return;
+        }
+        json.endArray().endObject().flush();
+    }
+
+    static void writeSummary(JsonWriter json, ResultSet rs) throws SQLException, IOException {
+        json.beginObject()
+                .name("id").value(rs.getInt("id"))
+                .name("title").value(rs.getString("title"))
+                .name("author").value(rs.getString("author"))
+                .name("isbn").value(rs.getString("isbn"))
+                .name("category").value(rs.getString("category"))
+                .name("coverImage").value(rs.getString("cover_image"))
+                .name("quantity").value(rs.getInt("quantity"))
+                .name("available").value(rs.getInt("available_quantity"))
+                .endObject();
+    }
+
+    /**
+     * Reports a failed query. Before any row was written only the opening
+     * bracket sits in the response buffer and a proper error can replace it;
+     * later the JSON is left unterminated so clients cannot mistake it for a
+     * complete page.
+     */
+    private void failStream(HttpServletResponse response, int rowsWritten) throws IOException {
+        if (rowsWritten == 0 && !response.isCommitted()) {
+            response.resetBuffer();
+            sendError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Catalog temporarily unavailable");
+        } else {
+            logger.warn("Catalog API response cut short after {} rows", rowsWritten);
+        }
+    }
+
+    private static void sendError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setHeader("Cache-Control", "no-store");
+        JsonWriter json = new JsonWriter(response.getWriter());
+        json.beginObject().name("error").value(message).endObject().flush();
+    }
+
+    private static int parseOrDefault(String value, int defaultValue) {
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static String isoTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant().toString();
+    }
+
+    private static final class PageState {
+        final int limit;
+        int written;
+        int lastId;
+        boolean hasMore;
+
+        PageState(int limit) {
+            this.limit = limit;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.library.servlet;
+
+import com.library.dao.CatalogChangeDAO;
+import com.library.util.JsonWriter;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delta sync for kiosks and the mobile app: {@code GET /api/catalog/changes?since=<version>}.
+ * <p>
+ * Returns the books changed after {@code since} with their current list
+ * fields, the ids of deleted books, and the version to send next time.
+ * When {@code since} is missing, older than the compaction horizon or ahead
+ * of the server, the response only carries {@code "resync": true} and the
+ * current version: the client reloads {@code /api/v1/books} and then syncs
+ * from that version.
+ * <p>
+ * Changes are served, and count towards the current version, once they are
+ * {@code settleSeconds} old, so one that commits after a later one is never
+ * skipped by a client's version.
+ * <p>
+ * The servlet also compacts the change log once a day. Init params:
+ * {@code retentionDays} (default 30), {@code maxChanges} per response
+ * (default 500) and {@code settleSeconds} (default 5).
+ */
+public class CatalogChangesServlet extends HttpServlet {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogChangesServlet.class);
+
+    private static final int DEFAULT_RETENTION_DAYS = 30;
+    private static final int DEFAULT_MAX_CHANGES = 500;
+    private static final int DEFAULT_SETTLE_SECONDS = 5;
+
+    private transient CatalogChangeDAO changeDAO;
+    private transient ScheduledExecutorService compactor;
+    private int retentionDays = DEFAULT_RETENTION_DAYS;
+    private int maxChanges = DEFAULT_MAX_CHANGES;
+    private int settleSeconds = DEFAULT_SETTLE_SECONDS;
+
+    void setChangeDAO(CatalogChangeDAO changeDAO) {
+        this.changeDAO = changeDAO;
+    }
+
+    @Override
+    public void init() throws ServletException {
+        changeDAO = new CatalogChangeDAO();
+        retentionDays = intParam("retentionDays", DEFAULT_RETENTION_DAYS);
+        maxChanges = intParam("maxChanges", DEFAULT_MAX_CHANGES);
+        settleSeconds = intParam("settleSeconds", DEFAULT_SETTLE_SECONDS);
+
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "catalog-change-compaction");
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.scheduleWithFixedDelay(this::compact, 1, 24 * 60, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void destroy() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        response.setContentType("application/json;charset=UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+
+        long since;
+        try {
+            String param = request.getParameter("since");
+            since = param == null || param.isBlank() ? -1 : Long.parseLong(param.trim());
+        } catch (NumberFormatException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            new JsonWriter(response.getWriter()).beginObject()
+                    .name("error").value("since must be a catalog version").endObject().flush();
+            return;
+        }
+
+        // The settled version, so a resync never lands past a change still committing
+        long current = changeDAO.currentVersion(settleSeconds);
+        long horizon = changeDAO.horizon();
+        if (current < 0 || horizon < 0) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            new JsonWriter(response.getWriter()).beginObject()
+                    .name("error").value("Catalog temporarily unavailable").endObject().flush();
+            return;
+        }
+
+        JsonWriter json = new JsonWriter(response.getWriter());
+        if (since < horizon || since > current) {
+            json.beginObject().name("version").value(current).name("resync").value(true).endObject().flush();
+            return;
+        }
+
+        json.beginObject().name("changed").beginArray();
+        List<Integer> deleted = new ArrayList<>();
+        long[] version = {since};
+        int[] rows = {0};
+        boolean ok = changeDAO.visitChangesSince(since, settleSeconds, maxChanges, rs -> {
+            version[0] = rs.getLong("version");
+            rows[0]++;
+            rs.getInt("id");
+            if (rs.wasNull()) {
+                deleted.add(rs.getInt("book_id"));
+            } else {
+                CatalogApiServlet.writeSummary(json, rs);
+            }
+        });
+        if (!ok) {
+            if (rows[0] == 0 && !response.isCommitted()) {
+                response.resetBuffer();
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                new JsonWriter(response.getWriter()).beginObject()
+                        .name("error").value("Catalog temporarily unavailable").endObject().flush();
+            } else {
+                logger.warn("Catalog changes response cut short after {} rows", rows[0]);
+            }
+            return;
+        }
+
+        json.endArray().name("deleted").beginArray();
+        for (int id : deleted) {
+            json.value(id);
+        }
+        json.endArray()
+                .name("version").value(version[0])
+                .name("hasMore").value(rows[0] == maxChanges)
+                .endObject().flush();
+    }
+
+    private void compact() {
+        int removed = changeDAO.compact(retentionDays, settleSeconds);
+        if (removed >= 0) {
+            logger.info("Compacted catalog change log, removed {} entries", removed);
+        }
+    }
+
+    private int intParam(String name, int defaultValue) {
+        String value = getInitParameter(name);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+}
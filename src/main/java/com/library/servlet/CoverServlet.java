@@ -0,0 +1,176 @@
+package com.library.servlet;
+
+import com.library.cache.CoverBytesCache;
+import com.library.service.CoverStore;
+import com.library.util.HttpCacheUtil;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Serves cover images from the local cover store.
+ * <p>
+ * Names are content hashes, so responses carry a strong ETag and are cached
+ * as immutable. Large files go through Tomcat's sendfile when the connector
+ * supports it, otherwise {@link FileChannel#transferTo}; small thumbnails are
+ * answered from an in-memory cache.
+ */
+public class CoverServlet extends HttpServlet {
+
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    // Same threshold Tomcat's DefaultServlet uses before handing a file to sendfile
+    private static final long SENDFILE_THRESHOLD = 48 * 1024L;
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private transient CoverStore coverStore;
+    private transient CoverBytesCache cache;
+
+    @Override
+    public void init() throws ServletException {
+        coverStore = CoverStore.fromEnvironment();
+        cache = new CoverBytesCache(8L * 1024 * 1024, 64 * 1024);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        String name = request.getPathInfo() == null ? null : request.getPathInfo().substring(1);
+        Path file = coverStore.resolve(name);
+        if (file == null || !Files.isRegularFile(file)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String etag = "\"" + name.substring(0, name.lastIndexOf('.')) + "\"";
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", CACHE_CONTROL);
+        response.setHeader("Accept-Ranges", "bytes");
+
+        if (HttpCacheUtil.matches(request.getHeader("If-None-Match"), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        String mimeType = getServletContext().getMimeType(name);
+        response.setContentType(mimeType != null ? mimeType : "application/octet-stream");
+
+        long length = Files.size(file);
+        long[] range = null;
+        String rangeHeader = request.getHeader("Range");
+        String ifRange = request.getHeader("If-Range");
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+            range = parseRange(rangeHeader, length);
+            if (range == null) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+        }
+
+        long start = 0;
+        long end = length - 1;
+        if (range != null && (range[0] != 0 || range[1] != length - 1)) {
+            start = range[0];
+            end = range[1];
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+        }
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        if (cache.accepts(length)) {
+            writeCached(name, file, start, (int) count, response);
+        } else if (count >= SENDFILE_THRESHOLD && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // The connector streams the file straight from the page cache after this request returns
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+        } else {
+            transfer(file, start, count, response.getOutputStream());
+        }
+    }
+
+    private void writeCached(String name, Path file, long start, int count, HttpServletResponse response)
+            throws IOException {
+        byte[] bytes = cache.get(name);
+        if (bytes == null) {
+            bytes = Files.readAllBytes(file);
+            cache.put(name, bytes);
+        }
+        response.getOutputStream().write(bytes, (int) start, count);
+    }
+
+    private void transfer(Path file, long start, long count, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    /**
+     * Parses a single {@code bytes=} range. Multi-range requests are answered
+     * with the whole file, which RFC 9110 allows.
+     *
+     * @return inclusive {start, end}, or null when the range cannot be satisfied
+     */
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return new long[]{0, length - 1};
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[]{0, length - 1};
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix == 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? length - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)), length - 1);
+            }
+            if (start >= length || start > end) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[]{0, length - 1};
+        }
+    }
+}
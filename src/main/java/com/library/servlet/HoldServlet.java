@@ -0,0 +1,136 @@
+package com.library.servlet;
+
+import com.library.dao.BookDAO;
+import com.library.dao.BorrowingDAO;
+import com.library.dao.HoldDAO;
+import com.library.model.Book;
+import com.library.model.Hold;
+import com.library.session.SessionUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Places and cancels holds on books with no copy on the shelf. Returned
+ * copies go to the queue in {@link BorrowingDAO#returnBook}, so a reader
+ * waiting for a popular title finds it set aside on My Borrowings instead
+ * of retrying the borrow.
+ * <p>
+ * The servlet also sweeps the queues every minute: lapsed holds expire and
+ * their copies move on to the next reader.
+ */
+public class HoldServlet extends HttpServlet {
+
+    private static final Logger logger = LoggerFactory.getLogger(HoldServlet.class);
+
+    private transient BookDAO bookDAO;
+    private transient BorrowingDAO borrowingDAO;
+    private transient HoldDAO holdDAO;
+    private transient ScheduledExecutorService sweeper;
+    private transient AsyncExecution async = AsyncExecution.INLINE;
+
+    @Override
+    public void init() throws ServletException {
+        bookDAO = new BookDAO();
+        borrowingDAO = new BorrowingDAO();
+        holdDAO = new HoldDAO();
+        async = AsyncExecution.forServlet(getServletConfig());
+
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "hold-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void destroy() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        SessionUser user = SessionUser.current(request);
+
+        async.execute(request, response, (req, resp) -> {
+            if ("cancel".equals(req.getParameter("action"))) {
+                cancelHold(req, resp, user);
+            } else {
+                placeHold(req, resp, user);
+            }
+            return null;
+        });
+    }
+
+    private void placeHold(HttpServletRequest request, HttpServletResponse response, SessionUser user) throws IOException {
+        int bookId;
+        try {
+            bookId = Integer.parseInt(request.getParameter("bookId"));
+        } catch (NumberFormatException e) {
+            response.sendRedirect("books?error=Invalid book ID");
+            return;
+        }
+
+        Book book = bookDAO.findById(bookId);
+        if (book == null) {
+            response.sendRedirect("books?error=Book not found");
+            return;
+        }
+        if (book.isAvailable()) {
+            response.sendRedirect("book-detail?id=" + bookId + "&error=A copy is available, you can borrow it now");
+            return;
+        }
+        if (borrowingDAO.hasActiveBorrowing(user.getId(), bookId)) {
+            response.sendRedirect("book-detail?id=" + bookId + "&error=You already have this book borrowed");
+            return;
+        }
+        if (holdDAO.findActive(user.getId(), bookId) != null) {
+            response.sendRedirect("book-detail?id=" + bookId + "&error=You already have a hold on this book");
+            return;
+        }
+
+        if (!holdDAO.place(user.getId(), bookId)) {
+            response.sendRedirect("book-detail?id=" + bookId + "&error=Failed to place hold");
+            return;
+        }
+        Hold hold = holdDAO.findActive(user.getId(), bookId);
+        String position = hold == null ? "" : " You are number " + hold.getPosition() + " in the queue.";
+        response.sendRedirect("book-detail?id=" + bookId + "&success=Hold placed." + position);
+    }
+
+    private void cancelHold(HttpServletRequest request, HttpServletResponse response, SessionUser user) throws IOException {
+        int holdId;
+        try {
+            holdId = Integer.parseInt(request.getParameter("holdId"));
+        } catch (NumberFormatException e) {
+            response.sendRedirect("my-borrowings?error=Invalid hold");
+            return;
+        }
+
+        if (holdDAO.cancel(holdId, user.getId())) {
+            response.sendRedirect("my-borrowings?success=Hold cancelled");
+        } else {
+            response.sendRedirect("my-borrowings?error=Failed to cancel hold");
+        }
+    }
+
+    private void sweep() {
+        int changed = holdDAO.sweep();
+        if (changed > 0) {
+            logger.info("Hold sweep changed {} holds", changed);
+        }
+    }
+}
@@ -2,7 +2,11 @@ package com.library.servlet;
 
 import com.library.dao.UserDAO;
 import com.library.model.User;
-import com.library.util.PasswordUtil;
+import com.library.service.PasswordHasher;
+import com.library.session.SessionTokens;
+import com.library.session.SessionUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -12,6 +16,9 @@ import jakarta.servlet.http.HttpSession;
 import java.io.IOException;
 
 public class LoginServlet extends HttpServlet {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginServlet.class);
+
     private UserDAO userDAO;
     
     @Override
@@ -33,12 +40,32 @@ public class LoginServlet extends HttpServlet {
         }
         
         User user = userDAO.findByUsername(username);
-        
-        if (user != null && PasswordUtil.verifyPassword(password, user.getPassword())) {
-            HttpSession session = request.getSession();
-            session.setAttribute("user", user);
-            session.setMaxInactiveInterval(30 * 60); // 30 minutes
-            
+        PasswordHasher hasher = PasswordHasher.shared();
+        // Unknown usernames cost the same hashing, so timing does not reveal them
+        PasswordHasher.Verification verification = user == null
+                ? hasher.verifyUnknownUser(password)
+                : hasher.verify(password, user.getPassword());
+
+        if (verification == PasswordHasher.Verification.BUSY) {
+            response.sendRedirect("login.jsp?error=Too many sign-ins right now, please try again in a moment");
+            return;
+        }
+
+        if (verification.matches()) {
+            if (verification == PasswordHasher.Verification.MATCH_NEEDS_REHASH) {
+                upgradeHash(hasher, user, password);
+            }
+
+            SessionTokens tokens = SessionTokens.shared();
+            if (tokens != null) {
+                tokens.writeCookie(request, response, user.getId(), user.getUsername(), user.getFullName(),
+                        user.getRole());
+            } else {
+                HttpSession session = request.getSession();
+                session.setAttribute(SessionUser.ATTRIBUTE, SessionUser.of(user));
+                session.setMaxInactiveInterval(30 * 60); // 30 minutes
+            }
+
             if (user.isAdmin()) {
                 response.sendRedirect("admin/dashboard");
             } else {
@@ -49,6 +76,16 @@ public class LoginServlet extends HttpServlet {
         }
     }
     
+    private void upgradeHash(PasswordHasher hasher, User user, String password) {
+        int userId = user.getId();
+        String currentHash = user.getPassword();
+        hasher.rehash(password, newHash -> {
+            if (userDAO.upgradePasswordHash(userId, currentHash, newHash)) {
+                logger.info("Upgraded password hash of user ID {}", userId);
+            }
+        });
+    }
+
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
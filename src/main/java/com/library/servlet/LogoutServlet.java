@@ -1,22 +1,39 @@
 package com.library.servlet;
 
+import com.library.session.SessionTokens;
+import com.library.session.SessionUser;
+import com.library.session.SessionVersions;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.IOException;
 
 public class LogoutServlet extends HttpServlet {
-    
+
+    private static final Logger logger = LoggerFactory.getLogger(LogoutServlet.class);
+
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         
         HttpSession session = request.getSession(false);
         if (session != null) {
+            SessionUser user = (SessionUser) session.getAttribute(SessionUser.ATTRIBUTE);
+            SessionVersions versions = SessionVersions.shared();
+            if (user != null && versions != null && !versions.revoke(user.getId())) {
+                // The cookie goes anyway; a copy of it stays valid until it expires
+                logger.warn("Could not revoke sessions of user ID {} on logout", user.getId());
+            }
             session.invalidate();
         }
+        if (SessionTokens.shared() != null) {
+            SessionTokens.clearCookie(request, response);
+        }
         
         response.sendRedirect("index.jsp?success=Logged out successfully");
     }
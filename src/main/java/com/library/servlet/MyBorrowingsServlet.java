@@ -1,31 +1,37 @@
 package com.library.servlet;
 
 import com.library.dao.BorrowingDAO;
+import com.library.dao.HoldDAO;
 import com.library.model.Borrowing;
-import com.library.model.User;
+import com.library.session.SessionUser;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 import java.io.IOException;
 import java.util.List;
 
 public class MyBorrowingsServlet extends HttpServlet {
     private BorrowingDAO borrowingDAO;
+    private HoldDAO holdDAO;
+    private AsyncExecution async = AsyncExecution.INLINE;
     
     @Override
     public void init() throws ServletException {
         borrowingDAO = new BorrowingDAO();
+        holdDAO = new HoldDAO();
+        async = AsyncExecution.forServlet(getServletConfig());
     }
     
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        
-        HttpSession session = request.getSession(false);
-        User user = (User) session.getAttribute("user");
+        async.execute(request, response, (req, resp) -> listBorrowings(req));
+    }
+    
+    private String listBorrowings(HttpServletRequest request) {
+        SessionUser user = SessionUser.current(request);
         
         // Update overdue status
         borrowingDAO.updateOverdueStatus();
@@ -33,6 +39,7 @@ public class MyBorrowingsServlet extends HttpServlet {
         List<Borrowing> borrowings = borrowingDAO.findByUserId(user.getId());
         
         request.setAttribute("borrowings", borrowings);
-        request.getRequestDispatcher("/my-borrowings.jsp").forward(request, response);
+        request.setAttribute("holds", holdDAO.findActiveByUserId(user.getId()));
+        return "/my-borrowings.jsp";
     }
 }
@@ -2,7 +2,7 @@ package com.library.servlet;
 
 import com.library.dao.UserDAO;
 import com.library.model.User;
-import com.library.util.PasswordUtil;
+import com.library.service.PasswordHasher;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -58,11 +58,17 @@ public class RegisterServlet extends HttpServlet {
             return;
         }
         
+        String hash = PasswordHasher.shared().hash(password);
+        if (hash == null) {
+            response.sendRedirect("register.jsp?error=Too many requests right now, please try again in a moment");
+            return;
+        }
+
         // Create new user
         User user = new User();
         user.setUsername(username);
         user.setEmail(email);
-        user.setPassword(PasswordUtil.hashPassword(password));
+        user.setPassword(hash);
         user.setFullName(fullName);
         user.setRole("USER");
         
@@ -1,40 +1,44 @@
 package com.library.servlet;
 
-import com.library.dao.BookDAO;
 import com.library.dao.BorrowingDAO;
 import com.library.model.Borrowing;
-import com.library.model.User;
+import com.library.service.AvailabilityBroadcaster;
+import com.library.service.ReturnJournal;
+import com.library.session.SessionUser;
+import com.library.util.DatabaseConnection;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 import java.io.IOException;
 import java.sql.Date;
 import java.time.LocalDate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class ReturnServlet extends HttpServlet {
-    private BookDAO bookDAO;
+    private static final Logger logger = LoggerFactory.getLogger(ReturnServlet.class);
+
     private BorrowingDAO borrowingDAO;
+    private AsyncExecution async = AsyncExecution.INLINE;
     
     @Override
     public void init() throws ServletException {
-        bookDAO = new BookDAO();
         borrowingDAO = new BorrowingDAO();
+        async = AsyncExecution.forServlet(getServletConfig());
     }
     
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         
-        HttpSession session = request.getSession(false);
-        if (session == null || session.getAttribute("user") == null) {
+        SessionUser user = SessionUser.current(request);
+        if (user == null) {
             response.sendRedirect("login.jsp?error=Please login");
             return;
         }
-        
-        User user = (User) session.getAttribute("user");
+
         String borrowingIdParam = request.getParameter("borrowingId");
         
         if (borrowingIdParam == null || borrowingIdParam.trim().isEmpty()) {
@@ -42,37 +46,65 @@ public class ReturnServlet extends HttpServlet {
             return;
         }
         
+        int borrowingId;
         try {
-            int borrowingId = Integer.parseInt(borrowingIdParam);
-            Borrowing borrowing = borrowingDAO.findById(borrowingId);
-            
-            if (borrowing == null) {
-                response.sendRedirect("my-borrowings?error=Borrowing not found");
-                return;
-            }
-            
-            // Verify that this borrowing belongs to the current user
-            if (borrowing.getUserId() != user.getId()) {
-                response.sendRedirect("my-borrowings?error=Access denied");
-                return;
-            }
-            
-            if (!"BORROWED".equals(borrowing.getStatus()) && !"OVERDUE".equals(borrowing.getStatus())) {
-                response.sendRedirect("my-borrowings?error=Book already returned");
-                return;
-            }
-            
-            // Return the book
-            Date returnDate = Date.valueOf(LocalDate.now());
-            if (borrowingDAO.returnBook(borrowingId, returnDate) && 
-                bookDAO.increaseAvailableQuantity(borrowing.getBookId())) {
-                response.sendRedirect("my-borrowings?success=Book returned successfully");
-            } else {
-                response.sendRedirect("my-borrowings?error=Failed to return book");
-            }
-            
+            borrowingId = Integer.parseInt(borrowingIdParam);
         } catch (NumberFormatException e) {
             response.sendRedirect("my-borrowings?error=Invalid borrowing ID");
+            return;
+        }
+        
+        // Database down, or earlier returns still waiting to be replayed ahead of this one
+        ReturnJournal journal = ReturnJournal.shared();
+        if (journal != null && (DatabaseConnection.isCircuitOpen() || journal.hasPending())) {
+            journalReturn(response, journal, user, borrowingId);
+            return;
+        }
+        
+        async.execute(request, response, (req, resp) -> {
+            returnBook(resp, user, borrowingId);
+            return null;
+        });
+    }
+    
+    private void journalReturn(HttpServletResponse response, ReturnJournal journal, SessionUser user, int borrowingId)
+            throws IOException {
+        try {
+            journal.append(borrowingId, user.getId(), LocalDate.now());
+            response.sendRedirect("my-borrowings?success=Return recorded. It will show in your borrowings shortly");
+        } catch (IOException e) {
+            logger.error("Failed to journal return of borrowing ID {}", borrowingId, e);
+            response.sendRedirect("my-borrowings?error=Failed to return book");
+        }
+    }
+    
+    private void returnBook(HttpServletResponse response, SessionUser user, int borrowingId) throws IOException {
+        Borrowing borrowing = borrowingDAO.findById(borrowingId);
+        
+        if (borrowing == null) {
+            response.sendRedirect("my-borrowings?error=Borrowing not found");
+            return;
+        }
+        
+        // Verify that this borrowing belongs to the current user
+        if (borrowing.getUserId() != user.getId()) {
+            response.sendRedirect("my-borrowings?error=Access denied");
+            return;
+        }
+        
+        if (!"BORROWED".equals(borrowing.getStatus()) && !"OVERDUE".equals(borrowing.getStatus())) {
+            response.sendRedirect("my-borrowings?error=Book already returned");
+            return;
+        }
+        
+        // Return the book
+        Date returnDate = Date.valueOf(LocalDate.now());
+        // Goes to the head of the book's hold queue, or back on the shelf
+        if (borrowingDAO.returnBook(borrowingId, borrowing.getBookId(), returnDate)) {
+            AvailabilityBroadcaster.shared().bookChanged(borrowing.getBookId());
+            response.sendRedirect("my-borrowings?success=Book returned successfully");
+        } else {
+            response.sendRedirect("my-borrowings?error=Failed to return book");
         }
     }
 }
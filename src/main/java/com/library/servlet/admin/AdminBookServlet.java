@@ -1,17 +1,32 @@
 package com.library.servlet.admin;
 
 import com.library.dao.BookDAO;
+import com.library.dao.RowCursor;
 import com.library.model.Book;
+import com.library.service.AvailabilityBroadcaster;
+import com.library.service.CoverStore;
+import com.library.service.ThumbnailService;
+import com.library.servlet.AsyncExecution;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
 import java.io.IOException;
-import java.util.List;
+import java.io.InputStream;
+import java.util.Map;
 
 public class AdminBookServlet extends HttpServlet {
+    private static final Map<String, String> COVER_EXTENSIONS = Map.of(
+            "image/jpeg", "jpg",
+            "image/png", "png",
+            "image/gif", "gif");
+
     BookDAO bookDAO;
+    private transient CoverStore coverStore;
+    private transient ThumbnailService thumbnailService;
+    private transient AsyncExecution async = AsyncExecution.INLINE;
 
 
     // In AdminBookServlet
@@ -22,6 +37,16 @@ public class AdminBookServlet extends HttpServlet {
     @Override
     public void init() throws ServletException {
         bookDAO = new BookDAO();
+        coverStore = CoverStore.fromEnvironment();
+        thumbnailService = new ThumbnailService(coverStore);
+        async = AsyncExecution.forServlet(getServletConfig());
+    }
+
+    @Override
+    public void destroy() {
+        if (thumbnailService != null) {
+            thumbnailService.shutdown();
+        }
     }
     
     @Override
@@ -31,10 +56,14 @@ public class AdminBookServlet extends HttpServlet {
         String action = request.getParameter("action");
         
         if ("edit".equals(action)) {
-            showEditForm(request, response);
+            async.execute(request, response, (req, resp) -> showEditForm(req));
         } else if ("delete".equals(action)) {
-            deleteBook(request, response);
+            async.execute(request, response, (req, resp) -> {
+                deleteBook(req, resp);
+                return null;
+            });
         } else {
+            // Rows are read while the page renders, so the list stays on the request thread
             listBooks(request, response);
         }
     }
@@ -46,32 +75,41 @@ public class AdminBookServlet extends HttpServlet {
         String action = request.getParameter("action");
         
         if ("create".equals(action)) {
-            createBook(request, response);
+            async.execute(request, response, (req, resp) -> {
+                createBook(req, resp);
+                return null;
+            });
         } else if ("update".equals(action)) {
-            updateBook(request, response);
+            async.execute(request, response, (req, resp) -> {
+                updateBook(req, resp);
+                return null;
+            });
         }
     }
     
     private void listBooks(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        List<Book> books = bookDAO.findAll();
-        request.setAttribute("books", books);
-        request.getRequestDispatcher("/admin/books.jsp").forward(request, response);
+        // Rows are read while the page renders; the cursor is released once it is done
+        try (RowCursor<Book> books = bookDAO.cursorAll()) {
+            request.setAttribute("books", books);
+            request.getRequestDispatcher("/admin/books.jsp").forward(request, response);
+        }
     }
     
-    private void showEditForm(HttpServletRequest request, HttpServletResponse response)
-            throws ServletException, IOException {
+    private String showEditForm(HttpServletRequest request) {
         int bookId = Integer.parseInt(request.getParameter("id"));
         Book book = bookDAO.findById(bookId);
         request.setAttribute("book", book);
-        request.getRequestDispatcher("/admin/book-form.jsp").forward(request, response);
+        return "/admin/book-form.jsp";
     }
     
     private void createBook(HttpServletRequest request, HttpServletResponse response)
-            throws IOException {
+            throws ServletException, IOException {
         Book book = extractBookFromRequest(request);
+        String uploadedCover = storeUploadedCover(request, book);
         
         if (bookDAO.create(book)) {
+            generateThumbnails(book.getId(), uploadedCover);
             response.sendRedirect("books?success=Book created successfully");
         } else {
             response.sendRedirect("books?error=Failed to create book");
@@ -79,11 +117,15 @@ public class AdminBookServlet extends HttpServlet {
     }
     
     private void updateBook(HttpServletRequest request, HttpServletResponse response)
-            throws IOException {
+            throws ServletException, IOException {
         Book book = extractBookFromRequest(request);
         book.setId(Integer.parseInt(request.getParameter("id")));
+        String uploadedCover = storeUploadedCover(request, book);
         
         if (bookDAO.update(book)) {
+            // Stock may have been edited
+            AvailabilityBroadcaster.shared().bookChanged(book.getId());
+            generateThumbnails(book.getId(), uploadedCover);
             response.sendRedirect("books?success=Book updated successfully");
         } else {
             response.sendRedirect("books?error=Failed to update book");
@@ -101,6 +143,47 @@ public class AdminBookServlet extends HttpServlet {
         }
     }
     
+    /**
+     * Streams an uploaded cover file to the cover store and points the book at
+     * the full-size image until its thumbnails are ready.
+     *
+     * @return the stored file name, or null when no usable file was uploaded
+     */
+    private String storeUploadedCover(HttpServletRequest request, Book book)
+            throws ServletException, IOException {
+        String contentType = request.getContentType();
+        if (coverStore == null || contentType == null || !contentType.startsWith("multipart/")) {
+            return null;
+        }
+
+        Part part = request.getPart("coverFile");
+        if (part == null || part.getSize() == 0) {
+            return null;
+        }
+        String extension = COVER_EXTENSIONS.get(part.getContentType());
+        if (extension == null) {
+            return null;
+        }
+
+        String name;
+        try (InputStream in = part.getInputStream()) {
+            name = coverStore.store(in, extension);
+        } finally {
+            part.delete();
+        }
+        book.setCoverImage(CoverStore.url(name));
+        return name;
+    }
+
+    private void generateThumbnails(int bookId, String uploadedCover) {
+        if (uploadedCover == null) {
+            return;
+        }
+        // Only swap in the thumbnail if no one has changed the cover since the upload
+        thumbnailService.submit(uploadedCover, thumbnails -> bookDAO.updateCoverImage(bookId,
+                CoverStore.url(uploadedCover), CoverStore.url(thumbnails.get(ThumbnailService.Size.MEDIUM))));
+    }
+    
     private Book extractBookFromRequest(HttpServletRequest request) {
         Book book = new Book();
         book.setTitle(request.getParameter("title"));
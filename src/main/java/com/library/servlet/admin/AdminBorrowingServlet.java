@@ -1,6 +1,7 @@
 package com.library.servlet.admin;
 
 import com.library.dao.BorrowingDAO;
+import com.library.dao.RowCursor;
 import com.library.model.Borrowing;
 
 import jakarta.servlet.ServletException;
@@ -8,7 +9,6 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.List;
 
 public class AdminBorrowingServlet extends HttpServlet {
     private BorrowingDAO borrowingDAO;
@@ -25,8 +25,9 @@ public class AdminBorrowingServlet extends HttpServlet {
         // Update overdue status
         borrowingDAO.updateOverdueStatus();
         
-        List<Borrowing> borrowings = borrowingDAO.findAll();
-        request.setAttribute("borrowings", borrowings);
-        request.getRequestDispatcher("/admin/borrowings.jsp").forward(request, response);
+        try (RowCursor<Borrowing> borrowings = borrowingDAO.cursorAll()) {
+            request.setAttribute("borrowings", borrowings);
+            request.getRequestDispatcher("/admin/borrowings.jsp").forward(request, response);
+        }
     }
 }
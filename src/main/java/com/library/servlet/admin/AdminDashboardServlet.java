@@ -3,6 +3,7 @@ package com.library.servlet.admin;
 import com.library.dao.BookDAO;
 import com.library.dao.BorrowingDAO;
 import com.library.dao.UserDAO;
+import com.library.servlet.AsyncExecution;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -14,18 +15,23 @@ public class AdminDashboardServlet extends HttpServlet {
     private BookDAO bookDAO;
     private UserDAO userDAO;
     private BorrowingDAO borrowingDAO;
+    private AsyncExecution async = AsyncExecution.INLINE;
     
     @Override
     public void init() throws ServletException {
         bookDAO = new BookDAO();
         userDAO = new UserDAO();
         borrowingDAO = new BorrowingDAO();
+        async = AsyncExecution.forServlet(getServletConfig());
     }
     
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        
+        async.execute(request, response, (req, resp) -> showStatistics(req));
+    }
+    
+    private String showStatistics(HttpServletRequest request) {
         // Update overdue status
         borrowingDAO.updateOverdueStatus();
         
@@ -42,6 +48,6 @@ public class AdminDashboardServlet extends HttpServlet {
         request.setAttribute("activeBorrowings", activeBorrowings);
         request.setAttribute("overdueBorrowings", overdueBorrowings);
         
-        request.getRequestDispatcher("/admin/dashboard.jsp").forward(request, response);
+        return "/admin/dashboard.jsp";
     }
 }
@@ -1,47 +1,90 @@
 package com.library.servlet.admin;
 
+import com.library.dao.RowCursor;
 import com.library.dao.UserDAO;
 import com.library.model.User;
+import com.library.service.ImportSummary;
+import com.library.service.UserImportService;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
 import java.io.IOException;
-import java.util.List;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 
 public class AdminUserServlet extends HttpServlet {
     private UserDAO userDAO;
-    
+    private UserImportService userImportService;
+
     @Override
     public void init() throws ServletException {
         userDAO = new UserDAO();
+        userImportService = new UserImportService(userDAO);
     }
-    
+
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        
+
         String action = request.getParameter("action");
-        
+
         if ("delete".equals(action)) {
             deleteUser(request, response);
         } else {
             listUsers(request, response);
         }
     }
-    
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        String action = request.getParameter("action");
+
+        if ("import".equals(action)) {
+            importUsers(request, response);
+        } else {
+            response.sendRedirect("users");
+        }
+    }
+
     private void listUsers(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        List<User> users = userDAO.findAll();
-        request.setAttribute("users", users);
-        request.getRequestDispatcher("/admin/users.jsp").forward(request, response);
+        try (RowCursor<User> users = userDAO.cursorAll()) {
+            request.setAttribute("users", users);
+            request.getRequestDispatcher("/admin/users.jsp").forward(request, response);
+        }
+    }
+
+    private void importUsers(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        Part file = request.getPart("file");
+        if (file == null || file.getSize() == 0) {
+            response.sendRedirect("users?error=Please choose a CSV file to import");
+            return;
+        }
+
+        ImportSummary summary;
+        try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+            summary = userImportService.importCsv(reader);
+        }
+        if (summary == null) {
+            response.sendRedirect("users?error=Import failed: could not check for existing users, nothing was imported");
+            return;
+        }
+
+        request.setAttribute("importSummary", summary);
+        listUsers(request, response);
     }
-    
+
     private void deleteUser(HttpServletRequest request, HttpServletResponse response)
             throws IOException {
         int userId = Integer.parseInt(request.getParameter("id"));
-        
+
         if (userDAO.delete(userId)) {
             response.sendRedirect("users?success=User deleted successfully");
         } else {
@@ -0,0 +1,99 @@
+package com.library.session;
+
+import com.library.metrics.Metrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import jakarta.servlet.http.HttpSessionAttributeListener;
+import jakarta.servlet.http.HttpSessionBindingEvent;
+import jakarta.servlet.http.HttpSessionEvent;
+import jakarta.servlet.http.HttpSessionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures what container sessions cost: {@code sessions_active} counts
+ * them, and {@code session_attribute_bytes} records the serialized size of
+ * every attribute stored in one, by attribute name, which is what session
+ * persistence or replication would have to write. Token sessions are not
+ * container sessions and are not counted.
+ */
+public class SessionMetricsListener implements HttpSessionListener, HttpSessionAttributeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionMetricsListener.class);
+
+    private static final AtomicInteger ACTIVE = new AtomicInteger();
+
+    static {
+        Gauge.builder("sessions_active", ACTIVE, AtomicInteger::get)
+                .description("Container sessions currently alive")
+                .register(Metrics.registry());
+    }
+
+    @Override
+    public void sessionCreated(HttpSessionEvent se) {
+        ACTIVE.incrementAndGet();
+    }
+
+    @Override
+    public void sessionDestroyed(HttpSessionEvent se) {
+        ACTIVE.decrementAndGet();
+    }
+
+    @Override
+    public void attributeAdded(HttpSessionBindingEvent event) {
+        record(event.getName(), event.getValue());
+    }
+
+    @Override
+    public void attributeReplaced(HttpSessionBindingEvent event) {
+        // The event carries the old value; the new one is in the session
+        record(event.getName(), event.getSession().getAttribute(event.getName()));
+    }
+
+    private static void record(String name, Object value) {
+        if (value == null) {
+            return;
+        }
+        long size = serializedSize(value);
+        if (size < 0) {
+            return;
+        }
+        DistributionSummary.builder("session_attribute_bytes")
+                .description("Serialized size of session attributes when stored")
+                .baseUnit("bytes")
+                .tag("attribute", name)
+                .register(Metrics.registry())
+                .record(size);
+    }
+
+    /** Serialized size of the value, or -1 if it cannot be serialized. */
+    static long serializedSize(Object value) {
+        CountingStream counter = new CountingStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(counter)) {
+            out.writeObject(value);
+        } catch (IOException e) {
+            logger.warn("Session attribute of type {} is not serializable", value.getClass().getName());
+            return -1;
+        }
+        return counter.count;
+    }
+
+    private static final class CountingStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.library.session;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Signs requests in from their session token in stateless session mode.
+ * <p>
+ * A valid token makes the request's session a {@link TokenSession} holding
+ * the principal, so {@link com.library.filter.AuthFilter},
+ * {@link com.library.filter.AdminFilter} and the servlets read it as they
+ * read a container session. Tokens past half their lifetime, or signed with
+ * an old key, are reissued; invalid ones are cleared. In container session
+ * mode, with no {@link SessionTokens#shared()}, requests pass untouched.
+ */
+public class SessionTokenFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionTokenFilter.class);
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        logger.info("[SessionTokenFilter] Initialized successfully");
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        SessionTokens tokens = SessionTokens.shared();
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        String token = tokens == null ? null : tokenOf(httpRequest);
+        if (token == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        SessionTokens.Claims claims = tokens.verify(token);
+        if (claims == null) {
+            SessionTokens.clearCookie(httpRequest, httpResponse);
+            chain.doFilter(request, response);
+            return;
+        }
+        if (tokens.shouldRefresh(token, claims)) {
+            tokens.writeCookie(httpRequest, httpResponse, claims.getUserId(), claims.getUsername(),
+                    claims.getFullName(), claims.getRole());
+        }
+
+        TokenSession session = new TokenSession(httpRequest.getServletContext(), claims);
+        chain.doFilter(new SignedInRequest(httpRequest, session), response);
+    }
+
+    private static String tokenOf(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (SessionTokens.COOKIE.equals(cookie.getName()) && !cookie.getValue().isEmpty()) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void destroy() {
+        logger.info("[SessionTokenFilter] Destroyed");
+    }
+
+    /** Answers session lookups with the token's session until it is invalidated. */
+    private static final class SignedInRequest extends HttpServletRequestWrapper {
+        private final TokenSession session;
+
+        SignedInRequest(HttpServletRequest request, TokenSession session) {
+            super(request);
+            this.session = session;
+        }
+
+        @Override
+        public HttpSession getSession(boolean create) {
+            return session.isInvalidated() ? super.getSession(create) : session;
+        }
+
+        @Override
+        public HttpSession getSession() {
+            return getSession(true);
+        }
+
+        @Override
+        public String getRemoteUser() {
+            return session.isInvalidated() ? null : session.getClaims().getUsername();
+        }
+
+        @Override
+        public boolean isUserInRole(String role) {
+            return !session.isInvalidated() && role.equals(session.getClaims().getRole());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.library.session;
+
+import com.library.dao.UserDAO;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Switches to stateless sessions when the {@code SESSION_TOKEN_KEYS}
+ * environment variable holds signing keys (see
+ * {@link SessionTokens#parseKeys}); without it the container session is
+ * used as before.
+ * <p>
+ * Context params: {@code sessionToken.ttlMinutes}, how long a token is
+ * valid without being refreshed (default 30), and
+ * {@code sessionToken.reloadMillis}, how often the session versions are
+ * read again in full, in case an invalidation was missed (default 60000).
+ */
+public class SessionTokenListener implements ServletContextListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionTokenListener.class);
+
+    private static final long DEFAULT_TTL_MINUTES = 30;
+    private static final long DEFAULT_RELOAD_MILLIS = 60_000;
+    private static final long FIRST_LOAD_RETRY_MILLIS = 5_000;
+
+    private ScheduledExecutorService executor;
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        String keys = System.getenv("SESSION_TOKEN_KEYS");
+        if (keys == null || keys.isBlank()) {
+            logger.info("Using container sessions");
+            return;
+        }
+
+        ServletContext context = sce.getServletContext();
+        SessionVersions versions = new SessionVersions(new UserDAO());
+        SessionTokens tokens;
+        try {
+            tokens = new SessionTokens(SessionTokens.parseKeys(keys), versions,
+                    TimeUnit.MINUTES.toMillis(param(context, "sessionToken.ttlMinutes", DEFAULT_TTL_MINUTES)));
+        } catch (IllegalArgumentException e) {
+            // Sign-in then still works, only tied to the pod again
+            logger.error("Invalid SESSION_TOKEN_KEYS, using container sessions", e);
+            return;
+        }
+        // Load before the first request; should it fail, admin tokens are
+        // refused until one of the reloads below succeeds
+        if (!versions.load()) {
+            logger.warn("Failed to load session versions, refusing admin tokens until they load");
+        }
+        SessionVersions.setShared(versions);
+        SessionTokens.setShared(tokens);
+
+        long reloadMillis = param(context, "sessionToken.reloadMillis", DEFAULT_RELOAD_MILLIS);
+        long firstReload = versions.isLoaded() ? reloadMillis : Math.min(reloadMillis, FIRST_LOAD_RETRY_MILLIS);
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-versions-reload");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            if (!versions.load()) {
+                logger.warn("Failed to reload session versions");
+            }
+        }, firstReload, reloadMillis, TimeUnit.MILLISECONDS);
+        logger.info("Using signed session tokens");
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        SessionTokens.setShared(null);
+        SessionVersions.setShared(null);
+    }
+
+    private static long param(ServletContext context, String name, long defaultValue) {
+        String configured = context.getInitParameter(name);
+        return configured == null || configured.isBlank() ? defaultValue : Long.parseLong(configured.trim());
+    }
+}
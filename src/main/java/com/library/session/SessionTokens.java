@@ -0,0 +1,269 @@
+package com.library.session;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Signed session tokens: the signed-in principal kept in a cookie instead of
+ * the container session, so any replica can serve any request.
+ * <p>
+ * A token is {@code <key id>.<claims>.<signature>}, the claims being the
+ * user id, session version, expiry, role, username and full name,
+ * base64url-encoded, and the signature an HMAC-SHA256 of everything before
+ * it. Checking one needs no lookup beyond the in-memory
+ * {@link SessionVersions}, and it carries everything the pages show of the
+ * signed-in user.
+ * <p>
+ * Keys rotate by key id: new tokens are signed with the first key, and
+ * tokens signed with any of the others are still accepted until they expire
+ * or are refreshed, after which the old key can be dropped.
+ */
+public class SessionTokens {
+
+    public static final String COOKIE = "LIBRARY_SESSION";
+
+    static final int MIN_KEY_BYTES = 32;
+
+    private static final Pattern KEY_ID = Pattern.compile("[A-Za-z0-9_-]{1,16}");
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final ThreadLocal<Mac> MAC = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("HmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    });
+
+    private static volatile SessionTokens shared;
+
+    /** What a valid token says about its holder. */
+    public static final class Claims {
+        private final int userId;
+        private final int version;
+        private final long expiresAt;
+        private final String role;
+        private final String username;
+        private final String fullName;
+
+        Claims(int userId, int version, long expiresAt, String role, String username, String fullName) {
+            this.userId = userId;
+            this.version = version;
+            this.expiresAt = expiresAt;
+            this.role = role;
+            this.username = username;
+            this.fullName = fullName;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        /** Expiry in milliseconds since the epoch, to the second. */
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        public String getRole() {
+            return role;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getFullName() {
+            return fullName;
+        }
+
+        public boolean isAdmin() {
+            return "ADMIN".equals(role);
+        }
+    }
+
+    private final Map<String, SecretKeySpec> keys;
+    private final String currentKeyId;
+    private final SessionVersions versions;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    /**
+     * @param keys signing keys by key id, the first one signing new tokens
+     */
+    public SessionTokens(Map<String, byte[]> keys, SessionVersions versions, long ttlMillis) {
+        this(keys, versions, ttlMillis, System::currentTimeMillis);
+    }
+
+    SessionTokens(Map<String, byte[]> keys, SessionVersions versions, long ttlMillis, LongSupplier clock) {
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("No session token keys");
+        }
+        Map<String, SecretKeySpec> specs = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> key : keys.entrySet()) {
+            if (!KEY_ID.matcher(key.getKey()).matches()) {
+                throw new IllegalArgumentException("Invalid session token key id: " + key.getKey());
+            }
+            if (key.getValue().length < MIN_KEY_BYTES) {
+                throw new IllegalArgumentException("Session token key " + key.getKey()
+                        + " is shorter than " + MIN_KEY_BYTES + " bytes");
+            }
+            specs.put(key.getKey(), new SecretKeySpec(key.getValue(), "HmacSHA256"));
+        }
+        this.keys = Collections.unmodifiableMap(specs);
+        this.currentKeyId = specs.keySet().iterator().next();
+        this.versions = versions;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Parses {@code SESSION_TOKEN_KEYS}: comma-separated {@code <key id>:<base64 secret>}
+     * pairs, newest first.
+     */
+    public static Map<String, byte[]> parseKeys(String spec) {
+        Map<String, byte[]> keys = new LinkedHashMap<>();
+        for (String pair : spec.split(",")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+            int colon = pair.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Expected <key id>:<base64 secret>, got a value without ':'");
+            }
+            keys.put(pair.substring(0, colon).trim(), Base64.getDecoder().decode(pair.substring(colon + 1).trim()));
+        }
+        return keys;
+    }
+
+    /** The tokens configured by {@link SessionTokenListener}, or null in container session mode. */
+    public static SessionTokens shared() {
+        return shared;
+    }
+
+    public static void setShared(SessionTokens tokens) {
+        shared = tokens;
+    }
+
+    String issue(int userId, String username, String fullName, String role) {
+        long expiresAt = TimeUnit.MILLISECONDS.toSeconds(clock.getAsLong() + ttlMillis);
+        // The names are free text and may hold the separator
+        String claims = userId + ":" + versions.current(userId) + ":" + expiresAt + ":" + role
+                + ":" + encode(username) + ":" + encode(fullName);
+        String unsigned = currentKeyId + "." + ENCODER.encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+        return unsigned + "." + ENCODER.encodeToString(sign(keys.get(currentKeyId), unsigned));
+    }
+
+    /**
+     * Tokens with more than the {@code USER} role are also rejected until
+     * the session versions have been loaded, as a revocation could not be
+     * seen before that.
+     *
+     * @return the claims of the token, or null if it is malformed, signed
+     *         with an unknown key or not by us, expired or revoked
+     */
+    public Claims verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int firstDot = token.indexOf('.');
+        int lastDot = token.lastIndexOf('.');
+        if (firstDot <= 0 || lastDot == firstDot) {
+            return null;
+        }
+        SecretKeySpec key = keys.get(token.substring(0, firstDot));
+        if (key == null) {
+            return null;
+        }
+        try {
+            byte[] signature = DECODER.decode(token.substring(lastDot + 1));
+            if (!MessageDigest.isEqual(signature, sign(key, token.substring(0, lastDot)))) {
+                return null;
+            }
+            String[] fields = new String(DECODER.decode(token.substring(firstDot + 1, lastDot)),
+                    StandardCharsets.UTF_8).split(":", -1);
+            if (fields.length != 6) {
+                return null;
+            }
+            Claims claims = new Claims(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]),
+                    TimeUnit.SECONDS.toMillis(Long.parseLong(fields[2])), fields[3],
+                    decode(fields[4]), decode(fields[5]));
+            if (claims.expiresAt <= clock.getAsLong() || !versions.isCurrent(claims.userId, claims.version)) {
+                return null;
+            }
+            if (!"USER".equals(claims.role) && !versions.isLoaded()) {
+                return null;
+            }
+            return claims;
+        } catch (IllegalArgumentException e) {
+            // Bad base64 or number; only a forger gets here
+            return null;
+        }
+    }
+
+    /**
+     * True once half of the token's lifetime has passed, or it was signed
+     * with a key that is no longer the current one; such tokens are reissued
+     * so that active users never run into the expiry.
+     */
+    public boolean shouldRefresh(String token, Claims claims) {
+        return claims.expiresAt - clock.getAsLong() < ttlMillis / 2 || !token.startsWith(currentKeyId + ".");
+    }
+
+    /** Sets the cookie carrying a fresh token for the user. */
+    public void writeCookie(HttpServletRequest request, HttpServletResponse response, int userId,
+                            String username, String fullName, String role) {
+        response.addCookie(cookie(request, issue(userId, username, fullName, role), -1));
+    }
+
+    public static void clearCookie(HttpServletRequest request, HttpServletResponse response) {
+        response.addCookie(cookie(request, "", 0));
+    }
+
+    private static Cookie cookie(HttpServletRequest request, String value, int maxAge) {
+        Cookie cookie = new Cookie(COOKIE, value);
+        String path = request.getContextPath();
+        cookie.setPath(path.isEmpty() ? "/" : path);
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setAttribute("SameSite", "Lax");
+        // A browser session cookie; the expiry that counts is inside the token
+        cookie.setMaxAge(maxAge);
+        return cookie;
+    }
+
+    private static String encode(String text) {
+        return ENCODER.encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String field) {
+        return new String(DECODER.decode(field), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] sign(SecretKeySpec key, String data) {
+        Mac mac = MAC.get();
+        try {
+            mac.init(key);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid session token key", e);
+        }
+        return mac.doFinal(data.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,90 @@
+package com.library.session;
+
+import com.library.dao.UserDAO;
+import com.library.model.User;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+
+import java.io.Serializable;
+
+/**
+ * The signed-in user as kept in the session under {@code "user"}: only what
+ * requests check on every page, so a session costs a few dozen bytes rather
+ * than a whole {@link User} with its password hash, email and timestamps.
+ * Pages read the same {@code id}, {@code fullName} and {@code admin}
+ * properties as before.
+ * <p>
+ * Code that needs the rest of the user loads it with {@link #loadUser},
+ * once per request.
+ */
+public final class SessionUser implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String ATTRIBUTE = "user";
+
+    private static final String LOADED_ATTRIBUTE = SessionUser.class.getName() + ".loaded";
+
+    private final int id;
+    private final String username;
+    private final String fullName;
+    private final String role;
+
+    public SessionUser(int id, String username, String fullName, String role) {
+        this.id = id;
+        this.username = username;
+        this.fullName = fullName;
+        this.role = role;
+    }
+
+    public static SessionUser of(User user) {
+        return new SessionUser(user.getId(), user.getUsername(), user.getFullName(), user.getRole());
+    }
+
+    /** The signed-in user of the request, or null; never creates a session. */
+    public static SessionUser current(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        Object user = session == null ? null : session.getAttribute(ATTRIBUTE);
+        // Sessions restored from before the switch hold a User: signed out
+        return user instanceof SessionUser ? (SessionUser) user : null;
+    }
+
+    /**
+     * Loads the full record of the signed-in user, at most once per request.
+     *
+     * @return the user, or null if nobody is signed in or the user could not
+     *         be loaded
+     */
+    public static User loadUser(HttpServletRequest request, UserDAO userDAO) {
+        SessionUser principal = current(request);
+        if (principal == null) {
+            return null;
+        }
+        User user = (User) request.getAttribute(LOADED_ATTRIBUTE);
+        if (user == null || user.getId() != principal.getId()) {
+            user = userDAO.findById(principal.getId());
+            request.setAttribute(LOADED_ATTRIBUTE, user);
+        }
+        return user;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public boolean isAdmin() {
+        return "ADMIN".equals(role);
+    }
+}
@@ -0,0 +1,156 @@
+package com.library.session;
+
+import com.library.cache.InvalidationBus;
+import com.library.dao.UserDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * In-memory copy of {@code users.session_version}, the revocation check of
+ * signed sessions. A token is current while the version it was issued with
+ * is at least the user's; moving the version on revokes all of them.
+ * <p>
+ * Only users whose version is not 0 are kept, so the table stays small.
+ * Deleted users are kept at {@link Integer#MAX_VALUE}, which no token
+ * reaches; {@link UserDAO#findSessionVersions} reads them from
+ * {@code deleted_users}, so they survive a restart, and {@link #load} never
+ * drops one it already knows.
+ * Changes made here or by {@link UserDAO} on this replica reload the user
+ * right away, changes made on other replicas arrive through the
+ * {@link InvalidationBus}, and {@link #load} reads the whole table again.
+ */
+public class SessionVersions {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionVersions.class);
+
+    /** Version of a user that no longer exists, see {@link UserDAO#findSessionVersion}. */
+    static final int DELETED = Integer.MAX_VALUE;
+
+    private static volatile SessionVersions shared;
+
+    private final UserDAO userDAO;
+    private final Map<Integer, Integer> versions = new ConcurrentHashMap<>();
+    private final Consumer<String> subscriber = this::schedule;
+    private final ExecutorService reloader;
+    private volatile boolean loaded;
+
+    public SessionVersions(UserDAO userDAO) {
+        this.userDAO = userDAO;
+        this.reloader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "session-versions");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** The versions used by {@link SessionTokens#shared()}, or null in container session mode. */
+    public static SessionVersions shared() {
+        return shared;
+    }
+
+    public static void setShared(SessionVersions versions) {
+        SessionVersions previous = shared;
+        if (previous != null) {
+            InvalidationBus.unsubscribe(InvalidationBus.USER, previous.subscriber);
+            previous.reloader.shutdownNow();
+        }
+        shared = versions;
+        if (versions != null) {
+            InvalidationBus.subscribe(InvalidationBus.USER, versions.subscriber);
+        }
+    }
+
+    /**
+     * Called by {@link UserDAO} after it changed a user; only schedules the
+     * reload, as the caller may be a request thread.
+     */
+    public static void userChanged(int userId) {
+        SessionVersions versions = shared;
+        if (versions != null) {
+            versions.schedule(String.valueOf(userId));
+        }
+    }
+
+    /**
+     * Replaces the table with the database's, keeping deleted users.
+     *
+     * @return false if it could not be read; the previous table stays
+     */
+    public boolean load() {
+        Map<Integer, Integer> loaded = userDAO.findSessionVersions();
+        if (loaded == null) {
+            return false;
+        }
+        versions.entrySet().removeIf(e -> e.getValue() != DELETED && !loaded.containsKey(e.getKey()));
+        versions.putAll(loaded);
+        this.loaded = true;
+        return true;
+    }
+
+    /**
+     * False until {@link #load} has succeeded once; until then the table
+     * knows only what this replica changed itself, and revocations made
+     * elsewhere are missing from it.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int current(int userId) {
+        return versions.getOrDefault(userId, 0);
+    }
+
+    public boolean isCurrent(int userId, int version) {
+        return version >= current(userId);
+    }
+
+    /**
+     * Revokes every session of the user, on all replicas.
+     *
+     * @return false if the database could not be updated
+     */
+    public boolean revoke(int userId) {
+        int version = userDAO.revokeSessions(userId);
+        if (version < 0) {
+            return false;
+        }
+        versions.merge(userId, version, Math::max);
+        return true;
+    }
+
+    private void schedule(String key) {
+        try {
+            reloader.execute(() -> reload(key));
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    void reload(String key) {
+        if (InvalidationBus.ALL_KEYS.equals(key)) {
+            load();
+            return;
+        }
+        int userId;
+        try {
+            userId = Integer.parseInt(key);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        int version = userDAO.findSessionVersion(userId);
+        if (version < 0) {
+            logger.warn("Could not reload session version of user ID {}", userId);
+        } else if (version == 0) {
+            versions.remove(userId);
+        } else {
+            versions.put(userId, version);
+        }
+    }
+}
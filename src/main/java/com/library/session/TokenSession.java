@@ -0,0 +1,105 @@
+package com.library.session;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpSession;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The session of a request signed in with a token. It lives only as long as
+ * the request: it holds the {@link SessionUser}, rebuilt from the
+ * token's claims, so everything that reads the session attribute keeps
+ * working. Other attributes are not carried to the next request.
+ */
+class TokenSession implements HttpSession {
+
+    private final ServletContext servletContext;
+    private final SessionTokens.Claims claims;
+    private final long createdAt = System.currentTimeMillis();
+    private final Map<String, Object> attributes = new HashMap<>();
+    private boolean invalidated;
+
+    TokenSession(ServletContext servletContext, SessionTokens.Claims claims) {
+        this.servletContext = servletContext;
+        this.claims = claims;
+        attributes.put(SessionUser.ATTRIBUTE, new SessionUser(claims.getUserId(), claims.getUsername(),
+                claims.getFullName(), claims.getRole()));
+    }
+
+    SessionTokens.Claims getClaims() {
+        return claims;
+    }
+
+    boolean isInvalidated() {
+        return invalidated;
+    }
+
+    @Override
+    public long getCreationTime() {
+        return createdAt;
+    }
+
+    @Override
+    public String getId() {
+        return "token-" + claims.getUserId() + "-" + claims.getVersion();
+    }
+
+    @Override
+    public long getLastAccessedTime() {
+        return createdAt;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return servletContext;
+    }
+
+    @Override
+    public void setMaxInactiveInterval(int interval) {
+        // The token's lifetime is configured on SessionTokenListener
+    }
+
+    @Override
+    public int getMaxInactiveInterval() {
+        return (int) Math.max(0, (claims.getExpiresAt() - System.currentTimeMillis()) / 1000);
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            removeAttribute(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public void invalidate() {
+        // LogoutServlet revokes the token and clears the cookie
+        invalidated = true;
+        attributes.clear();
+    }
+
+    @Override
+    public boolean isNew() {
+        return false;
+    }
+}
@@ -1,11 +1,39 @@
 package com.library.util;
 
+import com.library.metrics.Metrics;
+import com.mysql.cj.jdbc.AbandonedConnectionCleanupThread;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Enumeration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Opens connections to MySQL, one per call.
+ * <p>
+ * Every connection goes through a {@link CircuitBreaker}: when connecting
+ * keeps failing or crawling, calls fail at once with
+ * {@link SQLTransientConnectionException} instead of each waiting out the
+ * driver's connect timeout, and a probe every few seconds closes the
+ * breaker again once MySQL is back. Reads and writes also take a permit
+ * from separate bulkheads ({@code DB_READ_CONCURRENCY}, default 40, and
+ * {@code DB_WRITE_CONCURRENCY}, default 20), held until the connection is
+ * closed, so a flood of catalog reads cannot use up the connections that
+ * borrows and returns need.
+ */
 public class DatabaseConnection {
 
     private static final Logger LOGGER = Logger.getLogger(DatabaseConnection.class.getName());
@@ -29,7 +57,64 @@ public class DatabaseConnection {
     // Connection for unit tests (mock)
     private static Connection testConnection = null;
 
+    // Opens when 50% of the last 20 connects failed or 80% took over 1 s; probes after 5 s
+    private static final CircuitBreaker BREAKER = new CircuitBreaker(20, 10, 0.5, 0.8, 1000, 5000);
+
+    private static final Bulkhead READS = new Bulkhead("read", envInt("DB_READ_CONCURRENCY", 40));
+    private static final Bulkhead WRITES = new Bulkhead("write", envInt("DB_WRITE_CONCURRENCY", 20));
+
+    private static final Counter CIRCUIT_REJECTED = Counter.builder("db_circuit_rejected").register(Metrics.registry());
+
+    /**
+     * Caps the connections open at once for one kind of call. A permit is
+     * held from connect until close.
+     */
+    static final class Bulkhead {
+        // Short, so a full bulkhead fails fast rather than queuing requests
+        private static final long MAX_WAIT_MILLIS = 50;
+
+        private final String name;
+        private final Semaphore permits;
+        private final Counter rejected;
+
+        Bulkhead(String name, int size) {
+            this.name = name;
+            this.permits = new Semaphore(size);
+            this.rejected = Counter.builder("db_bulkhead_rejected").tag("kind", name).register(Metrics.registry());
+        }
+
+        boolean tryAcquire() throws SQLException {
+            try {
+                if (permits.tryAcquire(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("Interrupted waiting for a " + name + " connection");
+            }
+            rejected.increment();
+            return false;
+        }
+
+        void release() {
+            permits.release();
+        }
+
+        int available() {
+            return permits.availablePermits();
+        }
+    }
+
+    @FunctionalInterface
+    interface Connector {
+        Connection connect() throws SQLException;
+    }
+
     static {
+        Gauge.builder("db_circuit_open", BREAKER, b -> b.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .register(Metrics.registry());
+        Gauge.builder("db_bulkhead_available", READS, Bulkhead::available).tag("kind", "read").register(Metrics.registry());
+        Gauge.builder("db_bulkhead_available", WRITES, Bulkhead::available).tag("kind", "write").register(Metrics.registry());
         try {
             Class.forName("com.mysql.cj.jdbc.Driver");
             LOGGER.info("MySQL JDBC Driver loaded successfully");
@@ -38,15 +123,95 @@ public class DatabaseConnection {
         }
     }
 
+    /**
+     * A connection for writes, and for reads that are part of a write.
+     */
     public static Connection getConnection() throws SQLException {
+        return open(WRITES);
+    }
+
+    /**
+     * A connection for read-only work, from the read bulkhead.
+     */
+    public static Connection getReadConnection() throws SQLException {
+        return open(READS);
+    }
+
+    /**
+     * Whether connecting is currently refused or being probed after failures.
+     */
+    public static boolean isCircuitOpen() {
+        return BREAKER.getState() != CircuitBreaker.State.CLOSED;
+    }
+
+    /**
+     * Tells failures that may pass on a retry, such as a lost connection, an
+     * open circuit, a deadlock or a lock wait timeout, from ones that will
+     * fail the same way every time, such as a constraint violation or bad
+     * data.
+     */
+    public static boolean isTransient(SQLException e) {
+        if (e instanceof SQLTransientException || e instanceof SQLRecoverableException) {
+            return true;
+        }
+        String state = e.getSQLState();
+        // Class 08: connection exception, class 40: transaction rollback
+        return state != null && (state.startsWith("08") || state.startsWith("40"));
+    }
+
+    private static Connection open(Bulkhead bulkhead) throws SQLException {
         if (testConnection != null) {
             return testConnection; // return mock connection for testing
         }
+        return open(bulkhead, BREAKER, () -> {
+            // Log connection info (sans le mot de passe pour la sécurité); FINE, as every call connects
+            LOGGER.fine(() -> "Connecting to database: " + URL + " with user: " + USERNAME);
+            return DriverManager.getConnection(URL, USERNAME, PASSWORD);
+        });
+    }
+
+    static Connection open(Bulkhead bulkhead, CircuitBreaker breaker, Connector connector) throws SQLException {
+        // Bulkhead first, so a half-open probe is never taken by a call that then gives up
+        if (!bulkhead.tryAcquire()) {
+            throw new SQLTransientConnectionException("Too many " + bulkhead.name + " connections in use");
+        }
+        if (!breaker.tryAcquire()) {
+            bulkhead.release();
+            CIRCUIT_REJECTED.increment();
+            throw new SQLTransientConnectionException("Database unavailable, circuit open");
+        }
+
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = connector.connect();
+        } catch (SQLException | RuntimeException e) {
+            breaker.onFailure();
+            bulkhead.release();
+            throw e;
+        }
+        breaker.onSuccess(System.nanoTime() - start);
+        return releasingOnClose(connection, bulkhead);
+    }
 
-        // Log connection info (sans le mot de passe pour la sécurité)
-        LOGGER.info("Connecting to database: " + URL + " with user: " + USERNAME);
+    private static Connection releasingOnClose(Connection connection, Bulkhead bulkhead) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                        bulkhead.release();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
 
-        return DriverManager.getConnection(URL, USERNAME, PASSWORD);
+    private static int envInt(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
     }
 
     public static void setTestConnection(Connection conn) {
@@ -63,4 +228,27 @@ public class DatabaseConnection {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Releases the JDBC driver on shutdown: deregisters the drivers loaded by
+     * the web application and stops the MySQL connection cleanup thread, so
+     * neither outlives the application or pins its class loader.
+     */
+    public static void shutdown() {
+        ClassLoader loader = DatabaseConnection.class.getClassLoader();
+        Enumeration<Driver> drivers = DriverManager.getDrivers();
+        while (drivers.hasMoreElements()) {
+            Driver driver = drivers.nextElement();
+            if (driver.getClass().getClassLoader() != loader) {
+                continue;
+            }
+            try {
+                DriverManager.deregisterDriver(driver);
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Failed to deregister JDBC driver " + driver, e);
+            }
+        }
+        AbandonedConnectionCleanupThread.checkedShutdown();
+        LOGGER.info("JDBC driver released");
+    }
+}
@@ -0,0 +1,97 @@
+package com.library.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Helpers for HTTP validators (ETag / Last-Modified) and conditional GETs.
+ */
+public class HttpCacheUtil {
+
+    private HttpCacheUtil() {
+    }
+
+    /**
+     * Builds a weak ETag from the given parts. Pages use weak tags because a
+     * compressing filter may change their bytes without changing their meaning.
+     */
+    public static String weakEtag(Object... parts) {
+        StringBuilder tag = new StringBuilder("W/\"");
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                tag.append('-');
+            }
+            tag.append(parts[i]);
+        }
+        return tag.append('"').toString();
+    }
+
+    /**
+     * Hash of the query string, so pages that differ only by parameters get different tags.
+     */
+    public static String queryKey(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return query == null ? "0" : Integer.toHexString(query.hashCode());
+    }
+
+    /**
+     * Compares an If-None-Match header with an ETag using the weak comparison
+     * the header calls for.
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if ("*".equals(tag) || opaque.equals(stripWeak(tag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the validators on the response and answers 304 when the client's
+     * copy is still current. If-None-Match wins over If-Modified-Since.
+     *
+     * @return true when a 304 was sent and the caller must not render the page
+     */
+    public static boolean checkNotModified(HttpServletRequest request, HttpServletResponse response,
+                                           String etag, long lastModified) {
+        response.setHeader("ETag", etag);
+        if (lastModified > 0) {
+            response.setDateHeader("Last-Modified", lastModified);
+        }
+        // Pages include the signed-in user's name, so they may only be reused after revalidation
+        response.setHeader("Cache-Control", "private, no-cache");
+        response.setHeader("Vary", "Cookie");
+
+        boolean notModified;
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            notModified = matches(ifNoneMatch, etag);
+        } else {
+            long ifModifiedSince = readDateHeader(request, "If-Modified-Since");
+            notModified = lastModified > 0 && ifModifiedSince >= lastModified - lastModified % 1000;
+        }
+
+        if (notModified) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+        return notModified;
+    }
+
+    private static long readDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -2,12 +2,18 @@ package com.library.util;
 
 import org.apache.commons.codec.digest.DigestUtils;
 
+/**
+ * Legacy unsalted SHA-256 password digests. New passwords are hashed by
+ * {@link com.library.service.PasswordHasher}; this class is only kept so that
+ * accounts still holding such a digest can sign in, after which the hasher
+ * replaces it.
+ */
 public class PasswordUtil {
-    
+
     public static String hashPassword(String password) {
         return DigestUtils.sha256Hex(password);
     }
-    
+
     public static boolean verifyPassword(String password, String hashedPassword) {
         return hashPassword(password).equals(hashedPassword);
     }
@@ -15,7 +15,7 @@
         <h1 style="margin-bottom: 2rem;">${empty book ? 'Add New' : 'Edit'} Book</h1>
         
         <div style="max-width: 800px; margin: 0 auto;">
-            <form action="${pageContext.request.contextPath}/admin/books" method="post">
+            <form action="${pageContext.request.contextPath}/admin/books" method="post" enctype="multipart/form-data">
                 <input type="hidden" name="action" value="${empty book ? 'create' : 'update'}">
                 <c:if test="${not empty book}">
                     <input type="hidden" name="id" value="${book.id}">
@@ -81,6 +81,11 @@
                     <input type="text" id="coverImage" name="coverImage" class="form-control" value="${book.coverImage}" placeholder="/placeholder.svg?height=400&width=300">
                 </div>
                 
+                <div class="form-group">
+                    <label for="coverFile" class="form-label">Or Upload Cover Image (JPEG, PNG or GIF, max 5 MB)</label>
+                    <input type="file" id="coverFile" name="coverFile" class="form-control" accept="image/jpeg,image/png,image/gif">
+                </div>
+                
                 <div style="display: flex; gap: 1rem;">
                     <button type="submit" class="btn btn-primary">${empty book ? 'Add' : 'Update'} Book</button>
                     <a href="${pageContext.request.contextPath}/admin/books" class="btn btn-outline">Cancel</a>
@@ -10,6 +10,7 @@
 </head>
 <body>
     <jsp:include page="/includes/navbar.jsp" />
+    <jsp:include page="/includes/flush.jsp" flush="true" />
     
     <div class="container">
         <h1 style="margin-bottom: 2rem;">Manage Books</h1>
@@ -41,7 +42,7 @@
                 </tr>
             </thead>
             <tbody>
-                <c:forEach var="book" items="${books}">
+                <c:forEach var="book" items="${books}" varStatus="row">
                     <tr>
                         <td>${book.id}</td>
                         <td>${book.title}</td>
@@ -57,6 +58,9 @@
                                onclick="return confirm('Are you sure you want to delete this book?')">Delete</a>
                         </td>
                     </tr>
+                    <c:if test="${row.count % 200 == 0}">
+                        <jsp:include page="/includes/flush.jsp" flush="true" />
+                    </c:if>
                 </c:forEach>
             </tbody>
         </table>
@@ -11,6 +11,7 @@
 </head>
 <body>
     <jsp:include page="/includes/navbar.jsp" />
+    <jsp:include page="/includes/flush.jsp" flush="true" />
     
     <div class="container">
         <h1 style="margin-bottom: 2rem;">Manage Borrowings</h1>
@@ -33,7 +34,7 @@
                 </tr>
             </thead>
             <tbody>
-                <c:forEach var="borrowing" items="${borrowings}">
+                <c:forEach var="borrowing" items="${borrowings}" varStatus="row">
                     <tr>
                         <td>${borrowing.id}</td>
                         <td>${borrowing.userName}</td>
@@ -63,6 +64,9 @@
                             </c:choose>
                         </td>
                     </tr>
+                    <c:if test="${row.count % 200 == 0}">
+                        <jsp:include page="/includes/flush.jsp" flush="true" />
+                    </c:if>
                 </c:forEach>
             </tbody>
         </table>
@@ -11,6 +11,7 @@
 </head>
 <body>
     <jsp:include page="/includes/navbar.jsp" />
+    <jsp:include page="/includes/flush.jsp" flush="true" />
     
     <div class="container">
         <h1 style="margin-bottom: 2rem;">Manage Users</h1>
@@ -23,10 +24,31 @@
             <div class="alert alert-error">${param.error}</div>
         </c:if>
         
+        <c:if test="${not empty importSummary}">
+            <div class="alert ${importSummary.failed > 0 ? 'alert-error' : 'alert-success'}">
+                Import finished: ${importSummary.created} created, ${importSummary.skipped} skipped, ${importSummary.failed} failed
+                <c:if test="${not empty importSummary.messages}">
+                    <ul style="margin-top: 0.5rem;">
+                        <c:forEach var="message" items="${importSummary.messages}">
+                            <li><c:out value="${message}"/></li>
+                        </c:forEach>
+                    </ul>
+                </c:if>
+            </div>
+        </c:if>
+        
         <div style="margin-bottom: 2rem;">
             <a href="${pageContext.request.contextPath}/admin/dashboard" class="btn btn-outline">Back to Dashboard</a>
         </div>
         
+        <form action="${pageContext.request.contextPath}/admin/users" method="post" enctype="multipart/form-data"
+              style="display: flex; gap: 1rem; align-items: center; margin-bottom: 2rem;">
+            <input type="hidden" name="action" value="import">
+            <label for="file" class="form-label" style="margin: 0;">Import users (CSV: username,email,password,full_name[,role])</label>
+            <input type="file" id="file" name="file" accept=".csv,text/csv" required>
+            <button type="submit" class="btn btn-primary btn-sm">Import</button>
+        </form>
+        
         <table class="table">
             <thead>
                 <tr>
@@ -40,7 +62,7 @@
                 </tr>
             </thead>
             <tbody>
-                <c:forEach var="user" items="${users}">
+                <c:forEach var="user" items="${users}" varStatus="row">
                     <tr>
                         <td>${user.id}</td>
                         <td>${user.username}</td>
@@ -60,6 +82,9 @@
                             </c:if>
                         </td>
                     </tr>
+                    <c:if test="${row.count % 200 == 0}">
+                        <jsp:include page="/includes/flush.jsp" flush="true" />
+                    </c:if>
                 </c:forEach>
             </tbody>
         </table>
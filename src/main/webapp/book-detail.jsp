@@ -12,10 +12,18 @@
     <jsp:include page="/includes/navbar.jsp" />
     
     <div class="container">
+        <c:if test="${not empty param.success}">
+            <div class="alert alert-success">${param.success}</div>
+        </c:if>
+        
         <c:if test="${not empty param.error}">
             <div class="alert alert-error">${param.error}</div>
         </c:if>
         
+        <c:if test="${availabilityUnknown}">
+            <div class="alert alert-info">The library is in read-only maintenance mode. Availability is unknown and borrowing is paused until it is over.</div>
+        </c:if>
+        
         <div class="book-detail">
             <div>
                 <img src="${book.coverImage}" alt="${book.title}" class="book-detail-img">
@@ -52,9 +60,17 @@
                     </div>
                     <div class="book-meta-item">
                         <span class="book-meta-label">Availability:</span>
-                        <span class="badge ${book.availableQuantity > 0 ? 'badge-success' : 'badge-danger'}">
-                            ${book.availableQuantity} of ${book.quantity} available
-                        </span>
+                        <c:choose>
+                            <c:when test="${availabilityUnknown}">
+                                <span class="badge badge-warning">Unknown</span>
+                            </c:when>
+                            <c:otherwise>
+                                <span class="badge ${book.availableQuantity > 0 ? 'badge-success' : 'badge-danger'}"
+                                      data-availability-book="${book.id}" data-availability-format="count">
+                                    ${book.availableQuantity} of ${book.quantity} available
+                                </span>
+                            </c:otherwise>
+                        </c:choose>
                     </div>
                 </div>
                 
@@ -64,20 +80,37 @@
                 </p>
                 
                 <c:choose>
+                    <c:when test="${availabilityUnknown}">
+                        <button class="btn btn-secondary" disabled>Borrowing Paused for Maintenance</button>
+                    </c:when>
                     <c:when test="${empty sessionScope.user}">
                         <a href="${pageContext.request.contextPath}/login.jsp" class="btn btn-primary">Login to Borrow</a>
                     </c:when>
                     <c:when test="${hasActiveBorrowing}">
                         <button class="btn btn-secondary" disabled>Already Borrowed</button>
                     </c:when>
+                    <c:when test="${hold.ready}">
+                        <form action="${pageContext.request.contextPath}/borrow" method="post" style="display: inline;" data-idempotent>
+                            <input type="hidden" name="bookId" value="${book.id}">
+                            <input type="hidden" name="idempotencyKey">
+                            <button type="submit" class="btn btn-primary">Borrow Your Reserved Copy</button>
+                        </form>
+                    </c:when>
+                    <c:when test="${not empty hold}">
+                        <button class="btn btn-secondary" disabled>On Hold - Number ${hold.position} in Queue</button>
+                    </c:when>
                     <c:when test="${book.availableQuantity > 0}">
-                        <form action="${pageContext.request.contextPath}/borrow" method="post" style="display: inline;">
+                        <form action="${pageContext.request.contextPath}/borrow" method="post" style="display: inline;" data-idempotent>
                             <input type="hidden" name="bookId" value="${book.id}">
+                            <input type="hidden" name="idempotencyKey">
                             <button type="submit" class="btn btn-primary">Borrow This Book</button>
                         </form>
                     </c:when>
                     <c:otherwise>
-                        <button class="btn btn-secondary" disabled>Not Available</button>
+                        <form action="${pageContext.request.contextPath}/holds" method="post" style="display: inline;">
+                            <input type="hidden" name="bookId" value="${book.id}">
+                            <button type="submit" class="btn btn-primary">Place Hold</button>
+                        </form>
                     </c:otherwise>
                 </c:choose>
                 
@@ -87,5 +120,7 @@
     </div>
     
     <jsp:include page="/includes/footer.jsp" />
+    <script src="${pageContext.request.contextPath}/js/availability.js" data-context-path="${pageContext.request.contextPath}" defer></script>
+    <script src="${pageContext.request.contextPath}/js/idempotency.js" defer></script>
 </body>
 </html>
@@ -18,6 +18,10 @@
             <div class="alert alert-error">${param.error}</div>
         </c:if>
         
+        <c:if test="${availabilityUnknown}">
+            <div class="alert alert-info">The library is in read-only maintenance mode. Availability is unknown and borrowing is paused until it is over.</div>
+        </c:if>
+        
         <!-- Search Bar -->
         <div class="search-container">
             <form action="${pageContext.request.contextPath}/books" method="get" class="search-form">
@@ -52,9 +56,17 @@
                                 <h3 class="card-title">${book.title}</h3>
                                 <p class="card-text">by ${book.author}</p>
                                 <p class="card-text">
-                                    <span class="badge ${book.availableQuantity > 0 ? 'badge-success' : 'badge-danger'}">
-                                        ${book.availableQuantity > 0 ? 'Available' : 'Not Available'}
-                                    </span>
+                                    <c:choose>
+                                        <c:when test="${availabilityUnknown}">
+                                            <span class="badge badge-warning">Availability Unknown</span>
+                                        </c:when>
+                                        <c:otherwise>
+                                            <span class="badge ${book.availableQuantity > 0 ? 'badge-success' : 'badge-danger'}"
+                                                  data-availability-book="${book.id}">
+                                                ${book.availableQuantity > 0 ? 'Available' : 'Not Available'}
+                                            </span>
+                                        </c:otherwise>
+                                    </c:choose>
                                     <span class="badge badge-info">${book.category}</span>
                                 </p>
                                 <a href="${pageContext.request.contextPath}/book-detail?id=${book.id}" class="btn btn-primary btn-sm">View Details</a>
@@ -67,5 +79,6 @@
     </div>
     
     <jsp:include page="/includes/footer.jsp" />
+    <script src="${pageContext.request.contextPath}/js/availability.js" data-context-path="${pageContext.request.contextPath}" defer></script>
 </body>
 </html>
@@ -0,0 +1,25 @@
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c" %>
+<!DOCTYPE html>
+<html lang="en">
+<head>
+    <meta charset="UTF-8">
+    <meta name="viewport" content="width=device-width, initial-scale=1.0">
+    <title>503 - Service Unavailable</title>
+    <link rel="stylesheet" href="${pageContext.request.contextPath}/css/style.css">
+</head>
+<body>
+    <jsp:include page="/includes/navbar.jsp" />
+    
+    <div class="container" style="text-align: center; padding: 4rem 2rem;">
+        <h1 style="font-size: 4rem; color: var(--warning-color);">503</h1>
+        <h2 style="margin-bottom: 1rem;">Temporarily Unavailable</h2>
+        <p style="color: var(--text-secondary); margin-bottom: 2rem;">
+            <c:out value="${empty requestScope['jakarta.servlet.error.message'] ? 'We are busy right now. Please try again in a moment.' : requestScope['jakarta.servlet.error.message']}" />
+        </p>
+        <a href="${pageContext.request.contextPath}/books" class="btn btn-primary">Browse Books</a>
+    </div>
+    
+    <jsp:include page="/includes/footer.jsp" />
+</body>
+</html>
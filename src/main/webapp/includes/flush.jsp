@@ -0,0 +1,2 @@
+<%@ page trimDirectiveWhitespaces="true" %>
+<%-- Produces no output. Included with flush="true" so long pages push what they have rendered so far to the browser. --%>
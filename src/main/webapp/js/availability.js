@@ -0,0 +1,42 @@
+/*
+ * Live availability badges. Elements with data-availability-book="<id>" are
+ * updated from the /availability/stream event stream. data-availability-format
+ * is "count" for "2 of 3 available", anything else for Available/Not Available.
+ */
+(function () {
+    var badges = document.querySelectorAll('[data-availability-book]');
+    if (!badges.length || !window.EventSource) {
+        return;
+    }
+
+    var byBook = {};
+    var ids = [];
+    for (var i = 0; i < badges.length; i++) {
+        var id = badges[i].getAttribute('data-availability-book');
+        if (!byBook[id]) {
+            byBook[id] = [];
+            if (ids.length < 200) {
+                ids.push(id);
+            }
+        }
+        byBook[id].push(badges[i]);
+    }
+
+    var script = document.currentScript || document.querySelector('script[data-context-path]');
+    var contextPath = script ? script.getAttribute('data-context-path') || '' : '';
+    var source = new EventSource(contextPath + '/availability/stream?ids=' + ids.join(','));
+
+    source.addEventListener('availability', function (event) {
+        var data = JSON.parse(event.data);
+        var targets = byBook[data.id] || [];
+        for (var j = 0; j < targets.length; j++) {
+            var badge = targets[j];
+            var available = data.available > 0;
+            badge.classList.toggle('badge-success', available);
+            badge.classList.toggle('badge-danger', !available);
+            badge.textContent = badge.getAttribute('data-availability-format') === 'count'
+                ? data.available + ' of ' + data.quantity + ' available'
+                : (available ? 'Available' : 'Not Available');
+        }
+    });
+})();
@@ -0,0 +1,35 @@
+/*
+ * Fills the hidden idempotencyKey field of forms marked data-idempotent with
+ * a fresh key each time the page is shown, so a double-click or a resubmit
+ * of the same form carries the same key and the server answers it once.
+ */
+(function () {
+    function newKey() {
+        if (window.crypto && window.crypto.randomUUID) {
+            return window.crypto.randomUUID();
+        }
+        var bytes = new Uint8Array(16);
+        window.crypto.getRandomValues(bytes);
+        var hex = '';
+        for (var i = 0; i < bytes.length; i++) {
+            hex += (bytes[i] < 16 ? '0' : '') + bytes[i].toString(16);
+        }
+        return hex;
+    }
+
+    function fillKeys() {
+        var forms = document.querySelectorAll('form[data-idempotent]');
+        for (var i = 0; i < forms.length; i++) {
+            var field = forms[i].querySelector('input[name="idempotencyKey"]');
+            if (field) {
+                field.value = newKey();
+            }
+        }
+    }
+
+    // Back/forward navigation can bring the page back from the cache, or
+    // have the browser restore the old field value: either way a new visit
+    // must not reuse the key of the submission that was already answered.
+    fillKeys();
+    window.addEventListener('pageshow', fillKeys);
+})();
@@ -23,6 +23,60 @@
             <div class="alert alert-error">${param.error}</div>
         </c:if>
         
+        <c:forEach var="hold" items="${holds}">
+            <c:if test="${hold.ready}">
+                <div class="alert alert-success">
+                    A copy of <strong>${hold.bookTitle}</strong> is set aside for you until
+                    <fmt:formatDate value="${hold.expiresAt}" pattern="MMM dd, yyyy HH:mm" />.
+                    <a href="${pageContext.request.contextPath}/book-detail?id=${hold.bookId}">Borrow it now</a>
+                </div>
+            </c:if>
+        </c:forEach>
+        
+        <c:if test="${not empty holds}">
+            <h2 style="margin-bottom: 1rem;">My Holds</h2>
+            <table class="table" style="margin-bottom: 2rem;">
+                <thead>
+                    <tr>
+                        <th>Book Title</th>
+                        <th>Author</th>
+                        <th>Placed</th>
+                        <th>Status</th>
+                        <th>Expires</th>
+                        <th>Action</th>
+                    </tr>
+                </thead>
+                <tbody>
+                    <c:forEach var="hold" items="${holds}">
+                        <tr>
+                            <td>${hold.bookTitle}</td>
+                            <td>${hold.bookAuthor}</td>
+                            <td><fmt:formatDate value="${hold.createdAt}" pattern="MMM dd, yyyy" /></td>
+                            <td>
+                                <c:choose>
+                                    <c:when test="${hold.ready}">
+                                        <span class="badge badge-success">Ready to Borrow</span>
+                                    </c:when>
+                                    <c:otherwise>
+                                        <span class="badge badge-info">Number ${hold.position} in Queue</span>
+                                    </c:otherwise>
+                                </c:choose>
+                            </td>
+                            <td><fmt:formatDate value="${hold.expiresAt}" pattern="MMM dd, yyyy" /></td>
+                            <td>
+                                <form action="${pageContext.request.contextPath}/holds" method="post" style="display: inline;">
+                                    <input type="hidden" name="action" value="cancel">
+                                    <input type="hidden" name="holdId" value="${hold.id}">
+                                    <button type="submit" class="btn btn-danger btn-sm">Cancel Hold</button>
+                                </form>
+                            </td>
+                        </tr>
+                    </c:forEach>
+                </tbody>
+            </table>
+            <h2 style="margin-bottom: 1rem;">Borrowing History</h2>
+        </c:if>
+        
         <c:choose>
             <c:when test="${empty borrowings}">
                 <div style="text-align: center; padding: 3rem; color: var(--text-secondary);">
@@ -74,8 +128,9 @@
                                 </td>
                                 <td>
                                     <c:if test="${borrowing.status eq 'BORROWED' or borrowing.status eq 'OVERDUE'}">
-                                        <form action="${pageContext.request.contextPath}/return" method="post" style="display: inline;">
+                                        <form action="${pageContext.request.contextPath}/return" method="post" style="display: inline;" data-idempotent>
                                             <input type="hidden" name="borrowingId" value="${borrowing.id}">
+                                            <input type="hidden" name="idempotencyKey">
                                             <button type="submit" class="btn btn-success btn-sm">Return Book</button>
                                         </form>
                                     </c:if>
@@ -89,5 +144,6 @@
     </div>
     
     <jsp:include page="/includes/footer.jsp" />
+    <script src="${pageContext.request.contextPath}/js/idempotency.js" defer></script>
 </body>
 </html>
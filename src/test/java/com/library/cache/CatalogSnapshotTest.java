@@ -0,0 +1,106 @@
+package com.library.cache;
+
+import com.library.dao.BookDAO;
+import com.library.dao.RowVisitor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CatalogSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private BookDAO bookDAO;
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        bookDAO = mock(BookDAO.class);
+        when(bookDAO.visitCatalog(any())).thenAnswer(invocation -> {
+            RowVisitor visitor = invocation.getArgument(0);
+            visitor.visit(row(1, "Dune", "Frank Herbert", "Science Fiction", "x".repeat(70_000)));
+            visitor.visit(row(2, "Emma", "Jane Austen", "Classics", null));
+            visitor.visit(row(3, "Foundation", "Isaac Asimov", "Science Fiction", "Psychohistory"));
+            return true;
+        });
+        file = folder.getRoot().toPath().resolve("catalog.snapshot");
+    }
+
+    @Test
+    public void testServesCatalogFromMemory() {
+        CatalogSnapshot snapshot = new CatalogSnapshot(bookDAO, null);
+
+        assertTrue(snapshot.refresh(false));
+
+        assertEquals(3, snapshot.all().size());
+        assertEquals(List.of("Classics", "Science Fiction"), snapshot.categories());
+        assertEquals(2, snapshot.byCategory("Science Fiction").size());
+        assertEquals("Emma", snapshot.search("AUSTEN").get(0).getTitle());
+        assertEquals("Foundation", snapshot.findById(3).getTitle());
+        assertNull(snapshot.findById(4));
+    }
+
+    @Test
+    public void testSurvivesRestartThroughFile() {
+        new CatalogSnapshot(bookDAO, file).refresh(false);
+
+        CatalogSnapshot restarted = new CatalogSnapshot(mock(BookDAO.class), file);
+        restarted.load();
+
+        assertEquals(3, restarted.all().size());
+        assertEquals(70_000, restarted.findById(1).getDescription().length());
+        assertNull(restarted.findById(2).getDescription());
+        assertTrue(restarted.getTakenAt() > 0);
+    }
+
+    @Test
+    public void testFailedRefreshKeepsPreviousSnapshot() throws Exception {
+        CatalogSnapshot snapshot = new CatalogSnapshot(bookDAO, file);
+        snapshot.refresh(false);
+        doReturn(false).when(bookDAO).visitCatalog(any());
+
+        assertFalse(snapshot.refresh(true));
+
+        assertEquals(3, snapshot.all().size());
+    }
+
+    @Test
+    public void testSkipsDatabaseWhileCatalogUnchanged() throws Exception {
+        CatalogSnapshot snapshot = new CatalogSnapshot(bookDAO, null);
+        snapshot.refresh(false);
+
+        assertTrue(snapshot.refresh(false));
+        verify(bookDAO, times(1)).visitCatalog(any());
+
+        // The snapshot has no quantities
+        CatalogVersion.bumpStock();
+        assertTrue(snapshot.refresh(false));
+        verify(bookDAO, times(1)).visitCatalog(any());
+
+        CatalogVersion.bump();
+        snapshot.refresh(false);
+        verify(bookDAO, times(2)).visitCatalog(any());
+    }
+
+    private static ResultSet row(int id, String title, String author, String category, String description)
+            throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getInt("id")).thenReturn(id);
+        when(rs.getString("title")).thenReturn(title);
+        when(rs.getString("author")).thenReturn(author);
+        when(rs.getString("category")).thenReturn(category);
+        when(rs.getString("description")).thenReturn(description);
+        when(rs.getInt("published_year")).thenReturn(1965);
+        return rs;
+    }
+}
@@ -0,0 +1,118 @@
+package com.library.cache;
+
+import com.library.dao.CacheVersionDAO;
+import com.library.dao.RowVisitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class InvalidationPollerTest {
+
+    private static final String TYPE = "test-entity";
+
+    private CacheVersionDAO dao;
+    private InvalidationPoller poller;
+    private final List<String> published = new ArrayList<>();
+    private final Consumer<String> subscriber = published::add;
+
+    private long version;
+    private String lastKey;
+
+    @Before
+    public void setUp() throws Exception {
+        dao = mock(CacheVersionDAO.class);
+        when(dao.visitVersions(any())).thenAnswer(invocation -> {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getString("entity_type")).thenReturn(TYPE);
+            when(rs.getLong("version")).thenReturn(version);
+            when(rs.getString("last_key")).thenReturn(lastKey);
+            when(rs.getLong("age_ms")).thenReturn(120L);
+            ((RowVisitor) invocation.getArgument(0)).visit(rs);
+            return true;
+        });
+        poller = new InvalidationPoller(dao, 300);
+        InvalidationBus.subscribe(TYPE, subscriber);
+    }
+
+    @After
+    public void tearDown() {
+        InvalidationBus.unsubscribe(TYPE, subscriber);
+        poller.shutdown();
+    }
+
+    @Test
+    public void testFirstPollOnlyRecordsVersions() throws Exception {
+        version = 7;
+        lastKey = "3";
+
+        poller.poll();
+
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    public void testSingleRemoteChangeEvictsItsKey() throws Exception {
+        version = 7;
+        poller.poll();
+
+        version = 8;
+        lastKey = "42";
+        poller.poll();
+
+        assertEquals(List.of("42"), published);
+    }
+
+    @Test
+    public void testSeveralChangesEvictTheWholeType() throws Exception {
+        version = 7;
+        poller.poll();
+
+        version = 10;
+        lastKey = "42";
+        poller.poll();
+
+        assertEquals(List.of(InvalidationBus.ALL_KEYS), published);
+    }
+
+    @Test
+    public void testOwnChangesAreSkipped() throws Exception {
+        version = 7;
+        poller.poll();
+
+        InvalidationBus.markLocal(TYPE, 8);
+        version = 8;
+        lastKey = "42";
+        poller.poll();
+        assertTrue(published.isEmpty());
+
+        // A remote change right after a local one still gets through
+        InvalidationBus.markLocal(TYPE, 9);
+        version = 10;
+        lastKey = "43";
+        poller.poll();
+        assertEquals(List.of(InvalidationBus.ALL_KEYS), published);
+    }
+
+    @Test
+    public void testRolledBackMarkDoesNotHideRemoteChange() throws Exception {
+        version = 7;
+        poller.poll();
+
+        InvalidationBus.markLocal(TYPE, 8);
+        InvalidationBus.unmarkLocal(TYPE, 8);
+        version = 8;
+        lastKey = "5";
+        poller.poll();
+
+        assertEquals(List.of("5"), published);
+    }
+}
@@ -29,6 +29,8 @@ public class BookDAOTest {
 
         bookDAO = new BookDAO();
         DatabaseConnection.setTestConnection(mockConnection); // inject mock connection
+        // Writes read back their cache version; tests that query books stub their own result
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
     }
 
     @Test
@@ -56,6 +58,7 @@ public class BookDAOTest {
         ResultSet mockKeys = mock(ResultSet.class);
 
         when(mockConnection.prepareStatement(anyString(), anyInt())).thenReturn(mockPreparedStatement);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
         when(mockPreparedStatement.executeUpdate()).thenReturn(1);
         when(mockPreparedStatement.getGeneratedKeys()).thenReturn(mockKeys);
         when(mockKeys.next()).thenReturn(true);
@@ -93,6 +96,49 @@ public class BookDAOTest {
         assertFalse(bookDAO.delete(99));
     }
 
+    @Test
+    public void testDelete_recordsChangeInSameTransaction() throws Exception {
+        PreparedStatement changeStatement = mock(PreparedStatement.class);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+        when(mockConnection.prepareStatement("DELETE FROM books WHERE id = ?")).thenReturn(mockPreparedStatement);
+        when(mockConnection.prepareStatement(startsWith("INSERT INTO catalog_changes"))).thenReturn(changeStatement);
+        when(mockPreparedStatement.executeUpdate()).thenReturn(1);
+
+        assertTrue(bookDAO.delete(7));
+
+        InOrder order = inOrder(mockConnection, mockPreparedStatement, changeStatement);
+        order.verify(mockConnection).setAutoCommit(false);
+        order.verify(mockPreparedStatement).executeUpdate();
+        order.verify(changeStatement).setInt(1, 7);
+        order.verify(changeStatement).setString(2, CatalogChangeDAO.DELETE);
+        order.verify(changeStatement).executeUpdate();
+        order.verify(mockConnection).commit();
+    }
+
+    @Test
+    public void testDecreaseAvailableQuantity_noRowChangedRecordsNothing() throws Exception {
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeUpdate()).thenReturn(0);
+
+        assertFalse(bookDAO.decreaseAvailableQuantity(3));
+
+        verify(mockConnection, never()).prepareStatement(startsWith("INSERT INTO catalog_changes"));
+    }
+
+    @Test
+    public void testUpdateCoverImage_onlyReplacesTheExpectedCover() throws Exception {
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+        // An admin picked another cover while the thumbnails were being made
+        when(mockPreparedStatement.executeUpdate()).thenReturn(0);
+
+        assertFalse(bookDAO.updateCoverImage(3, "/covers/a.jpg", "/covers/a-320.jpg"));
+
+        verify(mockConnection).prepareStatement("UPDATE books SET cover_image = ? WHERE id = ? AND cover_image = ?");
+        verify(mockPreparedStatement).setString(1, "/covers/a-320.jpg");
+        verify(mockPreparedStatement).setString(3, "/covers/a.jpg");
+        verify(mockConnection, never()).prepareStatement(startsWith("INSERT INTO catalog_changes"));
+    }
+
     @Test
     public void testIncreaseAvailableQuantity_success() throws Exception {
         when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
@@ -109,6 +155,50 @@ public class BookDAOTest {
         assertFalse(bookDAO.increaseAvailableQuantity(99));
     }
 
+    @Test
+    public void testCursorAll_streamsRowsAndReleasesConnection() throws Exception {
+        when(mockConnection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY))
+                .thenReturn(mockStatement);
+        when(mockStatement.executeQuery(anyString())).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true, true, false);
+        when(mockResultSet.getString("title")).thenReturn("First", "Second");
+
+        try (RowCursor<Book> cursor = bookDAO.cursorAll()) {
+            assertEquals("First", cursor.next().getTitle());
+            assertTrue(cursor.hasNext());
+            assertEquals("Second", cursor.next().getTitle());
+            assertFalse(cursor.hasNext());
+        }
+
+        verify(mockStatement).setFetchSize(Integer.MIN_VALUE);
+        verify(mockResultSet).close();
+        verify(mockStatement).close();
+        verify(mockConnection).close();
+    }
+
+    @Test
+    public void testCursorAll_errorWhileReadingEndsIteration() throws Exception {
+        when(mockConnection.createStatement(anyInt(), anyInt())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery(anyString())).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true).thenThrow(new SQLException("connection lost"));
+
+        try (RowCursor<Book> cursor = bookDAO.cursorAll()) {
+            assertTrue(cursor.hasNext());
+            cursor.next();
+            assertFalse(cursor.hasNext());
+        }
+    }
+
+    @Test
+    public void testCursorAll_openFailureGivesEmptyCursor() throws Exception {
+        when(mockConnection.createStatement(anyInt(), anyInt())).thenThrow(new SQLException());
+
+        try (RowCursor<Book> cursor = bookDAO.cursorAll()) {
+            assertFalse(cursor.hasNext());
+        }
+        verify(mockConnection).close();
+    }
+
     @Test
     public void testSQLExceptionHandling() throws Exception {
         // Mock both prepareStatement variants to throw SQLException
@@ -1,22 +1,46 @@
 package com.library.dao;
 
+import com.library.cache.InvalidationBus;
 import com.library.model.Borrowing;
+import com.library.util.DatabaseConnection;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
 
+import java.sql.Connection;
 import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
 import java.time.LocalDate;
 import java.util.List;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
 
 public class BorrowingDAOTest {
 
+    @Mock
+    private Connection mockConnection;
+    @Mock
+    private PreparedStatement mockStatement;
+    @Mock
+    private ResultSet emptyResult;
+
     private BorrowingDAO borrowingDAO;
 
     @Before
-    public void setUp() {
+    public void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
         borrowingDAO = new BorrowingDAO();
+        DatabaseConnection.setTestConnection(mockConnection);
+
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeUpdate()).thenReturn(1);
+        when(mockStatement.executeQuery()).thenReturn(emptyResult);
     }
 
     @Test
@@ -94,4 +118,46 @@ public class BorrowingDAOTest {
                 java.util.Arrays.stream(borrowingDAO.getClass().getDeclaredMethods())
                         .anyMatch(m -> m.getName().equals("findAll")));
     }
+
+    @Test
+    public void testBorrow_noCopyOnShelfCreatesNoBorrowing() throws Exception {
+        when(mockStatement.executeUpdate()).thenReturn(0);
+
+        assertFalse(borrowingDAO.borrow(borrowing()));
+
+        verify(mockConnection).rollback();
+        verify(mockConnection, never()).prepareStatement(startsWith("INSERT INTO borrowings"), anyInt());
+        verify(mockConnection, never()).commit();
+    }
+
+    @Test
+    public void testBorrow_takesCopyAndInsertsInOneTransaction() throws Exception {
+        when(mockConnection.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS))).thenReturn(mockStatement);
+        when(mockStatement.getGeneratedKeys()).thenReturn(emptyResult);
+
+        assertTrue(borrowingDAO.borrow(borrowing()));
+
+        InOrder order = inOrder(mockConnection);
+        order.verify(mockConnection).prepareStatement(startsWith("UPDATE books SET available_quantity = available_quantity - 1"));
+        order.verify(mockConnection).prepareStatement(startsWith("INSERT INTO borrowings"), anyInt());
+        order.verify(mockConnection).commit();
+        // The shared cache version is only bumped once the borrow's connection is closed
+        order.verify(mockConnection).close();
+        order.verify(mockConnection).prepareStatement(startsWith("UPDATE cache_versions"));
+        order.verify(mockConnection).commit();
+        verify(mockConnection, never()).rollback();
+        // Under the stock type, which other replicas do not treat as a catalog edit
+        verify(mockStatement).setString(2, InvalidationBus.STOCK);
+        verify(mockStatement, never()).setString(2, InvalidationBus.BOOK);
+    }
+
+    private static Borrowing borrowing() {
+        Borrowing borrowing = new Borrowing();
+        borrowing.setUserId(1);
+        borrowing.setBookId(5);
+        borrowing.setBorrowDate(Date.valueOf(LocalDate.now()));
+        borrowing.setDueDate(Date.valueOf(LocalDate.now().plusDays(14)));
+        borrowing.setStatus("BORROWED");
+        return borrowing;
+    }
 }
@@ -0,0 +1,57 @@
+package com.library.dao;
+
+import com.library.util.DatabaseConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class CacheVersionDAOTest {
+
+    private Connection conn;
+    private Statement stmt;
+    private CacheVersionDAO dao;
+
+    @Before
+    public void setUp() throws Exception {
+        conn = mock(Connection.class);
+        stmt = mock(Statement.class);
+        when(conn.createStatement()).thenReturn(stmt);
+        when(stmt.executeQuery(anyString())).thenReturn(mock(ResultSet.class));
+        DatabaseConnection.setTestConnection(conn);
+        dao = new CacheVersionDAO();
+    }
+
+    @After
+    public void tearDown() {
+        DatabaseConnection.setTestConnection(null);
+    }
+
+    @Test
+    public void testPollsReuseOneConnectionUntilClosed() throws Exception {
+        assertTrue(dao.visitVersions(rs -> { }));
+        assertTrue(dao.visitVersions(rs -> { }));
+        verify(conn, never()).close();
+
+        dao.close();
+
+        verify(conn).close();
+    }
+
+    @Test
+    public void testFailedPollDropsTheConnection() throws Exception {
+        when(stmt.executeQuery(anyString())).thenThrow(new SQLException("Communications link failure", "08S01"));
+
+        assertFalse(dao.visitVersions(rs -> { }));
+
+        verify(conn).close();
+    }
+}
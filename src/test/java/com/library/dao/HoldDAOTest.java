@@ -0,0 +1,133 @@
+package com.library.dao;
+
+import com.library.util.DatabaseConnection;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class HoldDAOTest {
+
+    @Mock
+    private Connection mockConnection;
+    @Mock
+    private PreparedStatement mockStatement;
+    @Mock
+    private ResultSet emptyResult;
+    @Mock
+    private PreparedStatement lockBook;
+    @Mock
+    private ResultSet lockedBook;
+    @Mock
+    private PreparedStatement queueHead;
+    @Mock
+    private ResultSet head;
+
+    private HoldDAO holdDAO;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        holdDAO = new HoldDAO();
+        DatabaseConnection.setTestConnection(mockConnection);
+
+        // Every other statement updates one row and finds nothing
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeUpdate()).thenReturn(1);
+        when(mockStatement.executeQuery()).thenReturn(emptyResult);
+
+        when(mockConnection.prepareStatement(contains("FROM books WHERE id = ? FOR UPDATE"))).thenReturn(lockBook);
+        when(lockBook.executeQuery()).thenReturn(lockedBook);
+        when(lockedBook.next()).thenReturn(true);
+
+        when(mockConnection.prepareStatement(contains("ORDER BY id LIMIT 1"))).thenReturn(queueHead);
+        when(queueHead.executeQuery()).thenReturn(head);
+    }
+
+    @Test
+    public void testHandOn_copyGoesToHeadOfQueue() throws Exception {
+        when(head.next()).thenReturn(true);
+        when(head.getInt("id")).thenReturn(7);
+
+        assertFalse(HoldDAO.handOn(mockConnection, 5));
+
+        verify(mockConnection).prepareStatement(startsWith("UPDATE holds SET status = 'READY'"));
+        verify(mockStatement).setInt(2, 7);
+        verify(mockConnection, never()).prepareStatement(startsWith("UPDATE books"));
+    }
+
+    @Test
+    public void testHandOn_emptyQueuePutsCopyOnShelf() throws Exception {
+        when(head.next()).thenReturn(false);
+
+        assertTrue(HoldDAO.handOn(mockConnection, 5));
+
+        verify(mockConnection).prepareStatement(startsWith("UPDATE books SET available_quantity = available_quantity + 1"));
+        verify(mockConnection, never()).prepareStatement(startsWith("UPDATE holds SET status = 'READY'"));
+    }
+
+    @Test
+    public void testCancel_readyHoldPassesCopyOnInSameTransaction() throws Exception {
+        PreparedStatement lockHold = mock(PreparedStatement.class);
+        ResultSet lockedHold = mock(ResultSet.class);
+        when(mockConnection.prepareStatement(startsWith("SELECT book_id, status FROM holds"))).thenReturn(lockHold);
+        when(lockHold.executeQuery()).thenReturn(lockedHold);
+        when(lockedHold.next()).thenReturn(true);
+        when(lockedHold.getInt("book_id")).thenReturn(5);
+        when(lockedHold.getString("status")).thenReturn(HoldDAO.READY);
+        when(head.next()).thenReturn(true);
+
+        assertTrue(holdDAO.cancel(3, 1));
+
+        verify(mockConnection).setAutoCommit(false);
+        verify(queueHead).setInt(1, 5);
+        verify(mockConnection).commit();
+    }
+
+    @Test
+    public void testCancel_unknownHoldRollsBack() throws Exception {
+        assertFalse(holdDAO.cancel(3, 1));
+
+        verify(mockConnection).rollback();
+        verify(mockConnection, never()).commit();
+    }
+
+    @Test
+    public void testReturnBook_alreadyReturnedLeavesQueueAlone() throws Exception {
+        when(mockStatement.executeUpdate()).thenReturn(0);
+
+        assertFalse(new BorrowingDAO().returnBook(11, 5, Date.valueOf(LocalDate.now())));
+
+        verify(mockConnection).rollback();
+        verify(queueHead, never()).executeQuery();
+    }
+
+    @Test
+    public void testReturnOpenBorrowing_replayOfClosedBorrowingIsNoOp() throws Exception {
+        assertEquals(0, new BorrowingDAO().returnOpenBorrowing(11, 3, Date.valueOf(LocalDate.now())));
+
+        verify(mockConnection).rollback();
+        verify(mockStatement, never()).executeUpdate();
+    }
+
+    @Test
+    public void testReturnBook_allocatesCopyBeforeCommit() throws Exception {
+        when(head.next()).thenReturn(true);
+
+        assertTrue(new BorrowingDAO().returnBook(11, 5, Date.valueOf(LocalDate.now())));
+
+        verify(queueHead).executeQuery();
+        verify(mockConnection).commit();
+        verify(mockConnection, never()).prepareStatement(startsWith("UPDATE books"));
+    }
+}
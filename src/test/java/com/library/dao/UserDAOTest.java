@@ -2,9 +2,18 @@ package com.library.dao;
 
 import com.library.dao.UserDAO;
 import com.library.model.User;
+import com.library.util.DatabaseConnection;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
 
 public class UserDAOTest {
 
@@ -15,6 +24,11 @@ public class UserDAOTest {
         userDAO = new UserDAO();
     }
 
+    @After
+    public void tearDown() {
+        DatabaseConnection.setTestConnection(null);
+    }
+
     @Test
     public void testUserDAOInstantiation() {
         assertNotNull("UserDAO should be instantiated", userDAO);
@@ -62,4 +76,20 @@ public class UserDAOTest {
                 java.util.Arrays.stream(userDAO.getClass().getDeclaredMethods())
                         .anyMatch(m -> m.getName().equals("create")));
     }
+
+    @Test
+    public void testDeleteKeepsATombstoneForSessionTokens() throws Exception {
+        Connection conn = mock(Connection.class);
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(conn.prepareStatement(anyString())).thenReturn(stmt);
+        when(stmt.executeUpdate()).thenReturn(1);
+        when(stmt.executeQuery()).thenReturn(rs);
+        DatabaseConnection.setTestConnection(conn);
+
+        assertTrue(userDAO.delete(7));
+
+        verify(conn).prepareStatement("INSERT IGNORE INTO deleted_users (user_id) VALUES (?)");
+        verify(conn).commit();
+    }
 }
@@ -0,0 +1,106 @@
+package com.library.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class AdmissionFilterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    private AdmissionFilter filter;
+
+    @Before
+    public void setUp() throws Exception {
+        FilterConfig config = mock(FilterConfig.class);
+        when(config.getInitParameter("limit")).thenReturn("10");
+        when(config.getInitParameter("circulation")).thenReturn("/borrow,/return");
+        when(config.getInitParameter("browsing")).thenReturn("/books,/api");
+        when(config.getInitParameter("reports")).thenReturn("/admin");
+        filter = new AdmissionFilter();
+        filter.init(config);
+    }
+
+    @Test
+    public void testClassifiesByPathPrefix() {
+        assertEquals(AdmissionFilter.Priority.CIRCULATION, filter.classify("/borrow"));
+        assertEquals(AdmissionFilter.Priority.BROWSING, filter.classify("/api/v1"));
+        assertEquals(AdmissionFilter.Priority.REPORTS, filter.classify("/admin/dashboard"));
+        assertNull(filter.classify("/bookshelf"));
+        assertNull(filter.classify("/login"));
+    }
+
+    @Test
+    public void testLowerPrioritiesAreShedFirst() {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 1, 100, 250, now::get);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limit.tryAcquire(AdmissionFilter.REPORTS_SHARE));
+        }
+
+        assertFalse("Reports may use half the limit", limit.tryAcquire(AdmissionFilter.REPORTS_SHARE));
+        assertTrue(limit.tryAcquire(AdmissionFilter.BROWSING_SHARE));
+        assertTrue(limit.tryAcquire(AdmissionFilter.BROWSING_SHARE));
+        assertTrue(limit.tryAcquire(AdmissionFilter.BROWSING_SHARE));
+        assertFalse(limit.tryAcquire(AdmissionFilter.BROWSING_SHARE));
+        assertTrue("Circulation gets the rest", limit.tryAcquire(1.0));
+        assertTrue(limit.tryAcquire(1.0));
+        assertFalse(limit.tryAcquire(1.0));
+    }
+
+    @Test
+    public void testSlowRequestsShrinkLimitOncePerInterval() {
+        AdaptiveLimit limit = new AdaptiveLimit(20, 1, 100, 250, now::get);
+        long slow = TimeUnit.MILLISECONDS.toNanos(400);
+
+        limit.tryAcquire(1.0);
+        limit.release(slow, false);
+        assertEquals(18, limit.getLimit());
+        limit.tryAcquire(1.0);
+        limit.release(slow, false);
+        assertEquals("Same congestion interval", 18, limit.getLimit());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(250));
+        limit.tryAcquire(1.0);
+        limit.release(0, true);
+        assertEquals(16, limit.getLimit());
+    }
+
+    @Test
+    public void testFastRequestsGrowBusyLimit() {
+        AdaptiveLimit limit = new AdaptiveLimit(4, 1, 100, 250, now::get);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < limit.getLimit(); i++) {
+                limit.tryAcquire(1.0);
+            }
+            while (limit.getInFlight() > 0) {
+                limit.release(TimeUnit.MILLISECONDS.toNanos(10), false);
+            }
+        }
+
+        assertTrue(limit.getLimit() > 4);
+    }
+
+    @Test
+    public void testRejectsWith503WhenFull() throws Exception {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(request.getServletPath()).thenReturn("/admin/dashboard");
+        for (int i = 0; i < 5; i++) {
+            filter.getLimit().tryAcquire(1.0);
+        }
+
+        filter.doFilter(request, response, mock(FilterChain.class));
+
+        verify(response).setHeader("Retry-After", "1");
+        verify(response).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+}
@@ -0,0 +1,184 @@
+package com.library.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class CompressionFilterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServletResponse response;
+    private ByteArrayOutputStream body;
+
+    @Before
+    public void setUp() throws IOException {
+        body = new ByteArrayOutputStream();
+        response = mock(HttpServletResponse.class);
+        when(response.getContentType()).thenReturn("text/html;charset=UTF-8");
+        when(response.getCharacterEncoding()).thenReturn("UTF-8");
+        when(response.getStatus()).thenReturn(200);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                // not used
+            }
+        });
+    }
+
+    @Test
+    public void testAccepts_HonoursQualityValues() {
+        assertTrue(CompressionFilter.accepts("gzip, deflate, br", "gzip"));
+        assertTrue(CompressionFilter.accepts("br;q=1.0, gzip;q=0.8", "br"));
+        assertFalse(CompressionFilter.accepts("gzip;q=0", "gzip"));
+        assertTrue(CompressionFilter.accepts("*", "gzip"));
+        assertFalse(CompressionFilter.accepts("identity", "gzip"));
+        assertFalse(CompressionFilter.accepts(null, "gzip"));
+    }
+
+    @Test
+    public void testSmallResponse_IsNotCompressed() throws IOException {
+        CompressingResponseWrapper wrapper = new CompressingResponseWrapper(response, 1024);
+        wrapper.getWriter().write("<p>short</p>");
+        wrapper.finish();
+
+        assertEquals("<p>short</p>", body.toString(StandardCharsets.UTF_8));
+        verify(response, never()).setHeader("Content-Encoding", "gzip");
+    }
+
+    @Test
+    public void testLargeResponse_IsGzipped() throws IOException {
+        String html = "<tr><td>row</td></tr>\n".repeat(500);
+        CompressingResponseWrapper wrapper = new CompressingResponseWrapper(response, 1024);
+        wrapper.getWriter().write(html);
+        wrapper.finish();
+
+        verify(response).setHeader("Content-Encoding", "gzip");
+        assertTrue("Output should be smaller than the page", body.size() < html.length() / 10);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body.toByteArray()))) {
+            assertEquals(html, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testImages_AreNotCompressed() throws IOException {
+        when(response.getContentType()).thenReturn("image/jpeg");
+        CompressingResponseWrapper wrapper = new CompressingResponseWrapper(response, 16);
+        wrapper.getOutputStream().write(new byte[64]);
+        wrapper.finish();
+
+        assertEquals(64, body.size());
+        verify(response, never()).setHeader("Content-Encoding", "gzip");
+    }
+
+    @Test
+    public void testNonBlockingWritesPassThroughUncompressed() throws IOException {
+        ServletOutputStream underlying = mock(ServletOutputStream.class);
+        when(underlying.isReady()).thenReturn(false);
+        when(response.getOutputStream()).thenReturn(underlying);
+        CompressingResponseWrapper wrapper = new CompressingResponseWrapper(response, 16);
+        ServletOutputStream out = wrapper.getOutputStream();
+        WriteListener listener = mock(WriteListener.class);
+
+        out.setWriteListener(listener);
+        verify(underlying).setWriteListener(listener);
+        assertFalse(out.isReady());
+
+        byte[] chunk = "a body well above the threshold".getBytes(StandardCharsets.UTF_8);
+        out.write(chunk, 0, chunk.length);
+        verify(underlying).write(chunk, 0, chunk.length);
+        verify(response, never()).setHeader("Content-Encoding", "gzip");
+    }
+
+    @Test
+    public void testPrecompressedVariantsAreFoundAtStartup() throws Exception {
+        File gz = folder.newFile("style.css.gz");
+        Files.write(gz.toPath(), new byte[]{1, 2, 3});
+        ServletContext context = mock(ServletContext.class);
+        when(context.getResourcePaths("/")).thenReturn(Set.of("/css/", "/WEB-INF/", "/index.jsp"));
+        when(context.getResourcePaths("/css/")).thenReturn(Set.of("/css/style.css", "/css/style.css.gz"));
+        when(context.getResource("/css/style.css.gz")).thenReturn(gz.toURI().toURL());
+        when(context.getMimeType("/css/style.css")).thenReturn("text/css");
+        FilterConfig config = mock(FilterConfig.class);
+        when(config.getServletContext()).thenReturn(context);
+        CompressionFilter filter = new CompressionFilter();
+        filter.init(config);
+        verify(context, never()).getResourcePaths("/WEB-INF/");
+
+        filter.doFilter(staticRequest("/css/style.css"), response, mock(FilterChain.class));
+        verify(response).setHeader("Content-Encoding", "gzip");
+        assertEquals(3, body.size());
+
+        // Any other path is answered from the list, without looking it up
+        FilterChain chain = mock(FilterChain.class);
+        HttpServletRequest random = staticRequest("/no-such-file-4711.js");
+        filter.doFilter(random, response, chain);
+        verify(chain).doFilter(eq(random), any(HttpServletResponse.class));
+        verify(context, times(1)).getResource(anyString());
+    }
+
+    @Test
+    public void testMalformedIfModifiedSinceIsIgnored() throws Exception {
+        File gz = folder.newFile("app.js.gz");
+        Files.write(gz.toPath(), new byte[]{1, 2, 3});
+        ServletContext context = mock(ServletContext.class);
+        when(context.getResourcePaths("/")).thenReturn(Set.of("/app.js", "/app.js.gz"));
+        when(context.getResource("/app.js.gz")).thenReturn(gz.toURI().toURL());
+        FilterConfig config = mock(FilterConfig.class);
+        when(config.getServletContext()).thenReturn(context);
+        CompressionFilter filter = new CompressionFilter();
+        filter.init(config);
+
+        HttpServletRequest request = staticRequest("/app.js");
+        when(request.getDateHeader("If-Modified-Since")).thenThrow(new IllegalArgumentException("not a date"));
+        filter.doFilter(request, response, mock(FilterChain.class));
+
+        verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response).setHeader("Content-Encoding", "gzip");
+        assertEquals(3, body.size());
+    }
+
+    private static HttpServletRequest staticRequest(String path) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getServletPath()).thenReturn(path);
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+        when(request.getDateHeader("If-Modified-Since")).thenReturn(-1L);
+        return request;
+    }
+}
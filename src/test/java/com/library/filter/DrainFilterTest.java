@@ -0,0 +1,97 @@
+package com.library.filter;
+
+import com.library.health.GracefulShutdown;
+import com.library.health.Readiness;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class DrainFilterTest {
+
+    private DrainFilter filter;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private FilterChain chain;
+
+    @Before
+    public void setUp() throws Exception {
+        GracefulShutdown.reset();
+        FilterConfig config = mock(FilterConfig.class);
+        when(config.getServletContext()).thenReturn(mock(ServletContext.class));
+        when(config.getInitParameter("drainMillis")).thenReturn("500");
+        filter = new DrainFilter();
+        filter.init(config);
+
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        chain = mock(FilterChain.class);
+        when(request.getMethod()).thenReturn("POST");
+    }
+
+    @Test
+    public void testCountsRequestWhileItRuns() throws Exception {
+        int[] seen = new int[1];
+        doAnswer(invocation -> {
+            seen[0] = GracefulShutdown.inFlight();
+            return null;
+        }).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(1, seen[0]);
+        assertEquals(0, GracefulShutdown.inFlight());
+    }
+
+    @Test
+    public void testAsyncRequestCountsUntilComplete() throws Exception {
+        AsyncContext async = mock(AsyncContext.class);
+        when(request.isAsyncStarted()).thenReturn(true);
+        when(request.getAsyncContext()).thenReturn(async);
+
+        filter.doFilter(request, response, chain);
+        assertEquals(1, GracefulShutdown.inFlight());
+
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(async).addListener(listener.capture());
+        listener.getValue().onComplete(mock(AsyncEvent.class));
+        assertEquals(0, GracefulShutdown.inFlight());
+    }
+
+    @Test
+    public void testDrainRejectsWritesButServesReads() throws Exception {
+        Readiness.markReady();
+        assertTrue(GracefulShutdown.drain(100));
+        assertFalse(Readiness.isReady());
+
+        filter.doFilter(request, response, chain);
+        verify(response).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        verify(chain, never()).doFilter(request, response);
+
+        when(request.getMethod()).thenReturn("GET");
+        filter.doFilter(request, response, chain);
+        verify(chain).doFilter(request, response);
+    }
+
+    @Test
+    public void testDrainGivesUpAtDeadline() throws Exception {
+        GracefulShutdown.requestStarted();
+        try {
+            long start = System.currentTimeMillis();
+            assertFalse(GracefulShutdown.drain(200));
+            assertTrue(System.currentTimeMillis() - start >= 200);
+        } finally {
+            GracefulShutdown.requestFinished();
+        }
+    }
+}
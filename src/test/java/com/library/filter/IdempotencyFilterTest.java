@@ -0,0 +1,149 @@
+package com.library.filter;
+
+import com.library.dao.IdempotencyKeyDAO;
+import com.library.session.SessionUser;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class IdempotencyFilterTest {
+
+    private static final String TOKEN = "2f1c0e4a-9b7d-4c1e-8a55-0d6f3b2e9c11";
+
+    private IdempotencyKeyDAO keyDAO;
+    private IdempotencyFilter filter;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private FilterChain chain;
+
+    @Before
+    public void setUp() throws Exception {
+        keyDAO = mock(IdempotencyKeyDAO.class);
+        when(keyDAO.claim(anyString(), anyInt())).thenReturn(1);
+        filter = new IdempotencyFilter(keyDAO);
+        FilterConfig config = mock(FilterConfig.class);
+        when(config.getInitParameter("waitMillis")).thenReturn("300");
+        filter.init(config);
+
+        SessionUser user = new SessionUser(7, "alice", "Alice", "USER");
+        HttpSession session = mock(HttpSession.class);
+        when(session.getAttribute("user")).thenReturn(user);
+
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        chain = mock(FilterChain.class);
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getServletPath()).thenReturn("/borrow");
+        when(request.getSession(false)).thenReturn(session);
+        when(request.getParameter("idempotencyKey")).thenReturn(TOKEN);
+    }
+
+    @After
+    public void tearDown() {
+        filter.destroy();
+    }
+
+    @Test
+    public void testRepeatedSubmissionGetsFirstOutcome() throws Exception {
+        redirectFromServlet("my-borrowings?success=Book borrowed successfully");
+
+        filter.doFilter(request, response, chain);
+        filter.doFilter(request, response, chain);
+
+        verify(chain, times(1)).doFilter(eq(request), any());
+        verify(response, times(2)).sendRedirect("my-borrowings?success=Book borrowed successfully");
+        verify(keyDAO).claim("7:/borrow:" + TOKEN, 7);
+        verify(keyDAO).record("7:/borrow:" + TOKEN, 7, "my-borrowings?success=Book borrowed successfully");
+    }
+
+    @Test
+    public void testFailedSubmissionIsRetried() throws Exception {
+        redirectFromServlet("book-detail?id=3&error=Failed to borrow book");
+
+        filter.doFilter(request, response, chain);
+        filter.doFilter(request, response, chain);
+
+        verify(chain, times(2)).doFilter(eq(request), any());
+        verify(keyDAO, times(2)).release("7:/borrow:" + TOKEN);
+        verify(keyDAO, never()).record(anyString(), anyInt(), anyString());
+    }
+
+    @Test
+    public void testOutcomeRecordedByAnotherReplicaIsReplayed() throws Exception {
+        when(keyDAO.claim("7:/borrow:" + TOKEN, 7)).thenReturn(0);
+        when(keyDAO.findOutcome("7:/borrow:" + TOKEN)).thenReturn("my-borrowings?success=Book borrowed successfully");
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain, never()).doFilter(any(), any());
+        verify(response).sendRedirect("my-borrowings?success=Book borrowed successfully");
+    }
+
+    @Test
+    public void testSubmissionRunningOnAnotherReplicaIsNotRunAgain() throws Exception {
+        when(keyDAO.claim("7:/borrow:" + TOKEN, 7)).thenReturn(0);
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain, never()).doFilter(any(), any());
+        verify(response).sendRedirect("my-borrowings?error=Your request is still being processed");
+        verify(keyDAO, never()).release(anyString());
+    }
+
+    @Test
+    public void testSubmissionReleasedByAnotherReplicaRunsHere() throws Exception {
+        when(keyDAO.claim("7:/borrow:" + TOKEN, 7)).thenReturn(0, 1);
+        redirectFromServlet("my-borrowings?success=Book borrowed successfully");
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(eq(request), any());
+        verify(keyDAO).record("7:/borrow:" + TOKEN, 7, "my-borrowings?success=Book borrowed successfully");
+    }
+
+    @Test
+    public void testSubmissionsWithoutValidKeyPassThrough() throws Exception {
+        when(request.getParameter("idempotencyKey")).thenReturn("short");
+
+        filter.doFilter(request, response, chain);
+        filter.doFilter(request, response, chain);
+
+        verify(chain, times(2)).doFilter(request, response);
+        verifyNoInteractions(keyDAO);
+    }
+
+    @Test
+    public void testStoreIsBoundedAndExpires() {
+        AtomicLong now = new AtomicLong();
+        IdempotencyStore store = new IdempotencyStore(2, 1000, now::get);
+
+        assertNull(store.claim("a"));
+        assertNull(store.claim("b"));
+        assertNull(store.claim("c"));
+        assertEquals(2, store.size());
+        assertNull("Evicted as the eldest", store.claim("a"));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertNull(store.claim("d"));
+        assertEquals(1, store.size());
+    }
+
+    private void redirectFromServlet(String location) throws Exception {
+        doAnswer(invocation -> {
+            ((HttpServletResponse) invocation.getArgument(1)).sendRedirect(location);
+            return null;
+        }).when(chain).doFilter(eq(request), any());
+    }
+}
@@ -0,0 +1,168 @@
+package com.library.filter;
+
+import com.library.cache.CatalogVersion;
+import com.library.cache.PrerenderedCatalog;
+import com.library.session.SessionUser;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class PrerenderFilterTest {
+
+    private PrerenderFilter filter;
+    private HttpServletRequest request;
+
+    @Before
+    public void setUp() throws Exception {
+        filter = new PrerenderFilter();
+        filter.init(mock(FilterConfig.class));
+
+        request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getParameterMap()).thenReturn(Collections.emptyMap());
+    }
+
+    @After
+    public void tearDown() {
+        filter.destroy();
+    }
+
+    @Test
+    public void testPageKey_AnonymousDefaultPage() {
+        assertEquals(PrerenderedCatalog.DEFAULT_KEY, filter.pageKey(request));
+    }
+
+    @Test
+    public void testPageKey_SignedInUserIsRendered() {
+        HttpSession session = mock(HttpSession.class);
+        when(session.getAttribute("user")).thenReturn(new SessionUser(7, "alice", "Alice", "USER"));
+        when(request.getSession(false)).thenReturn(session);
+
+        assertNull(filter.pageKey(request));
+    }
+
+    @Test
+    public void testPageKey_SearchAndUnknownCategoryAreRendered() {
+        when(request.getParameterMap()).thenReturn(Map.of("search", new String[]{"orwell"}));
+        assertNull(filter.pageKey(request));
+
+        when(request.getParameterMap()).thenReturn(Map.of("category", new String[]{"Not a category"}));
+        assertNull(filter.pageKey(request));
+    }
+
+    @Test
+    public void testPageIsKeptFromTheServletResponseUntilTheContentChanges() throws Exception {
+        waitForQuietCatalog();
+        HttpServletResponse first = response(new ByteArrayOutputStream());
+        FilterChain servlet = mock(FilterChain.class);
+        doAnswer(inv -> {
+            inv.getArgument(1, HttpServletResponse.class).getWriter().write("<html>catalog</html>");
+            return null;
+        }).when(servlet).doFilter(any(), any());
+
+        filter.doFilter(request, first, servlet);
+        PrerenderedCatalog.Page page = awaitPage();
+        assertNotNull(page);
+
+        // Borrowing and returning leave the page alone, an edit does not
+        CatalogVersion.bumpStock();
+        assertSame(page, filter.getCatalog().get(PrerenderedCatalog.DEFAULT_KEY));
+        ByteArrayOutputStream served = new ByteArrayOutputStream();
+        filter.doFilter(request, response(served), servlet);
+        verify(servlet, times(1)).doFilter(any(), any());
+        assertEquals("<html>catalog</html>", served.toString(StandardCharsets.UTF_8));
+
+        CatalogVersion.bump();
+        assertNull(filter.getCatalog().get(PrerenderedCatalog.DEFAULT_KEY));
+    }
+
+    @Test
+    public void testErrorResponseIsNotKept() throws Exception {
+        waitForQuietCatalog();
+        FilterChain servlet = mock(FilterChain.class);
+        doAnswer(inv -> {
+            inv.getArgument(1, HttpServletResponse.class).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return null;
+        }).when(servlet).doFilter(any(), any());
+
+        filter.doFilter(request, response(new ByteArrayOutputStream()), servlet);
+        filter.doFilter(request, response(new ByteArrayOutputStream()), servlet);
+
+        verify(servlet, times(2)).doFilter(any(), any());
+        assertNull(filter.getCatalog().get(PrerenderedCatalog.DEFAULT_KEY));
+    }
+
+    @Test
+    public void testPageTheServletFlaggedIsNotKept() throws Exception {
+        waitForQuietCatalog();
+        FilterChain servlet = mock(FilterChain.class);
+        doAnswer(inv -> {
+            // As BookServlet does when a query failed and the list came back empty
+            when(request.getAttribute(PrerenderedCatalog.DO_NOT_KEEP)).thenReturn(true);
+            inv.getArgument(1, HttpServletResponse.class).getWriter().write("<html>No books found</html>");
+            return null;
+        }).when(servlet).doFilter(any(), any());
+
+        filter.doFilter(request, response(new ByteArrayOutputStream()), servlet);
+
+        assertNull(awaitPage());
+    }
+
+    private static HttpServletResponse response(ByteArrayOutputStream body) throws Exception {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getStatus()).thenReturn(HttpServletResponse.SC_OK);
+        when(response.getContentType()).thenReturn("text/html;charset=UTF-8");
+        when(response.getCharacterEncoding()).thenReturn("UTF-8");
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        });
+        return response;
+    }
+
+    private PrerenderedCatalog.Page awaitPage() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            PrerenderedCatalog.Page page = filter.getCatalog().get(PrerenderedCatalog.DEFAULT_KEY);
+            if (page != null) {
+                return page;
+            }
+            Thread.sleep(20);
+        }
+        return null;
+    }
+
+    private static void waitForQuietCatalog() throws InterruptedException {
+        // Pages are only rendered once the catalog has not changed for a moment
+        long quietFor = System.currentTimeMillis() - CatalogVersion.contentChangedAt();
+        if (quietFor < 500) {
+            Thread.sleep(500 - quietFor);
+        }
+    }
+}
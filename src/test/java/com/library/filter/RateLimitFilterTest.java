@@ -0,0 +1,110 @@
+package com.library.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class RateLimitFilterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private FilterChain chain;
+
+    @Before
+    public void setUp() {
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        chain = mock(FilterChain.class);
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getServletPath()).thenReturn("/login");
+        when(request.getRemoteAddr()).thenReturn("10.0.0.1");
+    }
+
+    @Test
+    public void testBucketAllowsBurstThenRefills() {
+        RateLimiter limiter = new RateLimiter(3, 3, TimeUnit.SECONDS, 100, now::get);
+
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("a"));
+        long wait = limiter.tryAcquire("a");
+        assertEquals(TimeUnit.SECONDS.toNanos(1), wait);
+        assertEquals("Other keys have their own bucket", 0, limiter.tryAcquire("b"));
+
+        now.addAndGet(wait);
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a") > 0);
+    }
+
+    @Test
+    public void testKeysAreBounded() {
+        RateLimiter limiter = new RateLimiter(1, 60, TimeUnit.SECONDS, 32, now::get);
+
+        for (int i = 0; i < 1000; i++) {
+            limiter.tryAcquire("client-" + i);
+        }
+
+        assertTrue(limiter.size() <= 32);
+    }
+
+    @Test
+    public void testOverLimitGets429WithRetryAfter() throws Exception {
+        RateLimitFilter filter = filter("login.perIp", "2/60");
+
+        filter.doFilter(request, response, chain);
+        filter.doFilter(request, response, chain);
+        filter.doFilter(request, response, chain);
+
+        verify(chain, times(2)).doFilter(request, response);
+        verify(response).setHeader("Retry-After", "30");
+        verify(response).sendError(eq(429), anyString());
+    }
+
+    @Test
+    public void testAccountLimitAppliesAcrossAddresses() throws Exception {
+        RateLimitFilter filter = filter("login.perAccount", "1/60");
+        when(request.getParameter("username")).thenReturn("Alice");
+
+        filter.doFilter(request, response, chain);
+        when(request.getRemoteAddr()).thenReturn("10.0.0.2");
+        when(request.getParameter("username")).thenReturn("alice");
+        filter.doFilter(request, response, chain);
+
+        verify(chain, times(1)).doFilter(request, response);
+        verify(response).sendError(eq(429), anyString());
+    }
+
+    @Test
+    public void testReadsAreNotLimited() throws Exception {
+        RateLimitFilter filter = filter("login.perIp", "1/60");
+        when(request.getMethod()).thenReturn("GET");
+
+        filter.doFilter(request, response, chain);
+        filter.doFilter(request, response, chain);
+
+        verify(chain, times(2)).doFilter(request, response);
+    }
+
+    private static RateLimitFilter filter(String name, String value) throws Exception {
+        FilterConfig config = mock(FilterConfig.class);
+        when(config.getInitParameterNames()).thenReturn(Collections.enumeration(Arrays.asList(name, "maxKeys")));
+        when(config.getInitParameter(name)).thenReturn(value);
+        when(config.getInitParameter("maxKeys")).thenReturn("1000");
+        RateLimitFilter filter = new RateLimitFilter();
+        filter.init(config);
+        return filter;
+    }
+}
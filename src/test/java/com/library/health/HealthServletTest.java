@@ -0,0 +1,87 @@
+package com.library.health;
+
+import com.library.dao.BookDAO;
+import com.library.util.DatabaseConnection;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class HealthServletTest {
+
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+
+    @Before
+    public void setUp() throws Exception {
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
+        Readiness.markNotReady();
+    }
+
+    @After
+    public void tearDown() {
+        Readiness.markNotReady();
+        DatabaseConnection.setTestConnection(null);
+    }
+
+    @Test
+    public void testLiveAnswersBeforeReady() throws Exception {
+        when(request.getServletPath()).thenReturn("/health/live");
+
+        new HealthServlet().doGet(request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+    }
+
+    @Test
+    public void testReadyFlipsWithReadiness() throws Exception {
+        when(request.getServletPath()).thenReturn("/health/ready");
+        HealthServlet servlet = new HealthServlet();
+
+        servlet.doGet(request, response);
+        verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+
+        Readiness.markReady();
+        servlet.doGet(request, response);
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+    }
+
+    @Test
+    public void testWarmUpStopsWhenDatabaseIsDown() throws Exception {
+        Connection connection = mock(Connection.class);
+        when(connection.isValid(anyInt())).thenThrow(new SQLException("Connection refused"));
+        DatabaseConnection.setTestConnection(connection);
+        BookDAO bookDAO = mock(BookDAO.class);
+
+        assertFalse(new WarmUp(bookDAO, 3).run());
+
+        verifyNoInteractions(bookDAO);
+    }
+
+    @Test
+    public void testWarmUpRunsHotPaths() throws Exception {
+        Connection connection = mock(Connection.class);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        DatabaseConnection.setTestConnection(connection);
+        BookDAO bookDAO = mock(BookDAO.class);
+        when(bookDAO.findAll()).thenReturn(Collections.emptyList());
+
+        assertTrue(new WarmUp(bookDAO, 3).run());
+
+        verify(bookDAO, times(3)).findAll();
+        verify(bookDAO, times(3)).search("a");
+        verify(bookDAO, times(3)).visitPage(eq(0), isNull(), eq(20), any());
+    }
+}
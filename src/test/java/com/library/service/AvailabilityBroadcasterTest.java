@@ -0,0 +1,108 @@
+package com.library.service;
+
+import com.library.dao.BookDAO;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class AvailabilityBroadcasterTest {
+
+    private AvailabilityBroadcaster broadcaster;
+    private AsyncContext asyncContext;
+    private FakeOutput out;
+    private AvailabilityBroadcaster.Subscriber subscriber;
+
+    @Before
+    public void setUp() {
+        // Not started, so register() does not look up the initial state
+        broadcaster = new AvailabilityBroadcaster(mock(BookDAO.class));
+        asyncContext = mock(AsyncContext.class);
+        out = new FakeOutput();
+        subscriber = new AvailabilityBroadcaster.Subscriber(broadcaster, asyncContext, out, Set.of(1, 2));
+        broadcaster.register(subscriber);
+        subscriber.onWritePossible();
+    }
+
+    @Test
+    public void testStreamStartsWithRetryHint() {
+        assertEquals("retry: 5000\n\n", out.text());
+    }
+
+    @Test
+    public void testChangesOfWatchedBooksAreSent() {
+        broadcaster.publish(1, 0, 3);
+        broadcaster.publish(7, 1, 1);
+
+        assertTrue(out.text().endsWith("event: availability\ndata: {\"id\":1,\"available\":0,\"quantity\":3}\n\n"));
+        assertFalse("Book 7 is not watched", out.text().contains("\"id\":7"));
+    }
+
+    @Test
+    public void testUnchangedStateIsNotRepeated() {
+        broadcaster.publish(2, 1, 2);
+        int length = out.text().length();
+
+        broadcaster.publish(2, 1, 2);
+
+        assertEquals(length, out.text().length());
+    }
+
+    @Test
+    public void testSlowClientGetsOnlyLatestStatePerBook() {
+        out.ready = false;
+        broadcaster.publish(1, 2, 3);
+        broadcaster.publish(1, 1, 3);
+        broadcaster.publish(1, 0, 3);
+        out.ready = true;
+        subscriber.onWritePossible();
+
+        String text = out.text();
+        assertEquals(1, text.split("event: availability").length - 1);
+        assertTrue(text.contains("\"available\":0"));
+    }
+
+    @Test
+    public void testClosedStreamIsUnregistered() {
+        subscriber.onError(new IOException("client went away"));
+        int length = out.text().length();
+
+        broadcaster.publish(1, 0, 3);
+
+        assertEquals(length, out.text().length());
+        verify(asyncContext).complete();
+    }
+
+    private static class FakeOutput extends ServletOutputStream {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        boolean ready = true;
+
+        @Override
+        public void write(int b) {
+            bytes.write(b);
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            // driven by the test
+        }
+
+        String text() {
+            return bytes.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
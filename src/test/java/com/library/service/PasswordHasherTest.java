@@ -0,0 +1,98 @@
+package com.library.service;
+
+import com.library.util.PasswordUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PasswordHasherTest {
+
+    private PasswordHasher hasher;
+
+    @Before
+    public void setUp() {
+        hasher = new PasswordHasher(1, 1, 2000, PasswordHasher.MIN_ITERATIONS);
+    }
+
+    @After
+    public void tearDown() {
+        hasher.shutdown();
+    }
+
+    @Test
+    public void testHashIsSaltedAndVersioned() {
+        String first = hasher.hash("secret123");
+        String second = hasher.hash("secret123");
+
+        assertTrue(first.startsWith("pbkdf2-sha256$" + PasswordHasher.MIN_ITERATIONS + "$"));
+        assertNotEquals("Each hash gets its own salt", first, second);
+        assertEquals(PasswordHasher.Verification.MATCH, hasher.verify("secret123", first));
+        assertEquals(PasswordHasher.Verification.MISMATCH, hasher.verify("secret124", first));
+    }
+
+    @Test
+    public void testLegacyDigestMatchesButNeedsRehash() {
+        String legacy = PasswordUtil.hashPassword("secret123");
+
+        assertEquals(PasswordHasher.Verification.MATCH_NEEDS_REHASH, hasher.verify("secret123", legacy));
+        assertEquals(PasswordHasher.Verification.MISMATCH, hasher.verify("wrong", legacy));
+    }
+
+    @Test
+    public void testLowerCostNeedsRehash() {
+        String cheap = hasher.encode("secret123");
+        PasswordHasher stronger = new PasswordHasher(1, 1, 2000, PasswordHasher.MIN_ITERATIONS * 2);
+        try {
+            assertEquals(PasswordHasher.Verification.MATCH_NEEDS_REHASH, stronger.check("secret123", cheap));
+            assertEquals(PasswordHasher.Verification.MATCH, stronger.check("secret123", stronger.encode("secret123")));
+        } finally {
+            stronger.shutdown();
+        }
+    }
+
+    @Test
+    public void testUnknownUserIsCheckedAgainstAHashAtFullCost() {
+        assertEquals(PasswordHasher.Verification.MISMATCH, hasher.verifyUnknownUser("secret123"));
+        assertTrue(hasher.unknownUserHash().startsWith("pbkdf2-sha256$" + PasswordHasher.MIN_ITERATIONS + "$"));
+        assertEquals(PasswordHasher.Verification.MISMATCH, hasher.check("", hasher.unknownUserHash()));
+    }
+
+    @Test
+    public void testMalformedHashNeverMatches() {
+        assertEquals(PasswordHasher.Verification.MISMATCH, hasher.check("x", "pbkdf2-sha256$abc$$"));
+        assertEquals(PasswordHasher.Verification.MISMATCH, hasher.check("x", null));
+    }
+
+    @Test
+    public void testFailsFastWhenPoolIsSaturated() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Occupies the only worker, then the only queue slot
+        hasher.rehash("a", hash -> {
+            running.countDown();
+            awaitQuietly(release);
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        hasher.rehash("b", hash -> { });
+
+        try {
+            assertEquals(PasswordHasher.Verification.BUSY, hasher.verify("secret123", PasswordUtil.hashPassword("secret123")));
+            assertNull(hasher.hash("secret123"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.library.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ReturnJournalTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 14);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private ReturnJournal journal;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.getRoot().toPath();
+        journal = ReturnJournal.open(directory, 4096);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        journal.close();
+    }
+
+    @Test
+    public void testSecondOpenOfTheSameDirectoryFails() throws Exception {
+        try {
+            ReturnJournal.open(directory, 4096).close();
+            fail("The directory is already open");
+        } catch (IllegalStateException expected) {
+            // Held by the journal from setUp
+        }
+
+        journal.close();
+        journal = ReturnJournal.open(directory, 4096);
+    }
+
+    @Test
+    public void testRecoversUnreplayedEntriesInOrder() throws Exception {
+        journal.append(11, 1, TODAY);
+        journal.append(12, 2, TODAY.plusDays(1));
+        journal.append(13, 1, TODAY);
+        journal.replay(entry -> entry.getBorrowingId() == 11);
+        journal.close();
+
+        journal = ReturnJournal.open(directory, 4096);
+        List<ReturnJournal.Entry> replayed = new ArrayList<>();
+        journal.replay(replayed::add);
+
+        assertEquals(2, replayed.size());
+        assertEquals(12, replayed.get(0).getBorrowingId());
+        assertEquals(2, replayed.get(0).getUserId());
+        assertEquals(TODAY.plusDays(1), replayed.get(0).getReturnDate());
+        assertEquals(13, replayed.get(1).getBorrowingId());
+        assertEquals("Sequence continues after restart", 4, journal.append(14, 1, TODAY));
+    }
+
+    @Test
+    public void testTornRecordEndsRecovery() throws Exception {
+        journal.append(11, 1, TODAY);
+        journal.append(12, 1, TODAY);
+        journal.close();
+        // Flip a byte inside the second record, as a crash mid-write would leave it
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            long offset = 8 + ReturnJournal.RECORD_SIZE + 14;
+            file.seek(offset);
+            int b = file.read();
+            file.seek(offset);
+            file.write(b ^ 0xFF);
+        }
+
+        journal = ReturnJournal.open(directory, 4096);
+
+        assertEquals(1, journal.pending());
+        assertEquals("Overwrites the torn record", 2, journal.append(15, 1, TODAY));
+    }
+
+    @Test
+    public void testReplayStopsWhenApplierCannotApply() throws Exception {
+        journal.append(11, 1, TODAY);
+        journal.append(12, 1, TODAY);
+
+        assertEquals(0, journal.replay(entry -> false));
+        assertEquals(2, journal.pending());
+
+        List<Integer> replayed = new ArrayList<>();
+        assertEquals(2, journal.replay(entry -> replayed.add(entry.getBorrowingId())));
+        assertEquals(List.of(11, 12), replayed);
+        assertFalse(journal.hasPending());
+        assertEquals(2, journal.getReplayedSeq());
+    }
+
+    @Test
+    public void testReplayedSegmentsAreDeleted() throws Exception {
+        int perSegment = (4096 - 8) / ReturnJournal.RECORD_SIZE;
+        for (int i = 0; i < perSegment * 2 + 1; i++) {
+            journal.append(i, 1, TODAY);
+        }
+        assertEquals(3, segments().size());
+
+        journal.replay(entry -> true);
+
+        assertEquals("Only the segment being appended to is kept", 1, segments().size());
+    }
+
+    @Test
+    public void testConcurrentAppendsAreAllDurable() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<Long>> appends = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int borrowingId = i;
+            appends.add(pool.submit(() -> journal.append(borrowingId, 1, TODAY)));
+        }
+        for (Future<Long> append : appends) {
+            append.get();
+        }
+        pool.shutdown();
+        journal.close();
+
+        journal = ReturnJournal.open(directory, 4096);
+        List<Long> seqs = new ArrayList<>();
+        journal.replay(entry -> seqs.add(entry.getSeq()));
+
+        assertEquals(200, seqs.size());
+        for (int i = 0; i < seqs.size(); i++) {
+            assertEquals(i + 1, (long) seqs.get(i));
+        }
+    }
+
+    @Test
+    public void testDeadLetteredEntryIsSetAsideAndReplayMovesOn() throws Exception {
+        journal.append(11, 1, TODAY);
+        journal.append(12, 2, TODAY);
+        List<Integer> returned = new ArrayList<>();
+
+        journal.replay(entry -> {
+            if (entry.getBorrowingId() == 11) {
+                try {
+                    journal.deadLetter(entry);
+                } catch (IOException e) {
+                    return false;
+                }
+            } else {
+                returned.add(entry.getBorrowingId());
+            }
+            return true;
+        });
+
+        assertEquals(List.of(12), returned);
+        assertFalse(journal.hasPending());
+        List<String> lines = Files.readAllLines(directory.resolve("dead-letter"));
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0), lines.get(0).startsWith("1,11,1,2024-03-14,"));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.library.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ThumbnailServiceTest {
+
+    private Path dir;
+    private CoverStore coverStore;
+    private ThumbnailService thumbnailService;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("covers-test");
+        coverStore = new CoverStore(dir);
+        thumbnailService = new ThumbnailService(coverStore);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        thumbnailService.shutdown();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testStore_NamesFileByContentHash() throws IOException {
+        byte[] png = png(800, 1200);
+
+        String first = coverStore.store(new ByteArrayInputStream(png), "png");
+        String second = coverStore.store(new ByteArrayInputStream(png), "png");
+
+        assertEquals("Same content should get the same name", first, second);
+        assertTrue(first.endsWith(".png"));
+        assertNotNull(coverStore.resolve(first));
+        assertNull("Path traversal must be rejected", coverStore.resolve("../" + first));
+    }
+
+    @Test
+    public void testGenerate_WritesEverySize() throws IOException {
+        String name = coverStore.store(new ByteArrayInputStream(png(800, 1200)), "png");
+
+        Map<ThumbnailService.Size, String> thumbnails = thumbnailService.generate(name);
+
+        for (ThumbnailService.Size size : ThumbnailService.Size.values()) {
+            BufferedImage thumbnail = ImageIO.read(coverStore.resolve(thumbnails.get(size)).toFile());
+            assertEquals(size.getWidth(), thumbnail.getWidth());
+            assertEquals(size.getWidth() * 3 / 2, thumbnail.getHeight(), 2);
+        }
+    }
+
+    private byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", out);
+        return out.toByteArray();
+    }
+}
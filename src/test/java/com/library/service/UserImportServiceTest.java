@@ -0,0 +1,96 @@
+package com.library.service;
+
+import com.library.dao.UserDAO;
+import com.library.model.User;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class UserImportServiceTest {
+
+    private UserDAO userDAO;
+    private PasswordHasher hasher;
+    private UserImportService service;
+
+    @Before
+    public void setUp() {
+        userDAO = mock(UserDAO.class);
+        hasher = new PasswordHasher(2, 4, 2000, PasswordHasher.MIN_ITERATIONS);
+        service = new UserImportService(userDAO, 2, hasher);
+    }
+
+    @After
+    public void tearDown() {
+        hasher.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testImportCsv_SkipsDuplicatesAndReportsFailures() throws Exception {
+        String csv = String.join("\n",
+                "username,email,password,full_name,role",
+                "alice,alice@example.com,secret1,Alice A,",
+                "bob,bob@example.com,secret2,Bob B,USER",
+                "carol,carol@example.com,short,Carol C,",
+                "alice,other@example.com,secret3,Alice Again,",
+                "\"dave\",dave@example.com,secret4,\"Dave, Jr\",ADMIN");
+
+        when(userDAO.findExistingUsernamesAndEmails(anyCollection(), anyCollection()))
+                .thenReturn(new HashSet<>(Collections.singletonList("bob@example.com")));
+        when(userDAO.createBatch(anyList(), eq(2))).thenReturn(new boolean[]{true, true});
+
+        ImportSummary summary = service.importCsv(new StringReader(csv));
+
+        assertEquals(2, summary.getCreated());
+        assertEquals(2, summary.getSkipped());
+        assertEquals(1, summary.getFailed());
+        assertEquals(3, summary.getMessages().size());
+
+        ArgumentCaptor<List<User>> captor = ArgumentCaptor.forClass(List.class);
+        verify(userDAO).createBatch(captor.capture(), eq(2));
+        List<User> users = captor.getValue();
+        assertEquals("alice", users.get(0).getUsername());
+        assertEquals("USER", users.get(0).getRole());
+        assertEquals("Dave, Jr", users.get(1).getFullName());
+        assertEquals("ADMIN", users.get(1).getRole());
+        assertTrue("Password should be stored salted", users.get(1).getPassword().startsWith("pbkdf2-sha256$"));
+        assertTrue(hasher.verify("secret4", users.get(1).getPassword()).matches());
+    }
+
+    @Test
+    public void testImportCsv_ReportsFailedInserts() throws Exception {
+        when(userDAO.findExistingUsernamesAndEmails(anyCollection(), anyCollection()))
+                .thenReturn(Collections.emptySet());
+        when(userDAO.createBatch(anyList(), anyInt())).thenReturn(new boolean[]{false});
+
+        ImportSummary summary = service.importCsv(new StringReader("erin,erin@example.com,secret5,Erin E"));
+
+        assertEquals(0, summary.getCreated());
+        assertEquals(1, summary.getFailed());
+    }
+
+    @Test
+    public void testImportCsv_AbortsWhenDuplicateCheckFails() throws Exception {
+        when(userDAO.findExistingUsernamesAndEmails(anyCollection(), anyCollection())).thenReturn(null);
+
+        assertNull(service.importCsv(new StringReader("erin,erin@example.com,secret5,Erin E")));
+        verify(userDAO, never()).createBatch(anyList(), anyInt());
+    }
+
+    @Test
+    public void testSplitCsvLine_HandlesQuotes() {
+        assertEquals(Arrays.asList("a", "b,c", "say \"hi\"", ""),
+                UserImportService.splitCsvLine("a,\"b,c\",\"say \"\"hi\"\"\","));
+    }
+}
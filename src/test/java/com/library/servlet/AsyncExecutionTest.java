@@ -0,0 +1,119 @@
+package com.library.servlet;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.RequestDispatcher;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class AsyncExecutionTest {
+
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private AsyncContext asyncContext;
+
+    @Before
+    public void setUp() {
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        asyncContext = mock(AsyncContext.class);
+        when(request.isAsyncSupported()).thenReturn(true);
+        when(request.startAsync(request, response)).thenReturn(asyncContext);
+        when(asyncContext.getRequest()).thenReturn(request);
+        when(asyncContext.getResponse()).thenReturn(response);
+    }
+
+    @After
+    public void tearDown() {
+        AsyncExecution.shutdown();
+    }
+
+    @Test
+    public void testRunsInlineWhenAsyncModeIsOff() throws Exception {
+        RequestDispatcher dispatcher = mock(RequestDispatcher.class);
+        when(request.getRequestDispatcher("/books.jsp")).thenReturn(dispatcher);
+
+        execution("InlineServlet", 4).execute(request, response, (req, resp) -> "/books.jsp");
+
+        verify(dispatcher).forward(request, response);
+        verify(request, never()).startAsync(any(), any());
+    }
+
+    @Test
+    public void testDispatchesViewFromWorker() throws Exception {
+        AsyncExecution.start(2);
+        Thread[] worker = new Thread[1];
+
+        execution("DispatchServlet", 4).execute(request, response, (req, resp) -> {
+            worker[0] = Thread.currentThread();
+            return "/books.jsp";
+        });
+
+        verify(asyncContext, timeout(2000)).dispatch("/books.jsp");
+        verify(asyncContext).setTimeout(5000);
+        verify(asyncContext).addListener(any(AsyncListener.class));
+        assertNotSame(Thread.currentThread(), worker[0]);
+    }
+
+    @Test
+    public void testCompletesWhenHandlerRedirected() throws Exception {
+        AsyncExecution.start(2);
+
+        execution("RedirectServlet", 4).execute(request, response, (req, resp) -> {
+            resp.sendRedirect("books");
+            return null;
+        });
+
+        verify(asyncContext, timeout(2000)).complete();
+        verify(response).sendRedirect("books");
+        verify(asyncContext, never()).dispatch(anyString());
+    }
+
+    @Test
+    public void testRejectsBeyondEndpointLimit() throws Exception {
+        AsyncExecution.start(2);
+        AsyncExecution execution = execution("LimitedServlet", 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        execution.execute(request, response, (req, resp) -> {
+            started.countDown();
+            awaitQuietly(release);
+            return null;
+        });
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+
+        HttpServletResponse second = mock(HttpServletResponse.class);
+        execution.execute(request, second, (req, resp) -> "/books.jsp");
+
+        verify(second).setHeader("Retry-After", "1");
+        verify(second).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        release.countDown();
+    }
+
+    private static AsyncExecution execution(String servletName, int maxConcurrent) {
+        ServletConfig config = mock(ServletConfig.class);
+        when(config.getServletName()).thenReturn(servletName);
+        when(config.getInitParameter("async.maxConcurrent")).thenReturn(String.valueOf(maxConcurrent));
+        when(config.getInitParameter("async.timeoutMillis")).thenReturn("5000");
+        return AsyncExecution.forServlet(config);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.library.servlet;
+
+import com.library.dao.BookDAO;
+import com.library.dao.RowVisitor;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class CatalogApiServletTest {
+
+    private CatalogApiServlet servlet;
+    private BookDAO bookDAO;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private StringWriter body;
+
+    @Before
+    public void setUp() throws Exception {
+        servlet = new CatalogApiServlet();
+        bookDAO = mock(BookDAO.class);
+        servlet.setBookDAO(bookDAO);
+
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        body = new StringWriter();
+        when(request.getDateHeader("If-Modified-Since")).thenReturn(-1L);
+        when(response.getWriter()).thenReturn(new PrintWriter(body));
+    }
+
+    @Test
+    public void testListBooks_pagesWithCursor() throws Exception {
+        when(request.getPathInfo()).thenReturn("/books");
+        when(request.getParameter("limit")).thenReturn("2");
+        when(request.getParameter("cursor")).thenReturn("10");
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getInt("id")).thenReturn(11, 11, 12, 12);
+        when(rs.getString("title")).thenReturn("A", "B");
+        when(bookDAO.visitPage(eq(10), isNull(), eq(3), any())).thenAnswer(invocation -> {
+            RowVisitor visitor = invocation.getArgument(3);
+            for (int i = 0; i < 3; i++) {
+                visitor.visit(rs);
+            }
+            return true;
+        });
+
+        servlet.doGet(request, response);
+
+        String json = body.toString();
+        assertTrue(json, json.startsWith("{\"items\":[{\"id\":11,\"title\":\"A\""));
+        assertTrue(json, json.contains("{\"id\":12,\"title\":\"B\""));
+        assertTrue("Third row only signals another page", json.endsWith("],\"nextCursor\":\"12\"}"));
+        verify(response).setContentType("application/json;charset=UTF-8");
+    }
+
+    @Test
+    public void testListBooks_lastPageHasNoCursor() throws Exception {
+        when(request.getPathInfo()).thenReturn("/books");
+        when(bookDAO.visitPage(eq(0), isNull(), eq(51), any())).thenReturn(true);
+
+        servlet.doGet(request, response);
+
+        assertEquals("{\"items\":[],\"nextCursor\":null}", body.toString());
+    }
+
+    @Test
+    public void testListBooks_rejectsOversizedLimit() throws Exception {
+        when(request.getPathInfo()).thenReturn("/books");
+        when(request.getParameter("limit")).thenReturn("5000");
+
+        servlet.doGet(request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        verifyNoInteractions(bookDAO);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAvailability_batchOfIds() throws Exception {
+        when(request.getPathInfo()).thenReturn("/availability");
+        when(request.getParameter("ids")).thenReturn("3, 1,3");
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getInt("id")).thenReturn(1);
+        when(rs.getInt("quantity")).thenReturn(4);
+        when(rs.getInt("available_quantity")).thenReturn(2);
+        when(bookDAO.visitAvailability(any(), any())).thenAnswer(invocation -> {
+            assertEquals(Set.of(1, 3), Set.copyOf((Collection<Integer>) invocation.getArgument(0)));
+            ((RowVisitor) invocation.getArgument(1)).visit(rs);
+            return true;
+        });
+
+        servlet.doGet(request, response);
+
+        assertEquals("{\"items\":[{\"id\":1,\"quantity\":4,\"available\":2}]}", body.toString());
+    }
+
+    @Test
+    public void testQueryFailureBeforeFirstRowIsAnError() throws Exception {
+        when(request.getPathInfo()).thenReturn("/availability");
+        when(request.getParameter("ids")).thenReturn("1");
+        when(bookDAO.visitAvailability(any(), any())).thenReturn(false);
+
+        servlet.doGet(request, response);
+
+        verify(response).resetBuffer();
+        verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    public void testCategories() throws Exception {
+        when(request.getPathInfo()).thenReturn("/categories");
+        when(bookDAO.getAllCategories()).thenReturn(List.of("Fiction", "History"));
+
+        servlet.doGet(request, response);
+
+        assertEquals("{\"items\":[\"Fiction\",\"History\"]}", body.toString());
+    }
+
+    @Test
+    public void testUnknownBookIs404() throws Exception {
+        when(request.getPathInfo()).thenReturn("/books/42");
+
+        servlet.doGet(request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_NOT_FOUND);
+        assertEquals("{\"error\":\"Book not found\"}", body.toString());
+    }
+}
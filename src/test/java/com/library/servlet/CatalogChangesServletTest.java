@@ -0,0 +1,112 @@
+package com.library.servlet;
+
+import com.library.dao.CatalogChangeDAO;
+import com.library.dao.RowVisitor;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.sql.ResultSet;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class CatalogChangesServletTest {
+
+    private CatalogChangesServlet servlet;
+    private CatalogChangeDAO changeDAO;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private StringWriter body;
+
+    @Before
+    public void setUp() throws Exception {
+        servlet = new CatalogChangesServlet();
+        changeDAO = mock(CatalogChangeDAO.class);
+        servlet.setChangeDAO(changeDAO);
+
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        body = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(body));
+        when(changeDAO.currentVersion(5)).thenReturn(40L);
+        when(changeDAO.horizon()).thenReturn(10L);
+    }
+
+    @Test
+    public void testMissingSinceAsksForResync() throws Exception {
+        servlet.doGet(request, response);
+
+        assertEquals("{\"version\":40,\"resync\":true}", body.toString());
+        verify(changeDAO, never()).visitChangesSince(anyLong(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    public void testSinceBeforeHorizonAsksForResync() throws Exception {
+        when(request.getParameter("since")).thenReturn("9");
+
+        servlet.doGet(request, response);
+
+        assertEquals("{\"version\":40,\"resync\":true}", body.toString());
+    }
+
+    @Test
+    public void testSinceAheadOfSettledVersionAsksForResync() throws Exception {
+        when(request.getParameter("since")).thenReturn("41");
+
+        servlet.doGet(request, response);
+
+        assertEquals("{\"version\":40,\"resync\":true}", body.toString());
+        verify(changeDAO, never()).visitChangesSince(anyLong(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    public void testDeltaListsChangedAndDeletedBooks() throws Exception {
+        when(request.getParameter("since")).thenReturn("30");
+        ResultSet changed = mock(ResultSet.class);
+        when(changed.getLong("version")).thenReturn(33L);
+        when(changed.getInt("id")).thenReturn(5);
+        when(changed.getString("title")).thenReturn("Dune");
+        when(changed.getInt("available_quantity")).thenReturn(1);
+        ResultSet deleted = mock(ResultSet.class);
+        when(deleted.getLong("version")).thenReturn(38L);
+        when(deleted.wasNull()).thenReturn(true);
+        when(deleted.getInt("book_id")).thenReturn(9);
+        when(changeDAO.visitChangesSince(eq(30L), eq(5), eq(500), any())).thenAnswer(invocation -> {
+            RowVisitor visitor = invocation.getArgument(3);
+            visitor.visit(changed);
+            visitor.visit(deleted);
+            return true;
+        });
+
+        servlet.doGet(request, response);
+
+        String json = body.toString();
+        assertTrue(json, json.startsWith("{\"changed\":[{\"id\":5,\"title\":\"Dune\""));
+        assertTrue(json, json.contains("\"available\":1}],\"deleted\":[9]"));
+        assertTrue(json, json.endsWith("\"version\":38,\"hasMore\":false}"));
+    }
+
+    @Test
+    public void testNothingChangedKeepsVersion() throws Exception {
+        when(request.getParameter("since")).thenReturn("40");
+        when(changeDAO.visitChangesSince(eq(40L), anyInt(), anyInt(), any())).thenReturn(true);
+
+        servlet.doGet(request, response);
+
+        assertEquals("{\"changed\":[],\"deleted\":[],\"version\":40,\"hasMore\":false}", body.toString());
+    }
+
+    @Test
+    public void testInvalidSinceIsRejected() throws Exception {
+        when(request.getParameter("since")).thenReturn("yesterday");
+
+        servlet.doGet(request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+    }
+}
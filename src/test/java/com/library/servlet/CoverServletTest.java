@@ -0,0 +1,32 @@
+package com.library.servlet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CoverServletTest {
+
+    @Test
+    public void testParseRange_ExplicitRange() {
+        assertArrayEquals(new long[]{10, 19}, CoverServlet.parseRange("bytes=10-19", 100));
+    }
+
+    @Test
+    public void testParseRange_OpenEndedAndSuffix() {
+        assertArrayEquals(new long[]{90, 99}, CoverServlet.parseRange("bytes=90-", 100));
+        assertArrayEquals(new long[]{75, 99}, CoverServlet.parseRange("bytes=-25", 100));
+        assertArrayEquals("End is clamped to the file size",
+                new long[]{50, 99}, CoverServlet.parseRange("bytes=50-500", 100));
+    }
+
+    @Test
+    public void testParseRange_Unsatisfiable() {
+        assertNull(CoverServlet.parseRange("bytes=100-", 100));
+        assertNull(CoverServlet.parseRange("bytes=20-10", 100));
+    }
+
+    @Test
+    public void testParseRange_MultipleRangesServeWholeFile() {
+        assertArrayEquals(new long[]{0, 99}, CoverServlet.parseRange("bytes=0-9,20-29", 100));
+    }
+}
@@ -1,6 +1,7 @@
 package com.library.servlet.admin;
 
 import com.library.dao.BookDAO;
+import com.library.dao.RowCursor;
 import com.library.model.Book;
 import jakarta.servlet.RequestDispatcher;
 import jakarta.servlet.ServletException;
@@ -9,10 +10,9 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.List;
 
 import static org.mockito.Mockito.*;
 
@@ -37,20 +37,20 @@ public class AdminBookServletTest {
 
 
     @Test
+    @SuppressWarnings("unchecked")
     public void testListBooks() throws Exception {
-        Book book1 = new Book();
-        book1.setTitle("Book1");
-        Book book2 = new Book();
-        book2.setTitle("Book2");
-
-        List<Book> books = Arrays.asList(book1, book2);
-        when(bookDAO.findAll()).thenReturn(books);
+        RowCursor<Book> books = mock(RowCursor.class);
+        when(bookDAO.cursorAll()).thenReturn(books);
         when(request.getRequestDispatcher("/admin/books.jsp")).thenReturn(dispatcher);
 
         servlet.doGet(request, response);
 
         verify(request).setAttribute("books", books);
         verify(dispatcher).forward(request, response);
+        // Released only after the page has rendered
+        InOrder order = inOrder(dispatcher, books);
+        order.verify(dispatcher).forward(request, response);
+        order.verify(books).close();
     }
 
     @Test
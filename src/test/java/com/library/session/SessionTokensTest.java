@@ -0,0 +1,228 @@
+package com.library.session;
+
+import com.library.dao.UserDAO;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class SessionTokensTest {
+
+    private static final long TTL = TimeUnit.MINUTES.toMillis(30);
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private UserDAO userDAO;
+    private SessionVersions versions;
+
+    @Before
+    public void setUp() {
+        userDAO = mock(UserDAO.class);
+        versions = new SessionVersions(userDAO);
+        when(userDAO.findSessionVersions()).thenReturn(Map.of());
+        versions.load();
+    }
+
+    @After
+    public void tearDown() {
+        SessionTokens.setShared(null);
+        SessionVersions.setShared(null);
+    }
+
+    @Test
+    public void testIssuedTokenVerifies() {
+        SessionTokens tokens = tokens(keys("k1", 1));
+
+        SessionTokens.Claims claims = tokens.verify(tokens.issue(7, "alice:smith", "Alice: Smith", "ADMIN"));
+
+        assertNotNull(claims);
+        assertEquals(7, claims.getUserId());
+        assertEquals("alice:smith", claims.getUsername());
+        assertEquals("Alice: Smith", claims.getFullName());
+        assertTrue(claims.isAdmin());
+    }
+
+    @Test
+    public void testTamperedOrForeignTokenIsRejected() {
+        SessionTokens tokens = tokens(keys("k1", 1));
+        String token = tokens.issue(7, "alice", "Alice Smith", "USER");
+        String[] parts = token.split("\\.");
+        java.util.Base64.Encoder base64 = java.util.Base64.getUrlEncoder().withoutPadding();
+        String promoted = base64.encodeToString(("7:0:" + (now.get() / 1000 + 60) + ":ADMIN:"
+                + base64.encodeToString("alice".getBytes()) + ":" + base64.encodeToString("Alice Smith".getBytes())).getBytes());
+
+        assertNull(tokens.verify(parts[0] + "." + promoted + "." + parts[2]));
+        assertNull(tokens.verify(tokens(keys("k1", 2)).issue(7, "alice", "Alice Smith", "USER")));
+        assertNull(tokens.verify("k1.garbage"));
+        assertNull(tokens.verify("k9." + parts[1] + "." + parts[2]));
+    }
+
+    @Test
+    public void testExpiredTokenIsRejectedAndRefreshedBeforeThat() {
+        SessionTokens tokens = tokens(keys("k1", 1));
+        String token = tokens.issue(7, "alice", "Alice Smith", "USER");
+
+        now.addAndGet(TTL / 2 - 1000);
+        assertFalse(tokens.shouldRefresh(token, tokens.verify(token)));
+        now.addAndGet(2000);
+        assertTrue(tokens.shouldRefresh(token, tokens.verify(token)));
+        now.addAndGet(TTL);
+        assertNull(tokens.verify(token));
+    }
+
+    @Test
+    public void testOldKeyIsAcceptedAfterRotationAndRefreshed() {
+        String token = tokens(keys("k1", 1)).issue(7, "alice", "Alice Smith", "USER");
+
+        Map<String, byte[]> rotated = keys("k2", 2);
+        rotated.putAll(keys("k1", 1));
+        SessionTokens tokens = tokens(rotated);
+
+        SessionTokens.Claims claims = tokens.verify(token);
+        assertNotNull(claims);
+        assertTrue(tokens.shouldRefresh(token, claims));
+        assertTrue(tokens.issue(7, "alice", "Alice Smith", "USER").startsWith("k2."));
+    }
+
+    @Test
+    public void testRevokedTokenIsRejected() {
+        SessionTokens tokens = tokens(keys("k1", 1));
+        String token = tokens.issue(7, "alice", "Alice Smith", "USER");
+        when(userDAO.revokeSessions(7)).thenReturn(1);
+
+        assertTrue(versions.revoke(7));
+
+        assertNull(tokens.verify(token));
+        assertNotNull(tokens.verify(tokens.issue(7, "alice", "Alice Smith", "USER")));
+        assertNotNull(tokens.verify(tokens.issue(8, "bob", "Bob Jones", "USER")));
+    }
+
+    @Test
+    public void testDeletedUserIsRevokedOnReload() {
+        SessionTokens tokens = tokens(keys("k1", 1));
+        String token = tokens.issue(7, "alice", "Alice Smith", "USER");
+        when(userDAO.findSessionVersion(7)).thenReturn(Integer.MAX_VALUE);
+
+        versions.reload("7");
+
+        assertNull(tokens.verify(token));
+    }
+
+    @Test
+    public void testDeletedUserStaysRevokedAcrossFullReload() {
+        SessionTokens tokens = tokens(keys("k1", 1));
+        String deleted = tokens.issue(7, "alice", "Alice Smith", "USER");
+        String revoked = tokens.issue(8, "bob", "Bob Jones", "USER");
+        when(userDAO.findSessionVersion(7)).thenReturn(Integer.MAX_VALUE);
+        versions.reload("7");
+        // Alice has no row any more, so the full table does not mention her
+        when(userDAO.findSessionVersions()).thenReturn(Map.of(8, 1));
+
+        assertTrue(versions.load());
+
+        assertNull(tokens.verify(deleted));
+        assertNull(tokens.verify(revoked));
+        assertNotNull(tokens.verify(tokens.issue(8, "bob", "Bob Jones", "USER")));
+    }
+
+    @Test
+    public void testAdminTokenIsRejectedUntilVersionsLoad() {
+        versions = new SessionVersions(userDAO);
+        SessionTokens tokens = tokens(keys("k1", 1));
+        String admin = tokens.issue(7, "alice", "Alice Smith", "ADMIN");
+        String user = tokens.issue(8, "bob", "Bob Jones", "USER");
+        when(userDAO.findSessionVersions()).thenReturn(null);
+
+        assertFalse(versions.load());
+        assertNull(tokens.verify(admin));
+        assertNotNull(tokens.verify(user));
+
+        when(userDAO.findSessionVersions()).thenReturn(Map.of());
+        assertTrue(versions.load());
+        assertNotNull(tokens.verify(admin));
+    }
+
+    @Test
+    public void testFilterPresentsTokenAsSession() throws Exception {
+        SessionTokens tokens = tokens(keys("k1", 1));
+        SessionTokens.setShared(tokens);
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        FilterChain chain = mock(FilterChain.class);
+        when(request.getContextPath()).thenReturn("/online-library");
+        when(request.getCookies()).thenReturn(new Cookie[]{
+                new Cookie(SessionTokens.COOKIE, tokens.issue(7, "alice", "Alice Smith", "ADMIN"))});
+
+        new SessionTokenFilter().doFilter(request, response, chain);
+
+        ArgumentCaptor<ServletRequest> passed = ArgumentCaptor.forClass(ServletRequest.class);
+        verify(chain).doFilter(passed.capture(), any());
+        SessionUser user = SessionUser.current((HttpServletRequest) passed.getValue());
+        assertEquals(7, user.getId());
+        assertEquals("Alice Smith", user.getFullName());
+        assertTrue(user.isAdmin());
+        verify(response, never()).addCookie(any());
+    }
+
+    @Test
+    public void testFilterRefreshKeepsTheFullName() throws Exception {
+        SessionTokens tokens = tokens(keys("k1", 1));
+        SessionTokens.setShared(tokens);
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(request.getContextPath()).thenReturn("/online-library");
+        when(request.getCookies()).thenReturn(new Cookie[]{
+                new Cookie(SessionTokens.COOKIE, tokens.issue(7, "alice", "Alice Smith", "USER"))});
+        now.addAndGet(TTL / 2 + 1000);
+
+        new SessionTokenFilter().doFilter(request, response, mock(FilterChain.class));
+
+        ArgumentCaptor<Cookie> refreshed = ArgumentCaptor.forClass(Cookie.class);
+        verify(response).addCookie(refreshed.capture());
+        assertEquals("Alice Smith", tokens.verify(refreshed.getValue().getValue()).getFullName());
+    }
+
+    @Test
+    public void testFilterClearsInvalidToken() throws Exception {
+        SessionTokens.setShared(tokens(keys("k1", 1)));
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        FilterChain chain = mock(FilterChain.class);
+        when(request.getContextPath()).thenReturn("/online-library");
+        when(request.getCookies()).thenReturn(new Cookie[]{new Cookie(SessionTokens.COOKIE, "k1.forged.token")});
+
+        new SessionTokenFilter().doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        ArgumentCaptor<Cookie> cleared = ArgumentCaptor.forClass(Cookie.class);
+        verify(response).addCookie(cleared.capture());
+        assertEquals(0, cleared.getValue().getMaxAge());
+        assertEquals("/online-library", cleared.getValue().getPath());
+    }
+
+    private SessionTokens tokens(Map<String, byte[]> keys) {
+        return new SessionTokens(keys, versions, TTL, now::get);
+    }
+
+    private static Map<String, byte[]> keys(String id, int seed) {
+        byte[] key = new byte[SessionTokens.MIN_KEY_BYTES];
+        Arrays.fill(key, (byte) seed);
+        Map<String, byte[]> keys = new LinkedHashMap<>();
+        keys.put(id, key);
+        return keys;
+    }
+}
@@ -0,0 +1,72 @@
+package com.library.session;
+
+import com.library.dao.UserDAO;
+import com.library.model.User;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class SessionUserTest {
+
+    private HttpServletRequest request;
+    private HttpSession session;
+    private final Map<String, Object> requestAttributes = new HashMap<>();
+
+    @Before
+    public void setUp() {
+        request = mock(HttpServletRequest.class);
+        session = mock(HttpSession.class);
+        when(request.getSession(false)).thenReturn(session);
+        when(request.getAttribute(anyString())).thenAnswer(inv -> requestAttributes.get(inv.getArgument(0, String.class)));
+        doAnswer(inv -> requestAttributes.put(inv.getArgument(0), inv.getArgument(1)))
+                .when(request).setAttribute(anyString(), any());
+    }
+
+    @Test
+    public void testPrincipalKeepsOnlyWhatPagesNeed() {
+        User user = new User(7, "alice", "alice@example.com", "Alice Smith", "ADMIN");
+        user.setPassword("pbkdf2$310000$c2FsdA==$aGFzaA==");
+
+        SessionUser principal = SessionUser.of(user);
+
+        assertEquals(7, principal.getId());
+        assertEquals("Alice Smith", principal.getFullName());
+        assertTrue(principal.isAdmin());
+        long size = SessionMetricsListener.serializedSize(principal);
+        assertTrue("principal serializes to " + size + " bytes", size > 0 && size < 300);
+    }
+
+    @Test
+    public void testFullUserIsLoadedOncePerRequest() {
+        when(session.getAttribute(SessionUser.ATTRIBUTE)).thenReturn(new SessionUser(7, "alice", "Alice", "USER"));
+        UserDAO userDAO = mock(UserDAO.class);
+        User user = new User(7, "alice", "alice@example.com", "Alice", "USER");
+        when(userDAO.findById(7)).thenReturn(user);
+
+        assertSame(user, SessionUser.loadUser(request, userDAO));
+        assertSame(user, SessionUser.loadUser(request, userDAO));
+        verify(userDAO, times(1)).findById(7);
+    }
+
+    @Test
+    public void testNobodySignedIn() {
+        UserDAO userDAO = mock(UserDAO.class);
+        when(request.getSession(false)).thenReturn(null);
+        assertNull(SessionUser.current(request));
+        assertNull(SessionUser.loadUser(request, userDAO));
+
+        // A session restored from before the principal type counts as signed out
+        when(request.getSession(false)).thenReturn(session);
+        when(session.getAttribute(SessionUser.ATTRIBUTE)).thenReturn(new User());
+        assertNull(SessionUser.current(request));
+        verifyNoInteractions(userDAO);
+    }
+}
@@ -0,0 +1,74 @@
+package com.library.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    private final CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, 0.8, 1000, 5000, now::get);
+
+    @Test
+    public void testOpensOnFailureRate() {
+        breaker.onSuccess(0);
+        breaker.onFailure();
+        breaker.onSuccess(0);
+        assertEquals("Below minimum calls", CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testOpensOnSlowCallRate() {
+        long slow = TimeUnit.MILLISECONDS.toNanos(1500);
+        for (int i = 0; i < 4; i++) {
+            breaker.onSuccess(slow);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenAllowsOneProbeThenCloses() {
+        openBreaker();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(5000));
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse("Only one probe", breaker.tryAcquire());
+
+        breaker.onSuccess(0);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals("Closed with a fresh window", CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testFailedProbeReopens() {
+        openBreaker();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(5000));
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
@@ -3,6 +3,8 @@ package com.library.util;
 import org.junit.*;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransientConnectionException;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -45,6 +47,50 @@ public class DatabaseConnectionTest {
         }
     }
 
+    @Test
+    public void testBulkheadPermitHeldUntilClose() throws SQLException {
+        DatabaseConnection.Bulkhead bulkhead = new DatabaseConnection.Bulkhead("test", 1);
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, 0.8, 1000, 5000);
+        Connection raw = mock(Connection.class);
+
+        Connection conn = DatabaseConnection.open(bulkhead, breaker, () -> raw);
+        try {
+            DatabaseConnection.open(bulkhead, breaker, () -> raw);
+            fail("Bulkhead should be full");
+        } catch (SQLTransientConnectionException expected) {
+            // Rejected without connecting
+        }
+        conn.close();
+        conn.close();
+
+        verify(raw, times(2)).close();
+        assertEquals("Released once", 1, bulkhead.available());
+    }
+
+    @Test
+    public void testOpenCircuitFailsFastAndReleasesPermit() throws SQLException {
+        DatabaseConnection.Bulkhead bulkhead = new DatabaseConnection.Bulkhead("test", 1);
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, 0.8, 1000, 5000);
+        DatabaseConnection.Connector refused = () -> {
+            throw new SQLException("Connection refused");
+        };
+        for (int i = 0; i < 4; i++) {
+            try {
+                DatabaseConnection.open(bulkhead, breaker, refused);
+                fail("Connect should fail");
+            } catch (SQLException expected) {
+                assertFalse(expected instanceof SQLTransientConnectionException);
+            }
+        }
+
+        try {
+            DatabaseConnection.open(bulkhead, breaker, () -> mock(Connection.class));
+            fail("Circuit should be open");
+        } catch (SQLTransientConnectionException expected) {
+            assertEquals(1, bulkhead.available());
+        }
+    }
+
     @Test
     @Ignore("Requires real DB credentials")
     public void testRealConnection() {
@@ -63,4 +109,13 @@ public class DatabaseConnectionTest {
             DatabaseConnection.setTestConnection(mockConnection);
         }
     }
+
+    @Test
+    public void testIsTransient() {
+        assertTrue(DatabaseConnection.isTransient(new SQLTransientConnectionException("circuit open")));
+        assertTrue(DatabaseConnection.isTransient(new SQLException("Communications link failure", "08S01")));
+        assertTrue(DatabaseConnection.isTransient(new SQLException("Deadlock found", "40001")));
+        assertFalse(DatabaseConnection.isTransient(new SQLIntegrityConstraintViolationException("Duplicate entry", "23000")));
+        assertFalse(DatabaseConnection.isTransient(new SQLException("Data truncated", "22001")));
+    }
 }
@@ -0,0 +1,65 @@
+package com.library.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class HttpCacheUtilTest {
+
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+
+    @Before
+    public void setUp() {
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        when(request.getDateHeader(anyString())).thenReturn(-1L);
+    }
+
+    @Test
+    public void testWeakEtag_JoinsParts() {
+        assertEquals("W/\"books-42-7\"", HttpCacheUtil.weakEtag("books", 42, 7));
+    }
+
+    @Test
+    public void testMatches_UsesWeakComparison() {
+        assertTrue(HttpCacheUtil.matches("\"a\", W/\"books-1\"", "W/\"books-1\""));
+        assertTrue(HttpCacheUtil.matches("\"books-1\"", "W/\"books-1\""));
+        assertTrue(HttpCacheUtil.matches("*", "\"anything\""));
+        assertFalse(HttpCacheUtil.matches("W/\"books-2\"", "W/\"books-1\""));
+        assertFalse(HttpCacheUtil.matches(null, "W/\"books-1\""));
+    }
+
+    @Test
+    public void testCheckNotModified_MatchingEtagSends304() {
+        when(request.getHeader("If-None-Match")).thenReturn("W/\"books-1\"");
+
+        assertTrue(HttpCacheUtil.checkNotModified(request, response, "W/\"books-1\"", LAST_MODIFIED));
+
+        verify(response).setHeader("ETag", "W/\"books-1\"");
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+
+    @Test
+    public void testCheckNotModified_EtagTakesPrecedenceOverDate() {
+        when(request.getHeader("If-None-Match")).thenReturn("W/\"books-0\"");
+        when(request.getDateHeader("If-Modified-Since")).thenReturn(LAST_MODIFIED);
+
+        assertFalse(HttpCacheUtil.checkNotModified(request, response, "W/\"books-1\"", LAST_MODIFIED));
+        verify(response, never()).setStatus(anyInt());
+    }
+
+    @Test
+    public void testCheckNotModified_IfModifiedSince() {
+        when(request.getDateHeader("If-Modified-Since")).thenReturn(LAST_MODIFIED);
+
+        assertTrue(HttpCacheUtil.checkNotModified(request, response, "W/\"x\"", LAST_MODIFIED + 500));
+        assertFalse(HttpCacheUtil.checkNotModified(request, response, "W/\"x\"", LAST_MODIFIED + 1000));
+    }
+}
@@ -0,0 +1,45 @@
+package com.library.util;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class JsonWriterTest {
+
+    @Test
+    public void testNestedContainersAndCommas() throws Exception {
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).beginObject()
+                .name("items").beginArray()
+                .beginObject().name("id").value(1).name("ok").value(true).endObject()
+                .beginObject().name("id").value(2).name("note").value((String) null).endObject()
+                .endArray()
+                .name("next").nullValue()
+                .endObject();
+
+        assertEquals("{\"items\":[{\"id\":1,\"ok\":true},{\"id\":2,\"note\":null}],\"next\":null}", out.toString());
+    }
+
+    @Test
+    public void testEmptyContainers() throws Exception {
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).beginObject().name("items").beginArray().endArray().endObject();
+
+        assertEquals("{\"items\":[]}", out.toString());
+    }
+
+    @Test
+    public void testStringEscaping() throws Exception {
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).value("say \"hi\"\\\n\t</script>\u0001é");
+
+        assertEquals("\"say \\\"hi\\\"\\\\\\n\\t\\u003c/script>\\u0001é\"", out.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnbalancedCloseIsRejected() throws Exception {
+        new JsonWriter(new StringWriter()).endObject();
+    }
+}
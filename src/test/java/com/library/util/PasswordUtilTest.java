@@ -1,6 +1,7 @@
 package com.library.util;
 import com.library.util.PasswordUtil;
 import org.junit.Test;
+
 import static org.junit.Assert.*;
 
 public class PasswordUtilTest {
@@ -52,4 +53,3 @@ public class PasswordUtilTest {
         assertFalse("Hash should not be empty", hash.isEmpty());
     }
 }
-